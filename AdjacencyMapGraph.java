@@ -1,4 +1,6 @@
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,6 +14,9 @@ import java.util.Map;
 public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 	protected Map<V, Map<V, E>> out;		// from v1 to v2: { v1 -> { v2 -> edge } }
 	protected Map<V, Map<V, E>> in;		// to v1 from v2: { v1 -> { v2 -> edge } }
+	protected long version;				// bumped on every change, so derived data can tell it is stale
+	protected int numEdges;				// directed edges, kept up to date by insert/remove
+	protected List<GraphListener<V, E>> listeners = new ArrayList<GraphListener<V, E>>();
 
 	/**
 	 * Default constructor, creating an empty graph 
@@ -26,10 +31,26 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 	}
 
 	public int numEdges() {
-		// Don't actually keep an edge list around, so compute this on the fly
-		int n = 0;
-		for (V v : vertices()) n += outDegree(v);
-		return n;
+		// Don't actually keep an edge list around, just a count of the edges inserted minus those removed
+		return numEdges;
+	}
+
+	/**
+	 * Number of changes made to the graph so far; equal versions mean an unchanged graph.
+	 */
+	public long version() {
+		return version;
+	}
+
+	/**
+	 * Registers a listener to be told of every later change to the graph.
+	 */
+	public void addListener(GraphListener<V, E> listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(GraphListener<V, E> listener) {
+		listeners.remove(listener);
 	}
 
 	public Iterable<V> vertices() {
@@ -68,12 +89,22 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 		if (!out.keySet().contains(v)) {
 			out.put(v, new HashMap<V, E>());		// edges from v
 			in.put(v, new HashMap<V, E>());		// edges to v
+			version++;
+			for (GraphListener<V, E> l : listeners) l.vertexInserted(v);
 		}
 	}
 
 	public void insertDirected(V u, V v, E e) {
-		out.get(u).put(v, e);
+		boolean added = !out.get(u).containsKey(v);
+		E old = out.get(u).put(v, e);
 		in.get(v).put(u, e);
+		version++;
+		if (added) {
+			numEdges++;
+			for (GraphListener<V, E> l : listeners) l.edgeInserted(u, v, e);
+		} else if (old != e) {
+			for (GraphListener<V, E> l : listeners) l.edgeLabeled(u, v, e);
+		}
 	}
 
 	public void insertUndirected(V u, V v, E e) {
@@ -87,17 +118,29 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 		// remove v from all adjacency lists for other vertices
 		for (V u : inNeighbors(v)) { // u has an edge to v
 			out.get(u).remove(v);
+			numEdges--;
+			for (GraphListener<V, E> l : listeners) l.edgeRemoved(u, v);
 		}
 		for (V w : outNeighbors(v)) { // w has an edge from v
 			in.get(w).remove(v);
+			numEdges--;
+			for (GraphListener<V, E> l : listeners) l.edgeRemoved(v, w);
 		}
 		in.remove(v);
 		out.remove(v);
+		version++;
+		for (GraphListener<V, E> l : listeners) l.vertexRemoved(v);
 	}
 
 	public void removeDirected(V u, V v) {
+		boolean removed = out.get(u).containsKey(v);
 		in.get(v).remove(u);
 		out.get(u).remove(v);
+		version++;
+		if (removed) {
+			numEdges--;
+			for (GraphListener<V, E> l : listeners) l.edgeRemoved(u, v);
+		}
 	}
 	
 	public void removeUndirected(V u, V v) {
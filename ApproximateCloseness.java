@@ -0,0 +1,199 @@
+import java.util.*;
+
+/**
+ * Estimates the average separation of every vertex connected to a center from BFS runs out of a
+ * random sample of pivots, so ranking a component takes a few passes over the graph instead of one
+ * search per vertex. The co-star graph is undirected, so the distances from a pivot are also the
+ * distances to it, and a vertex's mean distance to the pivots, scaled by n/(n-1), is an unbiased
+ * estimate of its average separation over the n vertices of the component. The pivots are searched
+ * 64 at a time with MultiSourceBFS, which also sums each vertex's distances and their squares.
+ * Every estimate has an error bound: a normal-approximation interval from that vertex's sample
+ * variance, or a Hoeffding bound from the largest possible distance, which holds on any graph.
+ * confirmTop/confirmBottom then rank exactly only the vertices those bounds cannot rule out.
+ * Pivots are drawn by a Random with the given seed, so one seed always gives the same estimates.
+ *
+ * PS4
+ */
+public class ApproximateCloseness<V, E> {
+    public static final double Z = 3; //normal quantile used when pruning, about 99.7% per vertex
+
+    private final CSRGraph<V, E> graph;
+    private final int pivots, componentSize;
+    private final long seed;
+    private final int maxDistance; //no two vertices of the component are further apart
+    private final int[] ranked; //vertex ids that have an estimate
+    private final double[] averages, errors; //estimate and its standard error by vertex id, NaN if not ranked
+    private final ClosenessRanking<V, E> estimates;
+
+    private ApproximateCloseness(CSRGraph<V, E> graph, V center, int pivots, int componentSize, long seed, int maxDistance,
+                                 int[] ranked, double[] averages, double[] errors) {
+        this.graph = graph;
+        this.pivots = pivots;
+        this.componentSize = componentSize;
+        this.seed = seed;
+        this.maxDistance = maxDistance;
+        this.ranked = ranked;
+        this.averages = averages;
+        this.errors = errors;
+        estimates = new ClosenessRanking<>(graph, center, ranked, averages);
+    }
+
+    /**
+     * Estimates the average separation of every vertex connected to center.
+     *
+     * @param g      graph to estimate on, whose edges go both ways
+     * @param center vertex whose connected component is estimated
+     * @param pivots number of vertices to search from; the whole component if it is no larger
+     * @param seed   seed for choosing the pivots
+     * @return the estimates
+     * @throws IllegalArgumentException if center is not in the graph or pivots is not positive
+     */
+    public static <V, E> ApproximateCloseness<V, E> estimate(CSRGraph<V, E> g, V center, int pivots, long seed) {
+        if (pivots < 1) throw new IllegalArgumentException("pivots must be positive: " + pivots);
+        BFSResult<V, E> bfs = new BFSResult<>(g).search(center);
+        int n = bfs.numReached();
+        int[] component = Arrays.copyOf(bfs.order(), n);
+        int k = Math.min(pivots, n);
+
+        //first k of a partial shuffle: k distinct pivots
+        int[] sample = component.clone();
+        Random random = new Random(seed);
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int t = sample[i];
+            sample[i] = sample[j];
+            sample[j] = t;
+        }
+
+        long[] sums = new long[g.numVertices()], squares = new long[g.numVertices()];
+        MultiSourceBFS<V, E> search = new MultiSourceBFS<>(g);
+        int maxDistance = n - 1;
+        for (int from = 0; from < k; from += MultiSourceBFS.WIDTH) {
+            MultiSourceBFS.Counts counts = search.search(sample, from, Math.min(MultiSourceBFS.WIDTH, k - from), sums, squares);
+            for (int i = 0; i < counts.size(); i++) maxDistance = Math.min(maxDistance, 2 * counts.eccentricity(i));
+        }
+
+        //mean distance to the pivots, counting each vertex's distance 0 to itself like any other
+        double[] averages = new double[g.numVertices()], errors = new double[g.numVertices()];
+        Arrays.fill(averages, Double.NaN);
+        Arrays.fill(errors, Double.NaN);
+        IntList ranked = new IntList(n);
+        if (n > 1) {
+            double scale = n / (n - 1.0);
+            double correction = (n - k) / (n - 1.0); //finite population correction, 0 once every vertex is a pivot
+            for (int v : component) {
+                double mean = sums[v] / (double) k;
+                double variance = k > 1 ? Math.max(0, (squares[v] - sums[v] * mean) / (k - 1)) : maxDistance * maxDistance;
+                averages[v] = mean * scale;
+                errors[v] = scale * Math.sqrt(variance / k * correction);
+                ranked.add(v);
+            }
+        }
+        return new ApproximateCloseness<>(g, center, k, n, seed, maxDistance, ranked.toArray(), averages, errors);
+    }
+
+    /**
+     * The k best centers by estimate (smallest estimated average separation first).
+     */
+    public List<V> top(int k) {
+        return estimates.top(k);
+    }
+
+    /**
+     * The k worst centers by estimate (largest estimated average separation first).
+     */
+    public List<V> bottom(int k) {
+        return estimates.bottom(k);
+    }
+
+    /**
+     * Estimated average separation of v, or NaN if v is not connected to the center.
+     */
+    public double averageSeparation(V v) {
+        return estimates.averageSeparation(v);
+    }
+
+    /**
+     * Half-width of the normal-approximation interval around v's estimate, e.g. z = 1.96 for 95%.
+     * The interval is from v's own spread of distances to the pivots, so it is tight on small-world
+     * graphs but only approximate when there are few pivots.
+     *
+     * @return the half-width, 0 if every vertex was a pivot, NaN if v is not connected to the center
+     */
+    public double errorBound(V v, double z) {
+        int id = graph.vertexId(v);
+        return id < 0 ? Double.NaN : z * errors[id];
+    }
+
+    /**
+     * Error that no estimate exceeds with probability at least 1 - delta per vertex, from Hoeffding's
+     * bound for sampling without replacement with distances between 0 and twice the smallest pivot
+     * eccentricity. Holds for any graph but is much wider than errorBound; divide delta by size() for
+     * a bound on all vertices at once.
+     */
+    public double worstCaseBound(double delta) {
+        if (pivots >= componentSize) return 0;
+        double correction = 1 - (pivots - 1) / (double) componentSize;
+        return componentSize / (componentSize - 1.0) * maxDistance * Math.sqrt(correction * Math.log(2 / delta) / (2 * pivots));
+    }
+
+    /**
+     * Exact ranking of every vertex that the estimates cannot rule out of the k best: those whose
+     * estimate minus z error bounds is no larger than the k-th smallest estimate plus z error bounds.
+     * Its top(k) are the k best centers, unless a bound failed.
+     *
+     * @param threads number of worker threads for the exact searches
+     */
+    public ClosenessRanking<V, E> confirmTop(int k, double z, int threads) {
+        return confirm(k, z, threads, 1);
+    }
+
+    /**
+     * Exact ranking of every vertex that the estimates cannot rule out of the k worst; its bottom(k)
+     * are the k worst centers, unless a bound failed.
+     */
+    public ClosenessRanking<V, E> confirmBottom(int k, double z, int threads) {
+        return confirm(k, z, threads, -1);
+    }
+
+    // vertices within the bounds of the k-th best by sign * estimate, searched exactly
+    private ClosenessRanking<V, E> confirm(int k, double z, int threads, int sign) {
+        k = Math.min(k, ranked.length);
+        IntList candidates = new IntList();
+        if (k > 0) {
+            double[] upper = new double[ranked.length];
+            for (int i = 0; i < ranked.length; i++) upper[i] = sign * averages[ranked[i]] + z * errors[ranked[i]];
+            Arrays.sort(upper);
+            for (int v : ranked) {
+                if (sign * averages[v] - z * errors[v] <= upper[k - 1]) candidates.add(v);
+            }
+        }
+        return ClosenessRanking.compute(graph, estimates.center(), candidates.toArray(), threads, true);
+    }
+
+    /**
+     * Number of vertices with an estimate.
+     */
+    public int size() {
+        return estimates.size();
+    }
+
+    /**
+     * Number of pivots searched from.
+     */
+    public int pivots() {
+        return pivots;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public CSRGraph<V, E> graph() {
+        return graph;
+    }
+
+    public V center() {
+        return estimates.center();
+    }
+}
@@ -0,0 +1,221 @@
+import java.util.*;
+
+/**
+ * Cache of BFS shortest path trees keyed by center, for repeated queries against popular centers.
+ * Searches run on a compact copy of the graph. Entries are evicted least recently used first
+ * once the cache holds more than maxEntries trees or more than maxBytes of estimated tree
+ * arrays. The compact copy is rebuilt on the next miss after the graph changes, which
+ * AdjacencyMapGraph reports through its version.
+ * Registered as a listener on an AdjacencyMapGraph, the cache drops only the trees whose distances
+ * a change can affect: a new edge u -> v matters only if it shortens v's distance, a removed edge
+ * only if it is a tree edge, and a relabeled edge never does. Kept trees still refer to the compact
+ * copy they were searched on, so their distances and paths are current but labels read through their
+ * graph may be older, until the next copy is made. CSRGraph.of patches that copy from the last one
+ * with the same vertex ids, so the kept trees are then moved onto it rather than searched again, and
+ * old copies are not pinned. Removing a vertex drops every tree.
+ * Cached results are shared, so callers must not re-run search() on them. Not thread-safe.
+ *
+ * PS4
+ */
+public class BFSCache<V, E> implements GraphListener<V, E> {
+    private final GraphView<V, E> graph;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final boolean directionOptimizing;
+    private final LinkedHashMap<V, BFSResult<V, E>> trees = new LinkedHashMap<>(16, 0.75f, true); //access order for LRU
+    private CSRGraph<V, E> compact; //copy of graph at compactVersion, built on first miss
+    private long compactVersion = -1;
+    private long bytes;
+    private long hits, misses, evictions, invalidations, dropped;
+
+    private BFSCache(GraphView<V, E> graph, int maxEntries, long maxBytes, boolean directionOptimizing) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        this.graph = graph;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.directionOptimizing = directionOptimizing;
+    }
+
+    /**
+     * @param graph      graph to search on
+     * @param maxEntries most trees to keep
+     * @param maxBytes   most estimated bytes of trees to keep; the latest tree is kept even if larger
+     */
+    public static <V, E> BFSCache<V, E> of(GraphView<V, E> graph, int maxEntries, long maxBytes) {
+        return of(graph, maxEntries, maxBytes, false);
+    }
+
+    /**
+     * @param graph               graph to search on
+     * @param maxEntries          most trees to keep
+     * @param maxBytes            most estimated bytes of trees to keep; the latest tree is kept even if larger
+     * @param directionOptimizing whether misses run direction-optimizing searches (see BFSResult)
+     */
+    public static <V, E> BFSCache<V, E> of(GraphView<V, E> graph, int maxEntries, long maxBytes, boolean directionOptimizing) {
+        BFSCache<V, E> cache = new BFSCache<>(graph, maxEntries, maxBytes, directionOptimizing);
+        if (graph instanceof AdjacencyMapGraph) ((AdjacencyMapGraph<V, E>) graph).addListener(cache);
+        return cache;
+    }
+
+    /**
+     * Shortest path tree from center, searching only on a miss.
+     *
+     * @param center starting vertex of the search
+     * @return the search result, or null if center is not in the graph
+     */
+    public BFSResult<V, E> get(V center) {
+        BFSResult<V, E> tree = trees.get(center);
+        if (tree != null) {
+            hits++;
+            return tree;
+        }
+        misses++;
+        if (!compact().hasVertex(center)) return null;
+        tree = new BFSResult<>(compact, directionOptimizing).search(center);
+        trees.put(center, tree);
+        bytes += estimateBytes(tree);
+        // evict least recently used trees, never the one just added
+        Iterator<BFSResult<V, E>> eldest = trees.values().iterator();
+        while (trees.size() > 1 && (trees.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= estimateBytes(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+        return tree;
+    }
+
+    /**
+     * Compact copy of the graph as of its current version.
+     */
+    public CSRGraph<V, E> compact() {
+        long v = version(graph);
+        if (compact == null || v != compactVersion) {
+            compact = CSRGraph.of(graph);
+            compactVersion = v;
+            //trees kept across changes are on older copies: move them onto this one, or drop them if its ids differ
+            for (Iterator<Map.Entry<V, BFSResult<V, E>>> it = trees.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<V, BFSResult<V, E>> entry = it.next();
+                BFSResult<V, E> tree = entry.getValue();
+                if (tree.graph() == compact) continue;
+                bytes -= estimateBytes(tree);
+                if (compact.sharesIds(tree.graph())) {
+                    tree = tree.rebase(compact);
+                    entry.setValue(tree);
+                    bytes += estimateBytes(tree);
+                } else {
+                    it.remove();
+                    dropped++;
+                }
+            }
+        }
+        return compact;
+    }
+
+    private void removeIf(java.util.function.Predicate<BFSResult<V, E>> stale) {
+        for (Iterator<BFSResult<V, E>> it = trees.values().iterator(); it.hasNext(); ) {
+            BFSResult<V, E> tree = it.next();
+            if (stale.test(tree)) {
+                bytes -= estimateBytes(tree);
+                it.remove();
+                dropped++;
+            }
+        }
+    }
+
+    // distance of v in tree, or -1 if it is unreached or was not in the graph searched
+    private static <V, E> int distance(BFSResult<V, E> tree, V v) {
+        int id = tree.graph().vertexId(v);
+        return id < 0 ? -1 : tree.distances()[id];
+    }
+
+    public void vertexInserted(V v) {
+        //an isolated vertex changes no distance
+    }
+
+    public void edgeInserted(V u, V v, E e) {
+        removeIf(tree -> {
+            int du = distance(tree, u), dv = distance(tree, v);
+            return du >= 0 && (dv < 0 || du + 1 < dv);
+        });
+    }
+
+    public void edgeRemoved(V u, V v) {
+        removeIf(tree -> {
+            int from = tree.graph().vertexId(u), to = tree.graph().vertexId(v);
+            return from >= 0 && to >= 0 && tree.parents()[to] == from;
+        });
+    }
+
+    public void vertexRemoved(V v) {
+        removeIf(tree -> true);
+    }
+
+    /**
+     * Drops every cached tree and the compact copy.
+     */
+    public void invalidate() {
+        if (!trees.isEmpty() || compact != null) invalidations++;
+        trees.clear();
+        bytes = 0;
+        compact = null;
+        compactVersion = version(graph);
+    }
+
+    // immutable graphs never change, so only AdjacencyMapGraph has a meaningful version
+    private static long version(GraphView<?, ?> g) {
+        return g instanceof AdjacencyMapGraph ? ((AdjacencyMapGraph<?, ?>) g).version() : 0;
+    }
+
+    // parent, dist and order arrays plus object headers
+    private static long estimateBytes(BFSResult<?, ?> tree) {
+        return 3L * (16 + 4L * tree.graph().numVertices()) + 48;
+    }
+
+    public GraphView<V, E> graph() {
+        return graph;
+    }
+
+    public int size() {
+        return trees.size();
+    }
+
+    public long estimatedBytes() {
+        return bytes;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public long invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Trees dropped one at a time because a change could affect them.
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Fraction of lookups answered from the cache, or 0 before the first lookup.
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    public String toString() {
+        return "BFSCache: " + trees.size() + " tree(s), ~" + bytes / 1024 + " KiB, " + hits + " hit(s), " + misses
+                + " miss(es), " + evictions + " eviction(s), " + invalidations + " invalidation(s), " + dropped + " dropped";
+    }
+}
@@ -0,0 +1,330 @@
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Shortest path tree from a breadth-first search over a CSRGraph, kept as int arrays over
+ * the graph's dense vertex ids instead of as a Graph.
+ * parent[v] is the id of v's next vertex toward the source (-1 for the source and unreached
+ * vertices) and dist[v] is v's separation from the source (-1 if unreached).
+ * order holds the reached vertices in discovery order and doubles as the BFS queue, so a
+ * search allocates nothing; calling search() again reuses the arrays for a new source.
+ * Since BFS discovers vertices by nondecreasing distance, order is also bucketed by level:
+ * the vertices at distance d are order[levelStart[d] .. levelStart[d+1]), recorded as they are found.
+ * A direction-optimizing result expands a level top-down while its frontier is small, and bottom-up
+ * while it is large: every unvisited vertex scans its in-edges for a parent in a bitmap of the frontier
+ * and stops at the first one, which skips most of the edges into already-visited vertices once a hub
+ * actor's level has been reached. Distances and level buckets are the same either way; a vertex found
+ * bottom-up may get a different parent of the same level, and its level is in vertex id order.
+ *
+ * PS4
+ */
+public class BFSResult<V, E> {
+    static final int ALPHA = 14; //go bottom-up once the frontier's edges exceed 1/ALPHA of the unexplored edges
+    static final int BETA = 24; //go back top-down once the frontier has fewer than 1/BETA of the vertices
+
+    private final CSRGraph<V, E> graph;
+    private final int[] parent;
+    private final int[] dist;
+    private final int[] order;
+    private final IntList levelStart = new IntList(); //start of each distance level in order, then reached
+    private final long[] frontier; //bit per vertex of the level being expanded bottom-up, null if always top-down
+    private int source = -1;
+    private int reached;
+    private long scanned; //edges scanned by the last direction-optimizing search
+
+    /**
+     * Allocates the arrays for top-down searches over g; nothing is reached until search() is called.
+     *
+     * @param g graph to search on
+     */
+    public BFSResult(CSRGraph<V, E> g) {
+        this(g, false);
+    }
+
+    /**
+     * Allocates the arrays for searches over g; nothing is reached until search() is called.
+     *
+     * @param g                   graph to search on
+     * @param directionOptimizing whether to switch to bottom-up steps while the frontier is large
+     */
+    public BFSResult(CSRGraph<V, E> g, boolean directionOptimizing) {
+        this.graph = g;
+        int n = g.numVertices();
+        parent = new int[n];
+        dist = new int[n];
+        order = new int[n];
+        frontier = directionOptimizing ? new long[(n + 63) >>> 6] : null;
+        Arrays.fill(parent, -1);
+        Arrays.fill(dist, -1);
+    }
+
+    // result over g with the given arrays, which cover at least g's vertices
+    private BFSResult(CSRGraph<V, E> g, int[] parent, int[] dist, int[] order, IntList levelStart, int source, int reached, boolean directionOptimizing) {
+        this.graph = g;
+        this.parent = parent;
+        this.dist = dist;
+        this.order = order;
+        for (int i = 0; i < levelStart.size(); i++) this.levelStart.add(levelStart.get(i));
+        frontier = directionOptimizing ? new long[(g.numVertices() + 63) >>> 6] : null;
+        this.source = source;
+        this.reached = reached;
+    }
+
+    /**
+     * This result as a result over g, a copy patched from its graph (see CSRGraph.sharesIds) by changes
+     * that left every distance from the source the same; vertices new in g are unreached.
+     * The arrays are shared when g has no new vertices, so this result must not be searched again.
+     */
+    BFSResult<V, E> rebase(CSRGraph<V, E> g) {
+        if (!g.sharesIds(graph)) throw new IllegalArgumentException("graph does not keep the ids of " + graph.numVertices() + " vertices");
+        int n = g.numVertices(), n0 = graph.numVertices();
+        int[] p = parent, d = dist, o = order;
+        if (n > n0) {
+            p = Arrays.copyOf(parent, n);
+            d = Arrays.copyOf(dist, n);
+            o = Arrays.copyOf(order, n);
+            Arrays.fill(p, n0, n, -1);
+            Arrays.fill(d, n0, n, -1);
+        }
+        return new BFSResult<>(g, p, d, o, levelStart, source, reached, frontier != null);
+    }
+
+    /**
+     * Runs a BFS from source, replacing the previous result.
+     *
+     * @param source starting vertex of the search
+     * @return this result
+     */
+    public BFSResult<V, E> search(V source) {
+        int s = graph.vertexId(source);
+        if (s < 0) throw new IllegalArgumentException("vertex not in graph: " + source);
+        return search(s);
+    }
+
+    /**
+     * Runs a BFS from the vertex with id s, replacing the previous result.
+     */
+    public BFSResult<V, E> search(int s) {
+        long started = GraphMetrics.start();
+        // only the previously reached entries need resetting
+        for (int i = 0; i < reached; i++) {
+            parent[order[i]] = -1;
+            dist[order[i]] = -1;
+        }
+        IntBuffer offsets = graph.outOffsets(), targets = graph.outTargets();
+        source = s;
+        dist[s] = 0;
+        order[0] = s;
+        levelStart.clear();
+        levelStart.add(0);
+        if (frontier != null) {
+            int tail = searchBothWays(s);
+            levelStart.add(tail);
+            reached = tail;
+            GraphMetrics.bfs(started, tail, scanned);
+            return this;
+        }
+        int head = 0, tail = 1;
+        while (head < tail) {
+            int u = order[head++];
+            int d = dist[u] + 1;
+            for (int k = offsets.get(u), end = offsets.get(u + 1); k < end; k++) {
+                int v = targets.get(k);
+                if (dist[v] < 0) {
+                    if (d == levelStart.size()) levelStart.add(tail); //first vertex of a new level
+                    dist[v] = d;
+                    parent[v] = u;
+                    order[tail++] = v;
+                }
+            }
+        }
+        levelStart.add(tail);
+        reached = tail;
+        if (started != 0) {
+            long scanned = 0;
+            for (int i = 0; i < tail; i++) scanned += offsets.get(order[i] + 1) - offsets.get(order[i]);
+            GraphMetrics.bfs(started, tail, scanned);
+        }
+        return this;
+    }
+
+    // expands one level at a time from order[head .. levelEnd), choosing the direction per level by the
+    // edges the frontier would scan against those left unexplored; returns the number reached
+    private int searchBothWays(int s) {
+        int n = dist.length;
+        IntBuffer offsets = graph.outOffsets(), targets = graph.outTargets();
+        IntBuffer inOffsets = graph.inOffsets(), inTargets = graph.inTargets();
+        long frontierEdges = offsets.get(s + 1) - offsets.get(s); //out-edges of the level being expanded
+        long unexplored = offsets.get(n) - frontierEdges; //out-edges of vertices not reached yet
+        boolean bottomUp = false;
+        scanned = 0;
+        int head = 0, tail = 1;
+        for (int d = 1; head < tail; d++) {
+            int levelEnd = tail;
+            if (!bottomUp) bottomUp = frontierEdges > unexplored / ALPHA;
+            else bottomUp = levelEnd - head >= n / BETA;
+
+            if (bottomUp) {
+                for (int i = head; i < levelEnd; i++) frontier[order[i] >>> 6] |= 1L << order[i];
+                for (int v = 0; v < n; v++) {
+                    if (dist[v] >= 0) continue;
+                    //first in-neighbor in the frontier, if any
+                    int k = inOffsets.get(v), end = inOffsets.get(v + 1);
+                    while (k < end && (frontier[inTargets.get(k) >>> 6] & (1L << inTargets.get(k))) == 0) k++;
+                    scanned += Math.min(k + 1, end) - inOffsets.get(v);
+                    if (k < end) {
+                        dist[v] = d;
+                        parent[v] = inTargets.get(k);
+                        order[tail++] = v;
+                    }
+                }
+                for (int i = head; i < levelEnd; i++) frontier[order[i] >>> 6] = 0;
+            } else {
+                for (int i = head; i < levelEnd; i++) {
+                    int u = order[i];
+                    for (int k = offsets.get(u), end = offsets.get(u + 1); k < end; k++) {
+                        int v = targets.get(k);
+                        if (dist[v] < 0) {
+                            dist[v] = d;
+                            parent[v] = u;
+                            order[tail++] = v;
+                        }
+                    }
+                    scanned += offsets.get(u + 1) - offsets.get(u);
+                }
+            }
+
+            frontierEdges = 0;
+            for (int i = levelEnd; i < tail; i++) frontierEdges += offsets.get(order[i] + 1) - offsets.get(order[i]);
+            unexplored -= frontierEdges;
+            if (tail > levelEnd) levelStart.add(levelEnd);
+            head = levelEnd;
+        }
+        return tail;
+    }
+
+    public CSRGraph<V, E> graph() {
+        return graph;
+    }
+
+    public V source() {
+        return source < 0 ? null : graph.vertex(source);
+    }
+
+    /**
+     * Number of vertices reached, including the source.
+     */
+    public int numReached() {
+        return reached;
+    }
+
+    /**
+     * Whether v has a finite separation from the source.
+     */
+    public boolean reached(V v) {
+        int id = graph.vertexId(v);
+        return id >= 0 && dist[id] >= 0;
+    }
+
+    /**
+     * Separation of v from the source, or -1 if v is unreached or not in the graph.
+     */
+    public int distance(V v) {
+        int id = graph.vertexId(v);
+        return id < 0 ? -1 : dist[id];
+    }
+
+    /**
+     * Largest separation of a reached vertex from the source.
+     */
+    public int eccentricity() {
+        return levelStart.size() - 2;
+    }
+
+    /**
+     * Number of vertices at separation d from the source.
+     */
+    public int levelSize(int d) {
+        if (d < 0 || d > eccentricity()) return 0;
+        return levelStart.get(d + 1) - levelStart.get(d);
+    }
+
+    /**
+     * Vertices whose separation from the source is between low and high, in order of separation,
+     * by concatenating the level buckets; no paths are built and nothing is sorted.
+     *
+     * @param low  smallest separation to include
+     * @param high largest separation to include
+     * @return the vertices, sorted by separation
+     */
+    public List<V> verticesWithin(int low, int high) {
+        low = Math.max(low, 0);
+        high = Math.min(high, eccentricity());
+        List<V> within = new ArrayList<>();
+        if (low > high) return within;
+        for (int i = levelStart.get(low), end = levelStart.get(high + 1); i < end; i++) within.add(graph.vertex(order[i]));
+        return within;
+    }
+
+    /**
+     * Path from v back to the source, like GraphLibrary.getPath on the path tree.
+     *
+     * @param v vertex to construct the path for
+     * @return list of vertices in the path, in order from v back to the source; empty if v is unreached
+     */
+    public List<V> getPath(V v) {
+        int id = graph.vertexId(v);
+        if (id < 0 || dist[id] < 0) return new ArrayList<>();
+        List<V> path = new ArrayList<>(dist[id] + 1);
+        for (int u = id; u >= 0; u = parent[u]) path.add(graph.vertex(u));
+        return path;
+    }
+
+    /**
+     * Average separation of the reached vertices from the source, as GraphLibrary.averageSeparation.
+     */
+    public double averageSeparation() {
+        long total = 0;
+        for (int d = 1; d <= eccentricity(); d++) total += (long) d * levelSize(d);
+        return total / (double) (reached - 1);
+    }
+
+    /**
+     * Distance histogram, reached count, mean and eccentricity, from the level sizes of this search.
+     */
+    public SeparationStats separationStats() {
+        int[] histogram = new int[eccentricity() + 1];
+        for (int d = 0; d < histogram.length; d++) histogram[d] = levelSize(d);
+        return new SeparationStats(histogram);
+    }
+
+    /**
+     * Vertices of the graph that the search did not reach, as GraphLibrary.missingVertices.
+     */
+    public Set<V> missingVertices() {
+        Set<V> missing = new HashSet<>();
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] < 0) missing.add(graph.vertex(v));
+        }
+        return missing;
+    }
+
+    /**
+     * Builds the path tree as a Graph with an edge from each vertex to its parent, as GraphLibrary.bfs returns.
+     */
+    public Graph<V, E> toGraph() {
+        Graph<V, E> tree = new AdjacencyMapGraph<>();
+        for (int i = 0; i < reached; i++) tree.insertVertex(graph.vertex(order[i]));
+        for (int i = 1; i < reached; i++) {
+            int v = order[i], p = parent[v];
+            tree.insertDirected(graph.vertex(v), graph.vertex(p), graph.edgeLabel(p, v));
+        }
+        return tree;
+    }
+
+    // int-level views for the other algorithms in GraphLibrary; callers must not modify them
+    int sourceId() { return source; }
+    int[] parents() { return parent; }
+    int[] distances() { return dist; }
+    int[] order() { return order; }
+}
@@ -7,12 +7,25 @@
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class BaconGame {
-    Graph<String, List<String>> movieActors = new AdjacencyMapGraph<>(); //initializing graph containing all vertices
-    List<String> sharedMovie; //list containing all actors who acted in a specific movie
-    String center; //center of the universe
+    static final boolean DIRECTION_OPTIMIZING = Boolean.getBoolean("bacon.bfs.directionOptimizing"); //bottom-up steps for large frontiers, with -Dbacon.bfs.directionOptimizing=true
+    GraphView<Integer, List<String>> movieActors = new AdjacencyMapGraph<>(); //initializing graph containing all vertices, which are ids of names in actorNames
+    StringPool actorNames = new StringPool(); //names of the vertices of movieActors, decoded only for output
+    BFSCache<Integer, List<String>> pathTrees = pathTrees(movieActors); //BFS trees by center, dropped when movieActors changes
+    ComponentIndex<Integer, List<String>> components = ComponentIndex.of(movieActors); //connected components, kept up to date as movieActors changes
+    DegreeIndex<Integer, List<String>> degrees = DegreeIndex.of(movieActors); //actors bucketed by in-degree, kept up to date as movieActors changes
+    CastIndex castIndex; //bipartite actor-movie index the graph was built from
+    DeltaIngest delta; //applies added and removed movie-actor rows to movieActors, made on first use
+    ClosenessRanking<Integer, List<String>> ranking; //average separation of the actors connected to the center, for c
+    ApproximateCloseness<Integer, List<String>> estimates; //estimated average separations from sampled pivots, for c with pivots
+    BaconQueryService<Integer, List<String>> queries; //thread-safe queries on a snapshot of movieActors, for concurrent users
+    String buildReport; //timings of the last load
+    Integer center; //vertex of the center of the universe
     Boolean gameOn = true; //boolean to keep track of game progress
 
     /**
@@ -35,77 +48,182 @@ public class BaconGame {
     /**
 
      Reads in data from three separate files containing information about actors and movies,
-     creates three hashmaps, and uses the data to create a graph representing the relationships
-     between the actors and movies. Returns the graph as a Graph object.
+     streaming them once into a bipartite CastIndex, and uses CoStarBuilder to create a graph
+     representing the relationships between the actors and movies.
+     Returns the graph as a Graph object, whose vertices are the ids of the actors' names in actorNames.
      @param movieActors name of the file containing information about actors
      @param movieNames name of the file containing information about movies
      @param actorID name of the file containing information about the relationships
      @return a Graph object representing the relationships between the actors
      @throws Exception if there is an error reading in the data from the input files
      */
-    public Graph<String, List<String>> baconReader(String movieActors, String movieNames, String actorID) throws Exception {
-        //Creating hashmaps for each file
-        HashMap<String, String> movieID_Name = new HashMap<>(); //key = movie_ID :value = name of movie
-        HashMap<String, String> actorID_Name = new HashMap<>(); //key =  actor_ID:value = name of actor
-        HashMap<String, List<String>> movieID_ActorID = new HashMap<>(); //key = movie ID:value = actor ID
-
-        // file reading - actors details
-        List<String> actor_List = loadFileToString(movieActors);
-        for (String string : actor_List) {
-            String[] splitstring = string.split("\\|");
-            actorID_Name.put(splitstring[0], splitstring[1]);
+    public Graph<Integer, List<String>> baconReader(String movieActors, String movieNames, String actorID) throws Exception {
+        //start from an empty graph, so reading again does not keep edges or labels from the last read
+        if (this.movieActors.numVertices() > 0 || !(this.movieActors instanceof AdjacencyMapGraph)) useGraph(new AdjacencyMapGraph<>());
+        Graph<Integer, List<String>> graph = (AdjacencyMapGraph<Integer, List<String>>) this.movieActors;
+        //streaming all three files once into the bipartite actor-movie index
+        long start = System.nanoTime();
+        castIndex = CastIndex.load(movieActors, movieNames, actorID);
+        actorNames = castIndex.actorNames();
+        GraphMetrics.phase("parse", System.nanoTime() - start - castIndex.indexNanos());
+        GraphMetrics.phase("index", castIndex.indexNanos());
+        //create a graph in which vertices are names of actors and edges are movie they share
+        CoStarBuilder edges = new CoStarBuilder(castIndex);
+        GraphMetrics.phase("build", edges.buildNanos());
+        start = System.nanoTime();
+        edges.insertInto(graph);
+        GraphMetrics.phase("insert", System.nanoTime() - start);
+        buildReport = "indexed " + castIndex.numRows() + " movie-actor rows in " + castIndex.indexNanos() / 1000000 + " ms; "
+                + "built " + edges.numEdges() + " co-star edges in " + edges.buildNanos() / 1000000 + " ms";
+        return graph;
+    }
+
+    /**
+     * Opens the graph and its CastIndex from a binary snapshot if there is a valid one built from
+     * the text files as they are now, and otherwise reads the three text files with baconReader and
+     * writes a fresh snapshot for the next start.
+     * A graph opened from a snapshot is compact; delta() copies it into a mutable graph on first use.
+     *
+     * @param actors name of the file containing information about actors
+     * @param movies name of the file containing information about movies
+     * @param movieActors name of the file containing information about the relationships
+     * @param snapshot name of the snapshot file to open or write
+     * @return a Graph object representing the relationships between the actors
+     * @throws Exception if there is an error reading in the data from the input files
+     */
+    public GraphView<Integer, List<String>> loadGraph(String actors, String movies, String movieActors, String snapshot) throws Exception {
+        Path file = Paths.get(snapshot);
+        List<Path> files = List.of(Paths.get(actors), Paths.get(movies), Paths.get(movieActors));
+        String fallback;
+        try {
+            long start = System.nanoTime();
+            GraphSnapshot opened = GraphSnapshot.read(file, files);
+            useGraph(opened.graph());
+            castIndex = opened.castIndex();
+            actorNames = opened.actorNames();
+            GraphMetrics.phase("snapshot read", System.nanoTime() - start);
+            buildReport = "opened snapshot " + snapshot + " in " + (System.nanoTime() - start) / 1000000 + " ms";
+            return this.movieActors;
+        } catch (IOException e) {
+            //missing, from another format version, corrupt or stale: fall back to the text files
+            fallback = e instanceof java.nio.file.NoSuchFileException ? "no snapshot found" : e.getMessage();
         }
-        // file reading - movie details
-        List<String> movie_List = loadFileToString(movieNames);
-        for (String movie : movie_List) {
-            String[] movieSplit = movie.split("\\|");
-            movieID_Name.put(movieSplit[0], movieSplit[1]);
-            movieID_ActorID.put(movieSplit[0], new ArrayList<String>());
+        //fingerprint the files before reading them, so a change while reading makes the snapshot stale
+        List<GraphSnapshot.Source> sources = GraphSnapshot.sources(files);
+        baconReader(actors, movies, movieActors);
+        try {
+            long start = System.nanoTime();
+            GraphSnapshot.write(pathTrees.compact(), castIndex, sources, file);
+            GraphMetrics.phase("snapshot write", System.nanoTime() - start);
+            buildReport += "; wrote snapshot " + snapshot + " (" + fallback + ")";
+        } catch (IOException e) {
+            buildReport += "; could not write snapshot " + snapshot + ": " + e.getMessage();
         }
+        return this.movieActors;
+    }
 
-        // file reading - movie ID and actor ID
-        List<String> list = loadFileToString(actorID);
-        List<String> listActors = new ArrayList<String>();
-        for (String actor : list) {
-            String[] splitActors = actor.split("\\|");
-            listActors = movieID_ActorID.get(splitActors[0]);
-            listActors.add(splitActors[1]); // adds actor to list of actors
-            movieID_ActorID.put(splitActors[0], listActors); // updates hashmap
-        }
+    /**
+     * Switches the game to another graph, rebuilding the caches and indexes derived from it.
+     *
+     * @param graph the new graph of actors (as ids of their names in actorNames) and shared movies
+     */
+    public void useGraph(GraphView<Integer, List<String>> graph) {
+        movieActors = graph;
+        pathTrees = pathTrees(graph);
+        components = ComponentIndex.of(graph);
+        degrees = DegreeIndex.of(graph);
+        ranking = null;
+        estimates = null;
+        queries = null;
+        delta = null;
+    }
 
-        for (String actor : actorID_Name.keySet()) {
-            this.movieActors.insertVertex(actorID_Name.get(actor));
-        }
-        //create a graph in which vertices are names of actors and edges are movie they share
-        for (String a : movieID_ActorID.keySet()) {
-            String movieName = movieID_Name.get(a);
-            List<String> actors = movieID_ActorID.get(a);
-            //loop through list of actors
-            for (int i = 0; i < actors.size() - 1; i++) {
-                for (int j = 0; j < actors.size(); j++) {
-                    String actorI = actorID_Name.get(actors.get(i));
-                    String actorJ = actorID_Name.get(actors.get(j));
-                    //checking if they are different
-                    if (!Objects.equals(actorJ, actorI)) {
-                        //check if there is no edge between actors
-                        if (!this.movieActors.hasEdge(actorJ, actorI)) {
-                            //initializing shared movie to be null if no edge exists
-                            sharedMovie = new ArrayList<String>();
-                        } else {
-                            //setting shared movie to be the list of movies if edge exists
-                            sharedMovie = this.movieActors.getLabel(actorJ, actorI);
-                        }
-                        //adding current movie
-                        if (!sharedMovie.contains(movieName)) {
-                            sharedMovie.add(movieName);
-                        }
-                        //updating in graph
-                        this.movieActors.insertUndirected(actorJ, actorI, sharedMovie);
-                    }
-                }
+    // path tree cache for graph, reported by GraphMetrics
+    private static BFSCache<Integer, List<String>> pathTrees(GraphView<Integer, List<String>> graph) {
+        BFSCache<Integer, List<String>> cache = BFSCache.of(graph, 64, 256L << 20, DIRECTION_OPTIMIZING);
+        GraphMetrics.watch(cache);
+        return cache;
+    }
+
+    /**
+     * Incremental updates to the graph read by baconReader or loadGraph: added and removed movie-actor
+     * rows change only the edges of the casts they touch, and the indexes and cached trees follow.
+     * A compact graph (e.g. opened from a snapshot) is first copied into a mutable one.
+     *
+     * @return the delta ingester for the current graph
+     * @throws IllegalStateException if there is no CastIndex for the graph (e.g. it came from useGraph)
+     */
+    public DeltaIngest delta() {
+        if (delta == null) {
+            if (castIndex == null) {
+                throw new IllegalStateException("the graph was not read from the text files or a snapshot, so it cannot take deltas");
             }
+            if (!(movieActors instanceof AdjacencyMapGraph)) useGraph(CSRGraph.of(movieActors).toAdjacencyMapGraph());
+            delta = new DeltaIngest(castIndex, (AdjacencyMapGraph<Integer, List<String>>) movieActors);
         }
-        return this.movieActors;
+        return delta;
+    }
+
+    /**
+     * Thread-safe query service for many concurrent users, each with their own center.
+     * A new snapshot of movieActors is published whenever it has changed since the last call.
+     *
+     * @return the service
+     */
+    public BaconQueryService<Integer, List<String>> queryService() {
+        CSRGraph<Integer, List<String>> snapshot = pathTrees.compact();
+        if (queries == null) queries = BaconQueryService.of(snapshot);
+        else if (queries.current().graph() != snapshot) queries.publish(snapshot);
+        return queries;
+    }
+
+    /**
+     * Reads in the three files into the bipartite actor-movie index only, without building
+     * the co-star cliques, for data sets too large for the actor-only graph.
+     *
+     * @param actors name of the file containing information about actors
+     * @param movies name of the file containing information about movies
+     * @param movieActors name of the file containing information about the relationships
+     * @return the bipartite index
+     * @throws Exception if there is an error reading in the data from the input files
+     */
+    public CastIndex castReader(String actors, String movies, String movieActors) throws Exception {
+        castIndex = CastIndex.load(actors, movies, movieActors);
+        delta = null;
+        buildReport = "indexed " + castIndex.numRows() + " movie-actor rows in " + castIndex.indexNanos() / 1000000 + " ms (bipartite only)";
+        return castIndex;
+    }
+
+    /**
+     * BFS from an actor over a compact copy of the graph, reusing the cached tree for a repeated center.
+     *
+     * @param source vertex of the actor to search from
+     * @return the shortest path tree as parent/distance arrays, or null if source is not in the graph
+     */
+    public BFSResult<Integer, List<String>> pathTree(Integer source) {
+        return pathTrees.get(source);
+    }
+
+    /**
+     * Vertex of the named actor, or -1 if they are not in the graph.
+     */
+    public int actor(String name) {
+        int id = actorNames.find(name);
+        return id >= 0 && movieActors.hasVertex(id) ? id : -1;
+    }
+
+    /**
+     * Name of an actor's vertex.
+     */
+    public String name(int actor) {
+        return actorNames.get(actor);
+    }
+
+    // names of actor vertices, in the same order, for output
+    private List<String> names(Collection<Integer> actors) {
+        List<String> names = new ArrayList<>(actors.size());
+        for (int a : actors) names.add(actorNames.get(a));
+        return names;
     }
 
     /**
@@ -115,17 +233,28 @@ public class BaconGame {
      */
 
     public void commandKey() throws Exception {
-        center = "Kevin Bacon";
-        Graph<String, List<String>> graph = GraphLibrary.bfs(movieActors, center); //subgraph
+        center = actor("Kevin Bacon");
+        //data without Kevin Bacon starts from the best-connected actor instead
+        if (center < 0) {
+            List<Integer> byDegree = degrees.verticesByInDegree(0, Integer.MAX_VALUE);
+            if (byDegree.isEmpty()) {
+                System.out.println("error the graph has no actors");
+                return;
+            }
+            center = byDegree.get(0);
+            System.out.println("Kevin Bacon is not in the graph; " + name(center) + " is the center of the acting universe");
+        }
 
+        //one scanner for the whole game, so lines it has buffered are not lost between commands
+        Scanner scanner = new Scanner(System.in);
         while (gameOn) {
-            //initializing the scanner
-            Scanner scanner = new Scanner(System.in);
             System.out.println("What command would you like ?");
+            if (!scanner.hasNextLine()) break; //end of input
             String userInput = scanner.nextLine();
 
             //assigning the first section of the word as command
             char command = userInput.charAt(0);
+            long started = GraphMetrics.start(), allocated = GraphMetrics.allocated(); //per-command latency, if metrics are on
 
             // quits the system
             if (command == 'q') {
@@ -137,16 +266,16 @@ public class BaconGame {
                 String name = userInput.substring(2);
 
                 //check if actor is in the map
-                if (movieActors.hasVertex(name)) {
+                int actor = actor(name);
+                if (actor >= 0) {
                     System.out.println("u " + name);
-                    center = name;
+                    center = actor;
 
                     //find the number of nodes in tree from bfs
-                    int size = 0;
-                    Graph<String, List<String>> graph1 = GraphLibrary.bfs(movieActors, center);
-                    size = graph1.numVertices();
-                    double separation = GraphLibrary.averageSeparation(graph1, center);
-                    System.out.println(center + " is now the center of the acting universe, connected to " + size + " actor(s) with average separation " + GraphLibrary.averageSeparation(graph1, center));
+                    int size = components.componentSize(center);
+                    //mean separation from the per-level counts of one search
+                    double separation = pathTree(center).separationStats().mean();
+                    System.out.println(name + " is now the center of the acting universe, connected to " + size + " actor(s) with average separation " + separation);
                 } else {
                     System.out.println("Actor not in map, try one who is");
                 }
@@ -155,29 +284,25 @@ public class BaconGame {
             // find path from an actor to current center of the universe
             if (command == 'p') {
                 String name = userInput.substring(2);
-                Graph<String, List<String>> subgraph = GraphLibrary.bfs(movieActors, center);
-                Set<String> missingVertex = GraphLibrary.missingVertices(movieActors,subgraph);
 
-                if(missingVertex.contains(name)) {
-                    System.out.println("There is no path");
+                int actor = actor(name);
+                if (actor < 0) {
+                    System.out.println("Actor not in graph, try one who is");
                 }
-                else{
-                    if (!movieActors.hasVertex(name)) {
-                        System.out.println("Actor not in graph, try one who is");
+                else {
+                    //searching from both ends until they meet, so only their neighborhoods are visited
+                    List<Integer> path = components.connected(actor, center) ? GraphLibrary.shortestPath(movieActors, actor, center) : new ArrayList<>();
+                    if (path.isEmpty()) {
+                        System.out.println("There is no path");
                     }
-
                     else {
-                        //shortest graph
-                        Graph<String, List<String>> graph1 = GraphLibrary.bfs(movieActors, center);
-                        //acquiring the shortest path and storing it in a list
-                        List<String> path = GraphLibrary.getPath(graph1, name);
-                        System.out.println(center + "game >");
+                        List<List<String>> sharedMovies = GraphLibrary.pathLabels(movieActors, path);
+                        System.out.println(name(center) + "game >");
                         System.out.println(name + "'s number is " + (path.size() - 1));
                         int count = 0;
 
                         while (count < path.size() - 1) {
-                            List<String> sharedMovie = movieActors.getLabel(path.get(count), path.get(count + 1));
-                            System.out.println(path.get(count) + " appeared in " + sharedMovie + " with " + path.get(count + 1));
+                            System.out.println(name(path.get(count)) + " appeared in " + sharedMovies.get(count) + " with " + name(path.get(count + 1)));
                             count++;
                         }
                     }
@@ -190,21 +315,9 @@ public class BaconGame {
                 int low = Integer.parseInt(userInput.substring(2, 3));
                 int high = Integer.parseInt(userInput.substring(4));
 
-                //create an array list containing names of actors
-                List<String> actors = new ArrayList<>();
-                HashMap<String, Integer> actorSeparation = new HashMap<String, Integer>(); //stores each vertex's separation
-                Graph<String, List<String>> subgraph = GraphLibrary.bfs(movieActors, center);
-                //looping through vertices in subgraph then adding them to the list of actors and hashmap
-                for (String vertex : subgraph.vertices()) {
-                    int pathSize = GraphLibrary.getPath(subgraph, vertex).size() - 1; // size of list from get path
-                    if (low <= pathSize && pathSize <= high) {
-                        actors.add(vertex);
-                        actorSeparation.put(vertex, pathSize);
-                    }
-                }
-                //sorting vertices by separation value
-                actors.sort((String s1, String s2) -> actorSeparation.get(s1) - actorSeparation.get(s2));
-                System.out.println(actors);
+                //actors are bucketed by separation as the BFS finds them, so the range is just those buckets in order
+                List<Integer> actors = pathTree(center).verticesWithin(low, high);
+                System.out.println(names(actors));
             }
 
             // list actors sorted by degree, with degree between low and high
@@ -217,64 +330,48 @@ public class BaconGame {
                 if (low > high) {
                     System.out.println("Order the numbers well and try again.");
                 } else {
-                    //list to store vertices within range of low and high
-                    List<String> qualifiedVertices = new ArrayList<>();
-
-                    //looping through all vertices in main graph
-                    for (String vertices : GraphLibrary.verticesByInDegree(movieActors)) {
-                        //checks if vertex separation is within range
-                        if (movieActors.inDegree(vertices) <= high && movieActors.inDegree(vertices) >= low) {
-                            //adds vertex to the list if qualified
-                            qualifiedVertices.add(vertices);
-                        }
-                    }
+                    //vertices within range of low and high, read from the in-degree buckets largest first
+                    List<Integer> qualifiedVertices = degrees.verticesByInDegree(low, high);
 
-                    System.out.println("Command d output: " + qualifiedVertices);
+                    System.out.println("Command d output: " + names(qualifiedVertices));
                 }
             }
 
             // list actors with infinite separation from the current center
             if(command == 'i'){
-                Graph<String, List<String>> subgraph = GraphLibrary.bfs(movieActors, center);
-                Set<String> missingVertices = GraphLibrary.missingVertices(movieActors,subgraph);
-                System.out.println(" The following are the missing vertices " + missingVertices);
+                Set<Integer> missingVertices = components.disconnectedFrom(center);
+                System.out.println(" The following are the missing vertices " + names(missingVertices));
             }
 
             // list top (positive number) or bottom (negative) <#> centers of the universe, sorted by average separation
             if (command == 'c') {
-                //acquiring the number inputted by the user
-                String string = userInput.substring(2);
-                int num = Integer.parseInt(string);
-                //array list to keep track of
-                List<String> averageList = new ArrayList<String>();
-                Graph<String, List<String>> subgraph = GraphLibrary.bfs(movieActors, center);
-                Set<String> missing = GraphLibrary.missingVertices(movieActors, subgraph);
-
-                //loop through each vertex to make sure it's connected to the centre
-
-                //compare the average separations
-                averageList.sort((String s1, String s2) -> (int) GraphLibrary.averageSeparation(GraphLibrary.bfs(movieActors, s1), s1) - (int) GraphLibrary.averageSeparation(GraphLibrary.bfs(movieActors, s2), s2));
-                ArrayList<String> orderedList = new ArrayList<>(); //vertices in sorted list within the range
-                if (num > 0) {
-                    if (num > averageList.size()) {
-                        orderedList.addAll(averageList);
-                    } else {
-                        for (int count = 0; count < num; count++) {
-                            orderedList.add(averageList.get(count));
-                        }
+                //acquiring the number inputted by the user, and optionally pivots and a seed for an estimated ranking
+                String[] args = userInput.substring(2).trim().split("\\s+");
+                int num = Integer.parseInt(args[0]);
+                int pivots = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+                long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+                List<Integer> orderedList;
+                if (pivots > 0) {
+                    //estimating from the pivots once, then ranking exactly only the actors the estimates cannot rule out
+                    if (estimates == null || estimates.graph() != pathTrees.compact() || !center.equals(estimates.center())
+                            || estimates.pivots() != Math.min(pivots, components.componentSize(center)) || estimates.seed() != seed) {
+                        estimates = ApproximateCloseness.estimate(pathTrees.compact(), center, pivots, seed);
                     }
+                    int threads = Runtime.getRuntime().availableProcessors();
+                    orderedList = num > 0 ? estimates.confirmTop(num, ApproximateCloseness.Z, threads).top(num)
+                            : estimates.confirmBottom(Math.abs(num), ApproximateCloseness.Z, threads).bottom(Math.abs(num));
                 } else {
-                    if (Math.abs(num) > averageList.size()) {
-                        orderedList.addAll(averageList);
-                    } else {
-                        for (int count = averageList.size() - 1; count < Math.abs(num); count--) {
-                            orderedList.add(averageList.get(count));
-                        }
+                    //ranking every actor connected to the centre once, reused until the center or graph changes
+                    if (ranking == null || ranking.graph() != pathTrees.compact() || !center.equals(ranking.center())) {
+                        ranking = ClosenessRanking.compute(pathTrees.compact(), center, Runtime.getRuntime().availableProcessors(), true);
                     }
+                    //top centers for a positive number, bottom centers for a negative one
+                    orderedList = num > 0 ? ranking.top(num) : ranking.bottom(Math.abs(num));
                 }
 
-                System.out.println(orderedList);
+                System.out.println(names(orderedList));
             }
+            if (started != 0) GraphMetrics.command(String.valueOf(command), started, allocated);
         }
     }
     public static void main(String[] args) throws Exception {
@@ -314,11 +411,15 @@ public class BaconGame {
         Set <String> missingset  = GraphLibrary.missingVertices(relationships, pathTree);
         System.out.println("Vertices in the missing set: " + missingset);
 
+        //testing the compact graph gives the same path
+        GraphView<String, String> compact = new CSRGraph<>(relationships);
+        System.out.println("Path from Charlie to Alice (compact graph): " + GraphLibrary.getPath(GraphLibrary.bfs(compact, "Alice"), "Charlie"));
+
 
         //Kevin Bacon Game Test
         System.out.println("*****************");
         System.out.println("KEVIN BACON GAME");
-        System.out.println("Commands:\n\tc <#>: list top (positive number) or bottom (negative) <#> centers of the universe, sorted by average separation\n\t" +
+        System.out.println("Commands:\n\tc <#> [pivots [seed]]: list top (positive number) or bottom (negative) <#> centers of the universe, sorted by average separation;\n\t\twith pivots, only actors whose estimate from that many sampled searches is close to the leaders are ranked exactly\n\t" +
                 "d <low> <high>: list actors sorted by degree, with degree between low and high\n\t" +
                 "i: list actors with infinite separation from the current center\n\t" +
                 "p <name>: find path from <name> to current center of the universe\n\t" +
@@ -331,10 +432,11 @@ public class BaconGame {
 //        String movieFile = "PS4/moviesTest.txt";
         String movieActorFile = "PS4/movie-actors.txt";
 //        String movieActorFile = "PS4/movie-actorsTest.txt";
-        String center = "Kevin Bacon";
         BaconGame game = new BaconGame();
-        Graph<String, List<String>> movieactorgraph = game.baconReader(actorFile, movieFile, movieActorFile);
-        Graph<String, List<String>> moviebfsgraph = GraphLibrary.bfs(movieactorgraph,center);
+        String snapshotFile = "PS4/bacon.snapshot";
+        GraphMetrics.install(); //JMX bean, plus a periodic dump if -Dbacon.metrics.dump is set
+        game.loadGraph(actorFile, movieFile, movieActorFile, snapshotFile);
+        System.out.println("Loaded graph: " + game.buildReport);
 
         game.commandKey();
     }
@@ -0,0 +1,141 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Loopback load generator for BaconServer: opens a number of connections, each on its own virtual
+ * thread, and sends a mix of u/p/s commands for random actors, keeping up to depth commands
+ * pipelined per connection. The latency of each command is the time from just before writing it
+ * to reading the empty line that ends its response; p50, p99 and throughput are printed at the end.
+ *
+ * PS4
+ */
+public class BaconLoadGenerator {
+    private final int port;
+    private final List<String> actors;
+
+    /**
+     * @param port   port of a BaconServer on the loopback interface
+     * @param actors names to build commands from
+     */
+    public BaconLoadGenerator(int port, List<String> actors) {
+        this.port = port;
+        this.actors = actors;
+    }
+
+    /**
+     * Fetches every actor's name from the server with a d command over all degrees.
+     */
+    public static List<String> fetchActors(int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("d 0 " + Integer.MAX_VALUE + "\n");
+            out.flush();
+            List<String> names = new ArrayList<>();
+            for (String line; (line = in.readLine()) != null && !line.isEmpty(); ) names.add(line);
+            return names;
+        }
+    }
+
+    /**
+     * Runs the load and returns the latency of every command in nanoseconds, sorted.
+     *
+     * @param connections number of concurrent connections
+     * @param requests    commands sent on each connection
+     * @param depth       most commands awaiting a response on one connection
+     * @param seed        seed for choosing commands
+     */
+    public long[] run(int connections, int requests, int depth, long seed) throws InterruptedException {
+        long[] latencies = new long[connections * requests];
+        Thread[] threads = new Thread[connections];
+        for (int c = 0; c < connections; c++) {
+            int first = c * requests;
+            Random random = new Random(seed + c);
+            threads[c] = Thread.ofVirtual().start(() -> {
+                try {
+                    connection(random, requests, depth, latencies, first);
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException("load connection failed", e);
+                }
+            });
+        }
+        for (Thread t : threads) t.join();
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    // one connection: this thread writes commands while a reader thread times the responses
+    private void connection(Random random, int requests, int depth, long[] latencies, int first) throws IOException, InterruptedException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            Semaphore window = new Semaphore(depth);
+            BlockingQueue<Long> sent = new ArrayBlockingQueue<>(depth);
+            Thread reader = Thread.ofVirtual().start(() -> {
+                try {
+                    for (int r = 0; r < requests; r++) {
+                        String line;
+                        while ((line = in.readLine()) != null && !line.isEmpty()) ;
+                        if (line == null) throw new EOFException("server closed the connection");
+                        long stamp = sent.take();
+                        latencies[first + r] = System.nanoTime() - stamp;
+                        window.release();
+                    }
+                } catch (IOException | InterruptedException e) {
+                    //unblock the writer so the connection can be torn down
+                    window.release(requests);
+                    throw new IllegalStateException("load connection failed", e);
+                }
+            });
+            for (int r = 0; r < requests; r++) {
+                window.acquire();
+                //stamp before writing, so time spent in our own buffer and in the flush is counted too
+                sent.put(System.nanoTime());
+                out.write(command(random));
+                out.flush();
+            }
+            reader.join();
+        }
+    }
+
+    // mostly paths, with some recentering and separation ranges
+    private String command(Random random) {
+        String actor = actors.get(random.nextInt(actors.size()));
+        int kind = random.nextInt(10);
+        if (kind < 7) return "p " + actor + "\n";
+        if (kind < 9) return "u " + actor + "\n";
+        return "s 1 2\n";
+    }
+
+    /**
+     * Value at quantile q of sorted latencies.
+     */
+    public static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    /**
+     * Usage: BaconLoadGenerator port [connections [requests [depth]]]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        BaconLoadGenerator load = new BaconLoadGenerator(port, fetchActors(port));
+        long start = System.nanoTime();
+        long[] latencies = load.run(connections, requests, depth, 1);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d commands on %d connection(s), depth %d: %.0f/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                latencies.length, connections, depth, latencies.length / seconds,
+                percentile(latencies, 0.5) / 1e6, percentile(latencies, 0.99) / 1e6, latencies[latencies.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming loader for the pipe-delimited Bacon game files:
+ * actors ("actorID|name"), movies ("movieID|name") and movie-actors ("movieID|actorID").
+ * Each file is memory-mapped and parsed byte by byte in a single pass. Ids are parsed
+ * as ints without regex or per-line Strings, and every record is handed to a Sink as soon as
+ * it is read, so no whole-file lists are kept. Names are passed as raw UTF-8 bytes, so a sink
+ * that interns them into a StringPool never creates a String; by default they are decoded.
+ *
+ * PS4
+ */
+public class BaconLoader {
+    // files larger than this are mapped in windows that are realigned to line starts
+    private static final int WINDOW = 1 << 30;
+
+    /**
+     * Receives the records of the three files in file order:
+     * all actors, then all movies, then all movie-actor rows.
+     */
+    public interface Sink {
+        void actor(int actorId, String name);
+
+        void movie(int movieId, String name);
+
+        void cast(int movieId, int actorId);
+
+        /**
+         * An actor whose UTF-8 name is name[offset .. offset+length); the array is reused after the call.
+         */
+        default void actor(int actorId, byte[] name, int offset, int length) {
+            actor(actorId, new String(name, offset, length, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * A movie whose UTF-8 title is name[offset .. offset+length); the array is reused after the call.
+         */
+        default void movie(int movieId, byte[] name, int offset, int length) {
+            movie(movieId, new String(name, offset, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads the three files into a sink.
+     *
+     * @param actorFile      name of the file containing actor ids and names
+     * @param movieFile      name of the file containing movie ids and names
+     * @param movieActorFile name of the file containing the movie-actor relationships
+     * @param sink           receiver of the parsed records
+     * @throws IOException if a file cannot be read or a line is malformed
+     */
+    public static void load(String actorFile, String movieFile, String movieActorFile, Sink sink) throws IOException {
+        parse(actorFile, false, sink::actor, null);
+        parse(movieFile, false, sink::movie, null);
+        parse(movieActorFile, true, null, sink::cast);
+    }
+
+    private interface NamedRecord {
+        void accept(int id, byte[] name, int offset, int length);
+    }
+
+    private interface IdPair {
+        void accept(int first, int second);
+    }
+
+    private static void parse(String filename, boolean pairs, NamedRecord named, IdPair idPair) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            byte[] scratch = new byte[256];
+            while (position < size) {
+                int length = (int) Math.min(WINDOW, size - position);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == size;
+                int i = 0, lineStart = 0;
+                while (i < length) {
+                    // find the end of this line; an unterminated line is completed by the next window
+                    int end = i;
+                    while (end < length && buf.get(end) != '\n') end++;
+                    if (end == length && !last) break;
+
+                    int lineEnd = end > i && buf.get(end - 1) == '\r' ? end - 1 : end;
+                    if (lineEnd > i) {
+                        // leading id up to the pipe
+                        int id = 0, j = i;
+                        while (j < lineEnd && buf.get(j) != '|') id = digit(filename, id, buf.get(j++));
+                        if (j == lineEnd || j == i) throw new IOException("malformed line in " + filename + " at byte " + (position + i));
+                        j++;
+                        if (pairs) {
+                            int second = 0;
+                            if (j == lineEnd) throw new IOException("malformed line in " + filename + " at byte " + (position + i));
+                            while (j < lineEnd) second = digit(filename, second, buf.get(j++));
+                            idPair.accept(id, second);
+                        } else {
+                            int n = lineEnd - j;
+                            if (n > scratch.length) scratch = new byte[Math.max(n, scratch.length * 2)];
+                            buf.get(j, scratch, 0, n);
+                            named.accept(id, scratch, 0, n);
+                        }
+                    }
+                    i = end + 1;
+                    lineStart = i;
+                }
+                if (lineStart == 0 && !last) throw new IOException("line longer than " + WINDOW + " bytes in " + filename);
+                position += Math.min(lineStart, length);
+            }
+        }
+    }
+
+    private static int digit(String filename, int value, byte b) throws IOException {
+        if (b < '0' || b > '9') throw new IOException("expected a numeric id in " + filename + " but found '" + (char) b + "'");
+        return value * 10 + (b - '0');
+    }
+}
@@ -0,0 +1,287 @@
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe Bacon game queries for many concurrent users. Unlike BaconGame, which keeps one
+ * mutable center, every query names its own center, so users never see each other's state.
+ * Queries run against an immutable Snapshot (a CSRGraph plus component and degree indexes built
+ * with it) read through an AtomicReference, so readers take no locks and never block writers.
+ * Writers build a whole new snapshot (copy-on-write) and publish it atomically; a reader that
+ * pinned the old snapshot with current() keeps a consistent view until it lets go of it.
+ * Each thread reuses its own BFS arrays as scratch space, so a query allocates only its answer.
+ *
+ * PS4
+ */
+public class BaconQueryService<V, E> {
+    private final AtomicReference<Snapshot<V, E>> current = new AtomicReference<>();
+    private final AtomicLong epochs = new AtomicLong();
+    private final ThreadLocal<BFSResult<V, E>> scratch = new ThreadLocal<>();
+
+    private BaconQueryService() {
+    }
+
+    /**
+     * @param g graph to serve; compacted if it is not already a CSRGraph
+     */
+    public static <V, E> BaconQueryService<V, E> of(GraphView<V, E> g) {
+        BaconQueryService<V, E> service = new BaconQueryService<>();
+        service.publish(g);
+        return service;
+    }
+
+    /**
+     * Atomically replaces the served graph; queries already running finish on the old one.
+     *
+     * @param g the new graph; compacted if it is not already a CSRGraph
+     * @return the published snapshot
+     */
+    public Snapshot<V, E> publish(GraphView<V, E> g) {
+        Snapshot<V, E> snapshot = new Snapshot<>(CSRGraph.of(g), epochs.incrementAndGet());
+        current.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Applies edit to a mutable copy of the served graph and publishes the result.
+     * Writers are serialized, so no edit is lost; readers are never blocked.
+     *
+     * @param edit changes to make, e.g. inserting a new movie's co-star edges
+     * @return the published snapshot
+     */
+    public synchronized Snapshot<V, E> update(Consumer<Graph<V, E>> edit) {
+        Graph<V, E> copy = current.get().graph.toAdjacencyMapGraph();
+        edit.accept(copy);
+        return publish(copy);
+    }
+
+    /**
+     * The snapshot queries currently run against; hold on to it for several consistent queries.
+     */
+    public Snapshot<V, E> current() {
+        return current.get();
+    }
+
+    // this thread's search arrays, reallocated when a new snapshot has been published
+    private BFSResult<V, E> search(Snapshot<V, E> snapshot, V center) {
+        BFSResult<V, E> tree = scratch.get();
+        if (tree == null || tree.graph() != snapshot.graph) {
+            tree = new BFSResult<>(snapshot.graph);
+            scratch.set(tree);
+        }
+        return tree.search(center);
+    }
+
+    public boolean hasVertex(V v) {
+        return current().graph.hasVertex(v);
+    }
+
+    /**
+     * Separation histogram, mean and eccentricity of the actors connected to center, as for u.
+     *
+     * @return the statistics, or null if center is not in the graph
+     */
+    public SeparationStats separationStats(V center) {
+        return separationStats(current(), center);
+    }
+
+    /**
+     * separationStats on a snapshot pinned with current(), to answer with other queries on the same one.
+     */
+    public SeparationStats separationStats(Snapshot<V, E> snapshot, V center) {
+        if (!snapshot.graph.hasVertex(center)) return null;
+        return search(snapshot, center).separationStats();
+    }
+
+    /**
+     * Shortest path from v to center, as for p.
+     *
+     * @return list of vertices from v to center; empty if either is not in the graph or there is no path
+     */
+    public List<V> path(V v, V center) {
+        return path(current(), v, center);
+    }
+
+    /**
+     * path on a snapshot pinned with current(), so pathLabels can label it from the same graph.
+     */
+    public List<V> path(Snapshot<V, E> snapshot, V v, V center) {
+        if (!snapshot.connected(v, center)) return new ArrayList<>();
+        return GraphLibrary.shortestPath(snapshot.graph, v, center);
+    }
+
+    /**
+     * Path from v to center with the label of each edge along it, from one snapshot.
+     *
+     * @return list whose element i is the label from path[i] to path[i+1]; empty if there is no path
+     */
+    public List<E> pathLabels(V v, V center) {
+        Snapshot<V, E> snapshot = current();
+        return pathLabels(snapshot, path(snapshot, v, center));
+    }
+
+    /**
+     * Labels along a path found by path on the same pinned snapshot.
+     *
+     * @return list whose element i is the label from path[i] to path[i+1]
+     */
+    public List<E> pathLabels(Snapshot<V, E> snapshot, List<V> path) {
+        return GraphLibrary.pathLabels(snapshot.graph, path);
+    }
+
+    /**
+     * Vertices whose separation from center is between low and high, in order of separation, as for s.
+     *
+     * @return the vertices; empty if center is not in the graph
+     */
+    public List<V> verticesWithin(V center, int low, int high) {
+        Snapshot<V, E> snapshot = current();
+        if (!snapshot.graph.hasVertex(center)) return new ArrayList<>();
+        return search(snapshot, center).verticesWithin(low, high);
+    }
+
+    /**
+     * Vertices with in-degree between low and high, largest first, as for d.
+     */
+    public List<V> verticesByInDegree(int low, int high) {
+        return current().degrees.verticesByInDegree(low, high);
+    }
+
+    /**
+     * Vertices with infinite separation from center, as for i.
+     */
+    public Set<V> disconnectedFrom(V center) {
+        return current().disconnectedFrom(center);
+    }
+
+    /**
+     * Number of vertices connected to center, including center; 0 if it is not in the graph.
+     */
+    public int componentSize(V center) {
+        return current().componentSize(center);
+    }
+
+    /**
+     * Ranking of the centers connected to center by average separation, as for c.
+     * The latest ranking of each snapshot is kept, so repeated c queries about one center are not recomputed.
+     *
+     * @param center  vertex whose component is ranked
+     * @param threads number of worker threads for a ranking that is not cached
+     * @return the ranking
+     * @throws IllegalArgumentException if center is not in the graph
+     */
+    public ClosenessRanking<V, E> ranking(V center, int threads) {
+        Snapshot<V, E> snapshot = current();
+        ClosenessRanking<V, E> ranking = snapshot.ranking.get();
+        if (ranking == null || !center.equals(ranking.center())) {
+            ranking = ClosenessRanking.compute(snapshot.graph, center, threads, true);
+            snapshot.ranking.set(ranking);
+        }
+        return ranking;
+    }
+
+    /**
+     * The best (k > 0) or worst (k < 0) |k| centers connected to center, as for c.
+     * With pivots > 0 the candidates are first pruned by estimates from that many seeded pivot searches,
+     * as in GraphLibrary.centers; the latest estimates of each snapshot are kept like its ranking.
+     *
+     * @param pivots  number of pivots, or 0 for the exact ranking
+     * @param seed    seed for choosing the pivots
+     * @param threads number of worker threads for the exact searches
+     * @throws IllegalArgumentException if center is not in the graph
+     */
+    public List<V> centers(V center, int k, int pivots, long seed, int threads) {
+        if (pivots <= 0) {
+            ClosenessRanking<V, E> ranking = ranking(center, threads);
+            return k > 0 ? ranking.top(k) : ranking.bottom(-k);
+        }
+        Snapshot<V, E> snapshot = current();
+        ApproximateCloseness<V, E> estimates = snapshot.estimates.get();
+        if (estimates == null || !center.equals(estimates.center()) || estimates.pivots() != Math.min(pivots, snapshot.componentSize(center))
+                || estimates.seed() != seed) {
+            estimates = ApproximateCloseness.estimate(snapshot.graph, center, pivots, seed);
+            snapshot.estimates.set(estimates);
+        }
+        return k > 0 ? estimates.confirmTop(k, ApproximateCloseness.Z, threads).top(k)
+                : estimates.confirmBottom(-k, ApproximateCloseness.Z, threads).bottom(-k);
+    }
+
+    /**
+     * Immutable graph plus the indexes derived from it, published as a unit.
+     * Components are labeled once with a flattened union-find, since a find with path compression
+     * would write to shared arrays during reads; the degree index is never modified after it is built.
+     */
+    public static class Snapshot<V, E> {
+        private final CSRGraph<V, E> graph;
+        private final long epoch;
+        private final int[] component; //vertex id -> id of its component's root
+        private final int[] componentSize; //root id -> vertices in its component
+        private final DegreeIndex<V, E> degrees;
+        private final AtomicReference<ClosenessRanking<V, E>> ranking = new AtomicReference<>();
+        private final AtomicReference<ApproximateCloseness<V, E>> estimates = new AtomicReference<>();
+
+        Snapshot(CSRGraph<V, E> graph, long epoch) {
+            this.graph = graph;
+            this.epoch = epoch;
+            int n = graph.numVertices();
+            int[] parent = new int[n];
+            for (int v = 0; v < n; v++) parent[v] = v;
+            IntBuffer offsets = graph.outOffsets(), targets = graph.outTargets();
+            for (int u = 0; u < n; u++) {
+                for (int k = offsets.get(u); k < offsets.get(u + 1); k++) {
+                    int a = find(parent, u), b = find(parent, targets.get(k));
+                    if (a != b) parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+            component = new int[n];
+            componentSize = new int[n];
+            for (int v = 0; v < n; v++) componentSize[component[v] = find(parent, v)]++;
+            degrees = DegreeIndex.of(graph);
+        }
+
+        private static int find(int[] parent, int x) {
+            while (parent[x] != x) {
+                parent[x] = parent[parent[x]];
+                x = parent[x];
+            }
+            return x;
+        }
+
+        public CSRGraph<V, E> graph() {
+            return graph;
+        }
+
+        /**
+         * Number of this snapshot in publication order, starting at 1.
+         */
+        public long epoch() {
+            return epoch;
+        }
+
+        public boolean connected(V u, V v) {
+            int a = graph.vertexId(u), b = graph.vertexId(v);
+            return a >= 0 && b >= 0 && component[a] == component[b];
+        }
+
+        public int componentSize(V v) {
+            int id = graph.vertexId(v);
+            return id < 0 ? 0 : componentSize[component[id]];
+        }
+
+        public Set<V> disconnectedFrom(V v) {
+            int id = graph.vertexId(v);
+            int c = id < 0 ? -1 : component[id];
+            Set<V> missing = new HashSet<>();
+            for (int u = 0; u < component.length; u++) {
+                if (component[u] != c) missing.add(graph.vertex(u));
+            }
+            return missing;
+        }
+
+        public DegreeIndex<V, E> degrees() {
+            return degrees;
+        }
+    }
+}
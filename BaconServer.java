@@ -0,0 +1,220 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Local TCP server for the Kevin Bacon game, so many users can play at once.
+ * It speaks the same u/p/s/d/i/c/q commands as BaconGame.commandKey, one per line, and each
+ * connection has its own center (Kevin Bacon to start with). Every response is zero or more lines,
+ * an "error ..." line if the command failed, and then an empty line, so clients can pipeline:
+ * send many commands without waiting and match the responses up in order.
+ * Each connection runs on its own virtual thread, and list results are written one name per line
+ * as they are produced rather than as one toString() of the whole list. Output is flushed only when
+ * no pipelined command is waiting, so a burst of commands goes out in a few packets.
+ * The graph's vertices are ids of actor names in a StringPool; names are looked up once per command
+ * and decoded only as they are written.
+ * At most maxInFlight commands run at a time across all connections; a connection that cannot get a
+ * permit stops reading its socket, so a client that sends faster than the server can answer is held
+ * back by TCP flow control instead of queueing work on the server.
+ *
+ * PS4
+ */
+public class BaconServer implements Closeable {
+    private final BaconQueryService<Integer, List<String>> queries;
+    private final StringPool names; //actor name of each vertex
+    private final Semaphore inFlight;
+    private final ServerSocket server;
+    private final Thread acceptor;
+
+    /**
+     * Starts accepting connections on the loopback interface.
+     *
+     * @param queries     service the commands are answered from
+     * @param names       names of the service's vertices
+     * @param port        port to listen on, or 0 for any free port
+     * @param maxInFlight most commands running at once across all connections
+     * @throws IOException if the port cannot be bound
+     */
+    public BaconServer(BaconQueryService<Integer, List<String>> queries, StringPool names, int port, int maxInFlight) throws IOException {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        this.queries = queries;
+        this.names = names;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.acceptor = Thread.ofVirtual().name("bacon-accept").start(this::accept);
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections; connections already open finish their current command and close.
+     */
+    public void close() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Waits until the server has been closed.
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                Thread.ofVirtual().name("bacon-connection-" + socket.getPort()).start(() -> new Connection(socket).run());
+            }
+        } catch (IOException e) {
+            //server socket closed
+        }
+    }
+
+    /**
+     * One client: reads commands in order and answers them with its own center.
+     */
+    private class Connection {
+        private final Socket socket;
+        private int center = names.find("Kevin Bacon");
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void run() {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.strip();
+                    if (line.isEmpty()) continue;
+                    if (line.charAt(0) == 'q') break;
+                    //let the client see what is done before waiting for a permit
+                    if (!inFlight.tryAcquire()) {
+                        out.flush();
+                        inFlight.acquire();
+                    }
+                    long started = GraphMetrics.start(), allocated = GraphMetrics.allocated();
+                    try {
+                        execute(line, out);
+                    } catch (RuntimeException e) {
+                        out.write("error " + e.getMessage() + "\n");
+                    } finally {
+                        inFlight.release();
+                        if (started != 0) GraphMetrics.command(String.valueOf(line.charAt(0)), started, allocated);
+                    }
+                    out.write('\n');
+                    if (!in.ready()) out.flush();
+                }
+            } catch (SocketException e) {
+                //client went away
+            } catch (IOException e) {
+                System.err.println("connection failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void execute(String line, Writer out) throws IOException {
+            char command = line.charAt(0);
+            String arg = line.substring(1).strip();
+
+            // centers an actor
+            if (command == 'u') {
+                //one snapshot for the whole reply, in case a new one is published in between
+                BaconQueryService.Snapshot<Integer, List<String>> snapshot = queries.current();
+                int actor = names.find(arg);
+                if (actor < 0 || !snapshot.graph().hasVertex(actor)) {
+                    out.write("error actor not in graph: " + arg + "\n");
+                    return;
+                }
+                center = actor;
+                out.write(arg + " is now the center of the acting universe, connected to " + snapshot.componentSize(center)
+                        + " actor(s) with average separation " + queries.separationStats(snapshot, center).mean() + "\n");
+            }
+
+            // find path from an actor to this connection's center
+            else if (command == 'p') {
+                //path and labels from one snapshot, in case a new one is published in between
+                BaconQueryService.Snapshot<Integer, List<String>> snapshot = queries.current();
+                int actor = names.find(arg);
+                if (actor < 0 || !snapshot.graph().hasVertex(actor)) {
+                    out.write("error actor not in graph: " + arg + "\n");
+                    return;
+                }
+                if (!snapshot.connected(actor, center)) {
+                    out.write("There is no path\n");
+                    return;
+                }
+                List<Integer> path = queries.path(snapshot, actor, center);
+                List<List<String>> sharedMovies = queries.pathLabels(snapshot, path);
+                out.write(arg + "'s number is " + (path.size() - 1) + "\n");
+                for (int i = 0; i < sharedMovies.size(); i++) {
+                    out.write(names.get(path.get(i)) + " appeared in " + sharedMovies.get(i) + " with " + names.get(path.get(i + 1)) + "\n");
+                }
+            }
+
+            // actors by separation from the center, or by degree, with the value between low and high
+            else if (command == 's' || command == 'd') {
+                String[] range = arg.split("\\s+");
+                if (range.length != 2) {
+                    out.write("error usage: " + command + " <low> <high>\n");
+                    return;
+                }
+                int low = Integer.parseInt(range[0]), high = Integer.parseInt(range[1]);
+                writeAll(command == 's' ? queries.verticesWithin(center, low, high) : queries.verticesByInDegree(low, high), out);
+            }
+
+            // actors with infinite separation from the center
+            else if (command == 'i') {
+                writeAll(queries.disconnectedFrom(center), out);
+            }
+
+            // top (positive number) or bottom (negative) centers of the universe
+            else if (command == 'c') {
+                //optionally pivots and a seed, to rank exactly only the actors estimates cannot rule out
+                String[] args = arg.split("\\s+");
+                int num = Integer.parseInt(args[0]);
+                int pivots = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+                long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+                writeAll(queries.centers(center, num, pivots, seed, Runtime.getRuntime().availableProcessors()), out);
+            }
+
+            else {
+                out.write("error unknown command: " + command + "\n");
+            }
+        }
+
+        private void writeAll(Collection<Integer> actors, Writer out) throws IOException {
+            for (int a : actors) {
+                out.write(names.get(a));
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Loads the graph the way BaconGame does and serves it.
+     * Usage: BaconServer [port [maxInFlight]]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4242;
+        int maxInFlight = args.length > 1 ? Integer.parseInt(args[1]) : 4 * Runtime.getRuntime().availableProcessors();
+        GraphMetrics.install();
+        BaconGame game = new BaconGame();
+        game.loadGraph("PS4/actors.txt", "PS4/movies.txt", "PS4/movie-actors.txt", "PS4/bacon.snapshot");
+        System.out.println("Loaded graph: " + game.buildReport);
+        BaconServer server = new BaconServer(game.queryService(), game.actorNames, port, maxInFlight);
+        System.out.println("Serving the Kevin Bacon game on " + server.server.getInetAddress().getHostAddress() + ":" + server.port());
+        server.join();
+    }
+}
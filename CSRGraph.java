@@ -0,0 +1,545 @@
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compressed sparse row (CSR) implementation of the read-only GraphView interface.
+ * Vertices are interned to dense int ids 0..n-1; the out-neighbors of vertex i are
+ * outTargets[outOffsets[i] .. outOffsets[i+1]), sorted by id, and outLabels holds the
+ * index of each edge's label in a shared label table.
+ * Labels are deduplicated by identity, so an undirected edge whose label object is
+ * shared by both directions (as in the Bacon co-star graph) stores its label once, and
+ * a symmetric graph shares its in-arrays with its out-arrays.
+ * The arrays are held as IntBuffers: a graph built here wraps heap arrays, and one opened from a
+ * GraphSnapshot reads them straight out of the mapped file, with the vertex, id and label tables as
+ * views over it too. Only absolute gets are used, so the buffers can be shared.
+ * The graph is immutable once built, so it has no insert/remove methods; toAdjacencyMapGraph() gives
+ * a mutable copy.
+ * of() keeps the copy it makes of an AdjacencyMapGraph until that graph's version changes, so the
+ * GraphLibrary calls that search a map graph compact it once per version rather than once per call.
+ * It also listens to the graph, and after a change builds the next copy by patching the last one:
+ * only the rows of the vertices whose edges changed are read from the graph and sorted, the other
+ * rows are block-copied, and new vertices get the next ids, so every id keeps naming the same vertex
+ * (see sharesIds) and results over the older copy can be moved onto the new one. Removing a vertex,
+ * or changing more than a quarter of the rows, makes a fresh copy instead.
+ *
+ * PS4
+ */
+public class CSRGraph<V, E> implements GraphView<V, E> {
+    // the copy of() keeps for each map graph, by graph identity; weak keys, so a graph that is dropped takes its copy with it
+    private static final Map<GraphView<?, ?>, Compactor<?, ?>> compacted = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final List<V> vertices;         // id -> vertex
+    private final Map<V, Integer> ids;      // vertex -> id
+    private final List<E> labels;           // label id -> label
+    private final IntBuffer outOffsets, outTargets, outLabels;
+    private final IntBuffer inOffsets, inTargets, inLabels;
+    private final Object lineage;           // shared by the copies patched from one another, whose ids agree
+
+    /**
+     * Builds a compact, immutable copy of any graph (e.g. the output of BaconGame.baconReader).
+     *
+     * @param g graph to copy
+     */
+    public CSRGraph(GraphView<V, E> g) {
+        this(copyOf(g));
+    }
+
+    private CSRGraph(Builder<V, E> b) {
+        this(b, b.sortRows());
+    }
+
+    private CSRGraph(Builder<V, E> b, int[][] rows) {
+        this(Arrays.asList(b.vertices.toArray(newArray(b.vertices.size()))), b.ids,
+                Arrays.asList(b.labels.toArray(newArray(b.labels.size()))), rows[0], rows[1], rows[2], false, new Object());
+    }
+
+    /**
+     * Wraps CSR buffers that are already built, e.g. mapped from a GraphSnapshot.
+     * Each row of the targets must be sorted by id without repeats.
+     *
+     * @param vertices id -> vertex
+     * @param ids      vertex -> id
+     * @param labels   label id -> label
+     * @param out      start of each vertex's out-row plus the total edge count, out-neighbor ids, and
+     *                 the label id of each out-edge
+     * @param in       the same for the in-rows, or null if the graph is symmetric and they equal out
+     */
+    CSRGraph(List<V> vertices, Map<V, Integer> ids, List<E> labels, IntBuffer[] out, IntBuffer[] in) {
+        this(vertices, ids, labels, out, in, new Object());
+    }
+
+    // symmetric: the in-rows are known to equal the out-rows, so there is no transpose to build
+    private CSRGraph(List<V> vertices, Map<V, Integer> ids, List<E> labels, int[] outOffsets, int[] outTargets, int[] outLabels,
+                     boolean symmetric, Object lineage) {
+        this(vertices, ids, labels, new IntBuffer[]{IntBuffer.wrap(outOffsets), IntBuffer.wrap(outTargets), IntBuffer.wrap(outLabels)},
+                symmetric ? null : transpose(outOffsets, outTargets, outLabels), lineage);
+    }
+
+    private CSRGraph(List<V> vertices, Map<V, Integer> ids, List<E> labels, IntBuffer[] out, IntBuffer[] in, Object lineage) {
+        if (in == null) in = out;
+        this.vertices = vertices;
+        this.ids = ids;
+        this.labels = labels;
+        this.outOffsets = out[0];
+        this.outTargets = out[1];
+        this.outLabels = out[2];
+        this.inOffsets = in[0];
+        this.inTargets = in[1];
+        this.inLabels = in[2];
+        this.lineage = lineage;
+    }
+
+    // in-rows of the given out-rows, or null if they are the same; rows come out sorted because
+    // sources are visited in order
+    private static IntBuffer[] transpose(int[] outOffsets, int[] outTargets, int[] outLabels) {
+        int n = outOffsets.length - 1, m = outTargets.length;
+        int[] tOffsets = new int[n + 1];
+        for (int k = 0; k < m; k++) tOffsets[outTargets[k] + 1]++;
+        for (int i = 0; i < n; i++) tOffsets[i + 1] += tOffsets[i];
+        int[] tTargets = new int[m];
+        int[] tLabels = new int[m];
+        int[] fill = Arrays.copyOf(tOffsets, n);
+        for (int u = 0; u < n; u++) {
+            for (int k = outOffsets[u]; k < outOffsets[u + 1]; k++) {
+                int slot = fill[outTargets[k]]++;
+                tTargets[slot] = u;
+                tLabels[slot] = outLabels[k];
+            }
+        }
+        if (Arrays.equals(tOffsets, outOffsets) && Arrays.equals(tTargets, outTargets) && Arrays.equals(tLabels, outLabels)) return null;
+        return new IntBuffer[]{IntBuffer.wrap(tOffsets), IntBuffer.wrap(tTargets), IntBuffer.wrap(tLabels)};
+    }
+
+    /**
+     * Returns g itself if it is already compact, otherwise a compact copy of it.
+     * The copy of an AdjacencyMapGraph is shared by every caller until the graph changes, and the
+     * next one is patched from it.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, E> CSRGraph<V, E> of(GraphView<V, E> g) {
+        if (g instanceof CSRGraph) return (CSRGraph<V, E>) g;
+        //other graphs have no version to tell whether a kept copy is still current
+        if (!(g instanceof AdjacencyMapGraph)) return new CSRGraph<>(g);
+        AdjacencyMapGraph<V, E> map = (AdjacencyMapGraph<V, E>) g;
+        Compactor<V, E> kept;
+        synchronized (compacted) {
+            kept = (Compactor<V, E>) compacted.get(g);
+            if (kept == null) {
+                kept = new Compactor<>();
+                compacted.put(g, kept);
+                map.addListener(kept);
+            }
+        }
+        return kept.compact(map);
+    }
+
+    // the last copy of one AdjacencyMapGraph, and the vertices whose rows have changed since it was made
+    private static final class Compactor<V, E> implements GraphListener<V, E> {
+        private CSRGraph<V, E> graph;
+        private long version = -1;
+        private final Set<V> touched = new HashSet<>();
+        private boolean removed; //a vertex has gone, so ids cannot be kept
+
+        synchronized CSRGraph<V, E> compact(AdjacencyMapGraph<V, E> g) {
+            long current = g.version();
+            if (graph != null && version == current) return graph;
+            if (graph == null || removed || touched.size() > g.numVertices() / 4) graph = new CSRGraph<>(g);
+            else if (!touched.isEmpty()) graph = graph.patch(g, touched);
+            version = current;
+            touched.clear();
+            removed = false;
+            return graph;
+        }
+
+        public synchronized void vertexInserted(V v) {
+            touched.add(v);
+        }
+
+        public synchronized void edgeInserted(V u, V v, E e) {
+            touched.add(u);
+            touched.add(v);
+        }
+
+        public synchronized void edgeLabeled(V u, V v, E e) {
+            touched.add(u);
+            touched.add(v);
+        }
+
+        public synchronized void edgeRemoved(V u, V v) {
+            touched.add(u);
+            touched.add(v);
+        }
+
+        public synchronized void vertexRemoved(V v) {
+            removed = true;
+        }
+    }
+
+    // copy of g, which this graph was copied from before the rows of touched changed; untouched rows
+    // are block-copied, and an edge that kept its label keeps its label id
+    private CSRGraph<V, E> patch(GraphView<V, E> g, Set<V> touched) {
+        int n0 = vertices.size();
+        IntList rows = new IntList(touched.size());
+        List<V> fresh = new ArrayList<>();
+        for (V v : touched) {
+            int id = vertexId(v);
+            if (id >= 0) rows.add(id);
+            else fresh.add(v);
+        }
+        int n = n0 + fresh.size();
+        List<V> vs = vertices;
+        Map<V, Integer> patchedIds = ids;
+        if (!fresh.isEmpty()) {
+            vs = Arrays.asList(vertices.toArray(newArray(n)));
+            //ids are only ever added within a lineage, and older copies ignore the ones past their end
+            if (!(ids instanceof ConcurrentHashMap)) patchedIds = new ConcurrentHashMap<>(ids);
+            for (int i = 0; i < fresh.size(); i++) {
+                vs.set(n0 + i, fresh.get(i));
+                patchedIds.put(fresh.get(i), n0 + i);
+                rows.add(n0 + i);
+            }
+        }
+        int[] changed = rows.toArray();
+        Arrays.sort(changed);
+
+        //the changed rows, sorted by target id, with label ids: old ones where the label is the same object
+        Map<E, Integer> newLabelIds = new IdentityHashMap<>();
+        List<E> newLabels = new ArrayList<>();
+        long[][] patched = new long[changed.length][];
+        boolean symmetric = inOffsets == outOffsets;
+        for (int i = 0; i < changed.length; i++) {
+            int u = changed[i];
+            V from = vs.get(u);
+            long[] row = new long[g.outDegree(from)];
+            int k = 0;
+            for (V to : g.outNeighbors(from)) {
+                int v = patchedIds.get(to);
+                E e = g.getLabel(from, to);
+                int old = u < n0 && v < n0 ? find(u, v) : -1;
+                int label;
+                if (old >= 0 && labels.get(outLabels.get(old)) == e) label = outLabels.get(old);
+                else {
+                    Integer id = newLabelIds.get(e);
+                    if (id == null) {
+                        id = labels.size() + newLabels.size();
+                        newLabelIds.put(e, id);
+                        newLabels.add(e);
+                    }
+                    label = id;
+                }
+                row[k++] = ((long) v << 32) | label;
+                //the new graph is still symmetric if every changed row is its own in-row
+                if (symmetric && (g.getLabel(to, from) != e)) symmetric = false;
+            }
+            if (symmetric && g.inDegree(from) != row.length) symmetric = false;
+            Arrays.sort(row);
+            patched[i] = row;
+        }
+        int m = outTargets.limit();
+        for (int i = 0; i < changed.length; i++) {
+            int u = changed[i];
+            m += patched[i].length - (u < n0 ? outOffsets.get(u + 1) - outOffsets.get(u) : 0);
+        }
+        //labels of removed and relabeled edges are left behind; start over once the table is twice as long as it can need
+        if (labels.size() + newLabels.size() > Math.max(2 * m, 64)) return new CSRGraph<>(g);
+
+        int[] offsets = new int[n + 1], targets = new int[m], edgeLabels = new int[m];
+        int next = 0, at = 0; //next unchanged old id to copy, next free slot
+        for (int i = 0; i <= changed.length; i++) {
+            int stop = i < changed.length ? Math.min(changed[i], n0) : n0;
+            if (next < stop) {
+                int from = outOffsets.get(next), length = outOffsets.get(stop) - from;
+                outTargets.get(from, targets, at, length);
+                outLabels.get(from, edgeLabels, at, length);
+                for (int u = next; u < stop; u++) offsets[u] = outOffsets.get(u) - from + at;
+                at += length;
+                next = stop;
+            }
+            if (i == changed.length) break;
+            int u = changed[i];
+            offsets[u] = at;
+            for (long edge : patched[i]) {
+                targets[at] = (int) (edge >>> 32);
+                edgeLabels[at++] = (int) edge;
+            }
+            if (u < n0) next = u + 1;
+        }
+        offsets[n] = at;
+        List<E> patchedLabels = labels;
+        if (!newLabels.isEmpty()) {
+            patchedLabels = Arrays.asList(labels.toArray(newArray(labels.size() + newLabels.size())));
+            for (int i = 0; i < newLabels.size(); i++) patchedLabels.set(labels.size() + i, newLabels.get(i));
+        }
+        return new CSRGraph<>(vs, patchedIds, patchedLabels, offsets, targets, edgeLabels, symmetric, lineage);
+    }
+
+    /**
+     * Whether every vertex id of older names the same vertex in this graph, i.e. this graph is older
+     * or a copy patched from it by of(), so int-indexed results over older carry over by id.
+     */
+    boolean sharesIds(CSRGraph<?, ?> older) {
+        return older.lineage == lineage && older.vertices.size() <= vertices.size();
+    }
+
+    private static <V, E> Builder<V, E> copyOf(GraphView<V, E> g) {
+        Builder<V, E> b = new Builder<>();
+        for (V v : g.vertices()) b.addVertex(v);
+        for (V u : g.vertices()) {
+            for (V v : g.outNeighbors(u)) b.addDirected(u, v, g.getLabel(u, v));
+        }
+        return b;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(int n) {
+        return (T[]) new Object[n];
+    }
+
+    /**
+     * Dense id of v, or -1 if v is not in the graph.
+     */
+    public int vertexId(V v) {
+        Integer id = ids.get(v);
+        return id == null || id >= vertices.size() ? -1 : id;
+    }
+
+    /**
+     * Vertex with the given dense id.
+     */
+    public V vertex(int id) {
+        return vertices.get(id);
+    }
+
+    /**
+     * Label of the out-edge stored in slot k of outTargets.
+     */
+    public E outLabel(int k) {
+        return labels.get(outLabels.get(k));
+    }
+
+    /**
+     * Label of the edge u -> v by id, or null if there is none.
+     */
+    public E edgeLabel(int u, int v) {
+        int k = find(u, v);
+        return k < 0 ? null : labels.get(outLabels.get(k));
+    }
+
+    // raw CSR buffers for the int-indexed algorithms in GraphLibrary; callers must only use absolute gets
+    IntBuffer outOffsets() { return outOffsets; }
+    IntBuffer outTargets() { return outTargets; }
+    IntBuffer inOffsets() { return inOffsets; }
+    IntBuffer inTargets() { return inTargets; }
+    IntBuffer inLabels() { return inLabels; }
+    IntBuffer outLabels() { return outLabels; }
+    boolean symmetric() { return inOffsets == outOffsets; }
+    int numLabels() { return labels.size(); }
+    E label(int labelId) { return labels.get(labelId); }
+
+    private int requireId(V v) {
+        int id = vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("vertex not in graph: " + v);
+        return id;
+    }
+
+    // slot of the edge u -> v in outTargets, or negative if absent
+    private int find(int u, int v) {
+        int lo = outOffsets.get(u), hi = outOffsets.get(u + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1, t = outTargets.get(mid);
+            if (t < v) lo = mid + 1;
+            else if (t > v) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private Iterable<V> slice(IntBuffer targets, int start, int end) {
+        return () -> new Iterator<V>() {
+            int k = start;
+
+            public boolean hasNext() {
+                return k < end;
+            }
+
+            public V next() {
+                if (k >= end) throw new NoSuchElementException();
+                return vertices.get(targets.get(k++));
+            }
+        };
+    }
+
+    public int numVertices() {
+        return vertices.size();
+    }
+
+    public int numEdges() {
+        return outTargets.limit();
+    }
+
+    public Iterable<V> vertices() {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    public boolean hasVertex(V v) {
+        return vertexId(v) >= 0;
+    }
+
+    public int outDegree(V v) {
+        int id = requireId(v);
+        return outOffsets.get(id + 1) - outOffsets.get(id);
+    }
+
+    public int inDegree(V v) {
+        int id = requireId(v);
+        return inOffsets.get(id + 1) - inOffsets.get(id);
+    }
+
+    public Iterable<V> outNeighbors(V v) {
+        int id = requireId(v);
+        return slice(outTargets, outOffsets.get(id), outOffsets.get(id + 1));
+    }
+
+    public Iterable<V> inNeighbors(V v) {
+        int id = requireId(v);
+        return slice(inTargets, inOffsets.get(id), inOffsets.get(id + 1));
+    }
+
+    public boolean hasEdge(V u, V v) {
+        int to = vertexId(v);
+        return to >= 0 && find(requireId(u), to) >= 0;
+    }
+
+    public E getLabel(V u, V v) {
+        int to = vertexId(v);
+        return to < 0 ? null : edgeLabel(requireId(u), to);
+    }
+
+    /**
+     * Mutable copy of the graph, sharing its vertex and label objects.
+     */
+    public AdjacencyMapGraph<V, E> toAdjacencyMapGraph() {
+        AdjacencyMapGraph<V, E> copy = new AdjacencyMapGraph<>();
+        for (V v : vertices) copy.insertVertex(v);
+        for (int u = 0; u < vertices.size(); u++) {
+            for (int k = outOffsets.get(u); k < outOffsets.get(u + 1); k++) copy.insertDirected(vertices.get(u), vertex(outTargets.get(k)), outLabel(k));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a string representation of the vertex and edge lists.
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder("Vertices: ").append(vertices).append("\nOut edges: {");
+        for (int u = 0; u < vertices.size(); u++) {
+            if (u > 0) s.append(", ");
+            s.append(vertices.get(u)).append("={");
+            for (int k = outOffsets.get(u); k < outOffsets.get(u + 1); k++) {
+                if (k > outOffsets.get(u)) s.append(", ");
+                s.append(vertex(outTargets.get(k))).append('=').append(outLabel(k));
+            }
+            s.append('}');
+        }
+        return s.append('}').toString();
+    }
+
+    /**
+     * Accumulates vertices and edges, then builds the CSR arrays in one pass.
+     * Used by the loaders to build a compact graph without going through nested maps.
+     * A builder hands its vertex table to the graph, so it should not be used after build().
+     */
+    public static class Builder<V, E> {
+        private final Map<V, Integer> ids = new HashMap<>();
+        private final List<V> vertices = new ArrayList<>();
+        private final Map<E, Integer> labelIds = new IdentityHashMap<>();
+        private final List<E> labels = new ArrayList<>();
+        private int[] src = new int[16], dst = new int[16], lab = new int[16];
+        private int numEdges;
+
+        /**
+         * Adds v if it is new and returns its dense id.
+         */
+        public int addVertex(V v) {
+            Integer id = ids.get(v);
+            if (id == null) {
+                id = vertices.size();
+                ids.put(v, id);
+                vertices.add(v);
+            }
+            return id;
+        }
+
+        /**
+         * Adds the edge u -> v, adding either endpoint if it is new.
+         * Adding the same edge twice keeps the later label, as Graph.insertDirected does.
+         */
+        public void addDirected(V u, V v, E e) {
+            addDirected(addVertex(u), addVertex(v), e);
+        }
+
+        public void addUndirected(V u, V v, E e) {
+            int a = addVertex(u), b = addVertex(v);
+            addDirected(a, b, e);
+            addDirected(b, a, e);
+        }
+
+        /**
+         * Adds the edge u -> v by the ids returned from addVertex.
+         */
+        public void addDirected(int u, int v, E e) {
+            Integer l = labelIds.get(e);
+            if (l == null) {
+                l = labels.size();
+                labelIds.put(e, l);
+                labels.add(e);
+            }
+            if (numEdges == src.length) {
+                int cap = src.length * 2;
+                src = Arrays.copyOf(src, cap);
+                dst = Arrays.copyOf(dst, cap);
+                lab = Arrays.copyOf(lab, cap);
+            }
+            src[numEdges] = u;
+            dst[numEdges] = v;
+            lab[numEdges] = l;
+            numEdges++;
+        }
+
+        public CSRGraph<V, E> build() {
+            return new CSRGraph<>(this);
+        }
+
+        // offsets, targets and label ids of the CSR rows: a counting sort of the edge list by source,
+        // then each row sorted by target, where a repeated (u, v) keeps the label of its last insertion
+        private int[][] sortRows() {
+            int n = vertices.size();
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < numEdges; i++) offsets[src[i] + 1]++;
+            for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+            long[] rows = new long[numEdges];
+            int[] fill = Arrays.copyOf(offsets, n);
+            for (int i = 0; i < numEdges; i++) rows[fill[src[i]]++] = ((long) dst[i] << 32) | i;
+
+            int[] targets = new int[numEdges];
+            int[] edgeLabels = new int[numEdges];
+            int m = 0;
+            for (int u = 0; u < n; u++) {
+                int start = offsets[u], end = offsets[u + 1];
+                Arrays.sort(rows, start, end);
+                offsets[u] = m;
+                for (int k = start; k < end; k++) {
+                    int v = (int) (rows[k] >>> 32);
+                    int edge = (int) rows[k];
+                    if (m > offsets[u] && targets[m - 1] == v) m--;
+                    targets[m] = v;
+                    edgeLabels[m] = lab[edge];
+                    m++;
+                }
+            }
+            offsets[n] = m;
+            return new int[][]{offsets, Arrays.copyOf(targets, m), Arrays.copyOf(edgeLabels, m)};
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.*;
+
+/**
+ * Shortest path tree from a breadth-first search over the bipartite actor-movie CastIndex.
+ * The search alternates actor -> movie -> actor but counts only actor hops, so distances
+ * match the co-star graph; each movie is expanded once, which keeps the search linear in the
+ * number of movie-actor rows. For each reached actor, parent holds the next actor toward the
+ * source and via the movie they share, i.e. the intermediate movie node on the path.
+ * Arrays are indexed by actor ID (movie ID for movieSeen) and reused when search() is called again,
+ * after growing them if actors or movies have been added to the index since.
+ *
+ * PS4
+ */
+public class CastBFSResult {
+    private final CastIndex index;
+    private int[] parent, via, dist, order;
+    private boolean[] movieSeen;
+    private int source = -1;
+    private int reached, moviesExpanded;
+    private final IntList expanded = new IntList(); //movies to unmark before the next search
+
+    /**
+     * Allocates the arrays for searches over index; nothing is reached until search() is called.
+     */
+    public CastBFSResult(CastIndex index) {
+        this.index = index;
+        int n = index.actorIdLimit();
+        parent = new int[n];
+        via = new int[n];
+        dist = new int[n];
+        order = new int[n];
+        movieSeen = new boolean[index.movieIdLimit()];
+        Arrays.fill(parent, -1);
+        Arrays.fill(via, -1);
+        Arrays.fill(dist, -1);
+    }
+
+    /**
+     * Runs a BFS from the named actor, replacing the previous result.
+     *
+     * @param actor starting actor of the search
+     * @return this result
+     */
+    public CastBFSResult search(String actor) {
+        int s = index.actorId(actor);
+        if (s < 0) throw new IllegalArgumentException("actor not in index: " + actor);
+        return search(s);
+    }
+
+    /**
+     * Runs a BFS from the actor with ID s, replacing the previous result.
+     */
+    public CastBFSResult search(int s) {
+        long started = GraphMetrics.start();
+        for (int i = 0; i < reached; i++) {
+            parent[order[i]] = -1;
+            via[order[i]] = -1;
+            dist[order[i]] = -1;
+        }
+        for (int i = 0; i < expanded.size(); i++) movieSeen[expanded.get(i)] = false;
+        expanded.clear();
+        if (index.actorIdLimit() > parent.length) {
+            int n = parent.length, grown = index.actorIdLimit();
+            parent = Arrays.copyOf(parent, grown);
+            via = Arrays.copyOf(via, grown);
+            dist = Arrays.copyOf(dist, grown);
+            order = Arrays.copyOf(order, grown);
+            Arrays.fill(parent, n, grown, -1);
+            Arrays.fill(via, n, grown, -1);
+            Arrays.fill(dist, n, grown, -1);
+        }
+        if (index.movieIdLimit() > movieSeen.length) movieSeen = Arrays.copyOf(movieSeen, index.movieIdLimit());
+
+        int[] filmStart = index.filmStart(), films = index.films();
+        int[] castStart = index.castStart(), cast = index.cast();
+        source = s;
+        dist[s] = 0;
+        order[0] = s;
+        int head = 0, tail = 1;
+        while (head < tail) {
+            int u = order[head++];
+            int d = dist[u] + 1;
+            for (int f = filmStart[u]; f < filmStart[u + 1]; f++) {
+                int m = films[f];
+                if (movieSeen[m]) continue; //every cast member was already reached through m
+                movieSeen[m] = true;
+                expanded.add(m);
+                for (int k = castStart[m]; k < castStart[m + 1]; k++) {
+                    int v = cast[k];
+                    if (dist[v] < 0) {
+                        dist[v] = d;
+                        parent[v] = u;
+                        via[v] = m;
+                        order[tail++] = v;
+                    }
+                }
+            }
+        }
+        reached = tail;
+        moviesExpanded = expanded.size();
+        if (started != 0) {
+            //each expanded movie's cast is scanned once, and each reached actor's films
+            long scanned = 0;
+            for (int i = 0; i < expanded.size(); i++) scanned += castStart[expanded.get(i) + 1] - castStart[expanded.get(i)];
+            for (int i = 0; i < tail; i++) scanned += filmStart[order[i] + 1] - filmStart[order[i]];
+            GraphMetrics.bfs(started, tail, scanned);
+        }
+        return this;
+    }
+
+    public CastIndex index() {
+        return index;
+    }
+
+    public String source() {
+        return source < 0 ? null : index.actorName(source);
+    }
+
+    /**
+     * Number of actors reached, including the source.
+     */
+    public int numReached() {
+        return reached;
+    }
+
+    /**
+     * Number of movie nodes the last search went through.
+     */
+    public int numMoviesExpanded() {
+        return moviesExpanded;
+    }
+
+    public boolean reached(String actor) {
+        int id = searchedId(actor);
+        return id >= 0 && dist[id] >= 0;
+    }
+
+    /**
+     * Number of actor hops from the source, or -1 if unreached or not in the index.
+     */
+    public int distance(String actor) {
+        int id = searchedId(actor);
+        return id < 0 ? -1 : dist[id];
+    }
+
+    /**
+     * Title of the movie linking actor to the next actor on its path to the source, or null for the
+     * source and unreached actors.
+     */
+    public String sharedMovie(String actor) {
+        int id = searchedId(actor);
+        return id < 0 || via[id] < 0 ? null : index.movieTitle(via[id]);
+    }
+
+    /**
+     * Path of actors from actor back to the source; empty if actor is unreached.
+     */
+    public List<String> getPath(String actor) {
+        int id = searchedId(actor);
+        if (id < 0 || dist[id] < 0) return new ArrayList<>();
+        List<String> path = new ArrayList<>(dist[id] + 1);
+        for (int u = id; u >= 0; u = parent[u]) path.add(index.actorName(u));
+        return path;
+    }
+
+    /**
+     * Movies linking consecutive actors of getPath(actor), so movie i is shared by actors i and i+1.
+     */
+    public List<String> getMovies(String actor) {
+        int id = searchedId(actor);
+        if (id < 0 || dist[id] < 0) return new ArrayList<>();
+        List<String> movies = new ArrayList<>(dist[id]);
+        for (int u = id; parent[u] >= 0; u = parent[u]) movies.add(index.movieTitle(via[u]));
+        return movies;
+    }
+
+    /**
+     * Average number of actor hops from the source to the reached actors.
+     */
+    public double averageSeparation() {
+        long total = 0;
+        for (int i = 0; i < reached; i++) total += dist[order[i]];
+        return total / (double) (reached - 1);
+    }
+
+    /**
+     * Actors the search did not reach.
+     */
+    public Set<String> missingVertices() {
+        Set<String> missing = new HashSet<>();
+        for (int a = 0; a < index.actorIdLimit(); a++) {
+            if ((a >= dist.length || dist[a] < 0) && index.actorName(a) != null) missing.add(index.actorName(a));
+        }
+        return missing;
+    }
+
+    // ID of the actor, or -1 if there is none or it was added to the index after the arrays were sized
+    private int searchedId(String actor) {
+        int id = index.actorId(actor);
+        return id < dist.length ? id : -1;
+    }
+}
@@ -0,0 +1,348 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bipartite actor-movie representation of the Bacon game data, indexed by the file IDs:
+ * the cast of each movie and the movies of each actor as CSR arrays, plus the names, which are
+ * dictionary-encoded in StringPools and only decoded for output.
+ * It stores one entry per movie-actor row in each direction, so unlike the co-star graph
+ * it never materializes a clique for a large cast.
+ * Fill it as a BaconLoader.Sink and call index() once loading is done, or use load(); GraphSnapshot
+ * stores a built index alongside the graph.
+ * Casts and filmographies changed after index() (e.g. by DeltaIngest) are kept aside per movie and
+ * actor, and folded into the CSR arrays the next time they are read, so a search always sees the
+ * current rows, including those of actors and movies added since.
+ *
+ * PS4
+ */
+public class CastIndex implements BaconLoader.Sink {
+    private final StringPool actorNames; //distinct actor names
+    private final StringPool movieTitles; //distinct movie titles
+    private final IntList actorNameIds; //index = actor ID : value = name id, or -1
+    private final IntList movieTitleIds; //index = movie ID : value = title id, or -1
+    private IntList castMovies = new IntList(); //movie ID of each movie-actor row, until indexed
+    private IntList castActors = new IntList(); //actor ID of each movie-actor row, until indexed
+    private int[] castStart, cast; //movie -> actor IDs
+    private int[] filmStart, films; //actor -> movie IDs
+    private long indexNanos;
+    private int[] namedStart, named; //name id -> IDs of the actors with that name, in ID order; built on first lookup
+    private final Map<Integer, int[]> renamed = new HashMap<>(); //name id -> actor IDs, changed since the names were grouped
+    private final Map<Integer, int[]> recast = new HashMap<>(); //movie ID -> actor IDs, changed since the arrays were grouped
+    private final Map<Integer, int[]> refilmed = new HashMap<>(); //actor ID -> movie IDs, likewise
+
+    /**
+     * Empty index, to fill as a BaconLoader.Sink.
+     */
+    public CastIndex() {
+        actorNames = new StringPool();
+        movieTitles = new StringPool();
+        actorNameIds = new IntList();
+        movieTitleIds = new IntList();
+    }
+
+    /**
+     * Already indexed arrays, e.g. read back from a GraphSnapshot; takes ownership of them.
+     *
+     * @throws IllegalArgumentException if the CSR arrays do not fit the ID ranges
+     */
+    CastIndex(StringPool actorNames, StringPool movieTitles, int[] actorNameIds, int[] movieTitleIds,
+              int[] castStart, int[] cast, int[] filmStart, int[] films) {
+        if (castStart.length != movieTitleIds.length + 1 || filmStart.length != actorNameIds.length + 1
+                || castStart[movieTitleIds.length] != cast.length || filmStart[actorNameIds.length] != films.length) {
+            throw new IllegalArgumentException("cast arrays do not match the ID ranges");
+        }
+        this.actorNames = actorNames;
+        this.movieTitles = movieTitles;
+        this.actorNameIds = new IntList(actorNameIds);
+        this.movieTitleIds = new IntList(movieTitleIds);
+        this.castStart = castStart;
+        this.cast = cast;
+        this.filmStart = filmStart;
+        this.films = films;
+        castMovies = null;
+        castActors = null;
+    }
+
+    /**
+     * Streams the three game files into a new index.
+     *
+     * @param actorFile      name of the file containing actor ids and names
+     * @param movieFile      name of the file containing movie ids and names
+     * @param movieActorFile name of the file containing the movie-actor relationships
+     * @return the built index
+     * @throws Exception if a file cannot be read or refers to an unknown id
+     */
+    public static CastIndex load(String actorFile, String movieFile, String movieActorFile) throws Exception {
+        CastIndex index = new CastIndex();
+        BaconLoader.load(actorFile, movieFile, movieActorFile, index);
+        index.index();
+        return index;
+    }
+
+    public void actor(int actorId, String name) {
+        name(actorId, actorNames.intern(name));
+    }
+
+    public void movie(int movieId, String name) {
+        setId(movieTitleIds, movieId, movieTitles.intern(name));
+    }
+
+    public void actor(int actorId, byte[] name, int offset, int length) {
+        name(actorId, actorNames.intern(name, offset, length));
+    }
+
+    public void movie(int movieId, byte[] name, int offset, int length) {
+        setId(movieTitleIds, movieId, movieTitles.intern(name, offset, length));
+    }
+
+    public void cast(int movieId, int actorId) {
+        castMovies.add(movieId);
+        castActors.add(actorId);
+    }
+
+    /**
+     * Groups the movie-actor rows into the movie and actor CSR arrays with counting sorts.
+     *
+     * @throws Exception if a row refers to an actor or movie that was not loaded
+     */
+    public void index() throws Exception {
+        long start = System.nanoTime();
+        int rows = castMovies.size();
+        for (int row = 0; row < rows; row++) {
+            int movie = castMovies.get(row), actor = castActors.get(row);
+            if (movie >= movieIdLimit() || movieTitleIds.get(movie) < 0) throw new Exception("unknown movie ID " + movie);
+            if (actor >= actorIdLimit() || actorNameIds.get(actor) < 0) throw new Exception("unknown actor ID " + actor);
+        }
+        castStart = new int[movieIdLimit() + 1];
+        cast = new int[rows];
+        group(castMovies, castActors, castStart, cast);
+        filmStart = new int[actorIdLimit() + 1];
+        films = new int[rows];
+        group(castActors, castMovies, filmStart, films);
+        castMovies = null;
+        castActors = null;
+        indexNanos = System.nanoTime() - start;
+    }
+
+    // counting sort of (key, value) rows into offsets/values
+    private static void group(IntList keys, IntList values, int[] offsets, int[] grouped) {
+        int n = offsets.length - 1;
+        for (int row = 0; row < keys.size(); row++) offsets[keys.get(row) + 1]++;
+        for (int k = 0; k < n; k++) offsets[k + 1] += offsets[k];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int row = 0; row < keys.size(); row++) grouped[fill[keys.get(row)]++] = values.get(row);
+    }
+
+    // gives the actor a name; once names have been grouped, the change is noted beside the grouping
+    private void name(int actorId, int nameId) {
+        int old = actorId >= 0 && actorId < actorIdLimit() ? actorNameIds.get(actorId) : -1;
+        setId(actorNameIds, actorId, nameId);
+        if (named == null || old == nameId) return;
+        if (old >= 0) {
+            int[] was = actorsNamed(old), left = new int[was.length - 1];
+            for (int i = 0, k = 0; i < was.length; i++) {
+                if (was[i] != actorId) left[k++] = was[i];
+            }
+            renamed.put(old, left);
+        }
+        int[] others = actorsNamed(nameId), same = Arrays.copyOf(others, others.length + 1);
+        same[others.length] = actorId;
+        Arrays.sort(same);
+        renamed.put(nameId, same);
+    }
+
+    private static void setId(IntList ids, int index, int id) {
+        if (index < 0) throw new IllegalArgumentException("negative ID " + index);
+        while (ids.size() <= index) ids.add(-1);
+        ids.set(index, id);
+    }
+
+    /**
+     * One more than the largest actor ID; IDs without an actor have a null name.
+     */
+    public int actorIdLimit() {
+        return actorNameIds.size();
+    }
+
+    /**
+     * One more than the largest movie ID; IDs without a movie have a null title.
+     */
+    public int movieIdLimit() {
+        return movieTitleIds.size();
+    }
+
+    /**
+     * ID of the named actor, or -1 if there is none; the lowest ID if several actors have the name.
+     */
+    public int actorId(String name) {
+        int nameId = actorNames.find(name);
+        if (nameId < 0) return -1;
+        int[] actors = actorsNamed(nameId);
+        return actors.length == 0 ? -1 : actors[0];
+    }
+
+    /**
+     * IDs of the actors whose name has this id in actorNames(), in ID order. The co-star graph keys
+     * actors by name, so these are all one vertex.
+     */
+    public int[] actorsNamed(int nameId) {
+        groupNames();
+        int[] changed = renamed.get(nameId);
+        if (changed != null) return changed.clone();
+        if (nameId < 0 || nameId >= namedStart.length - 1) return new int[0];
+        return Arrays.copyOfRange(named, namedStart[nameId], namedStart[nameId + 1]);
+    }
+
+    // groups actor IDs by name id with a counting sort
+    private void groupNames() {
+        if (named != null) return;
+        int[] start = new int[actorNames.size() + 1];
+        for (int a = 0; a < actorIdLimit(); a++) {
+            if (actorNameIds.get(a) >= 0) start[actorNameIds.get(a) + 1]++;
+        }
+        for (int i = 0; i + 1 < start.length; i++) start[i + 1] += start[i];
+        int[] ids = new int[start[start.length - 1]], fill = Arrays.copyOf(start, start.length - 1);
+        for (int a = 0; a < actorIdLimit(); a++) {
+            if (actorNameIds.get(a) >= 0) ids[fill[actorNameIds.get(a)]++] = a;
+        }
+        namedStart = start;
+        named = ids;
+        renamed.clear();
+    }
+
+    /**
+     * Decoded name of the actor, or null if there is no actor with that ID.
+     */
+    public String actorName(int actorId) {
+        int nameId = actorNameIds.get(actorId);
+        return nameId < 0 ? null : actorNames.get(nameId);
+    }
+
+    /**
+     * Id of the actor's name in actorNames(), or -1 if there is no actor with that ID.
+     * The co-star graph uses these ids as its vertices.
+     */
+    public int actorNameId(int actorId) {
+        return actorNameIds.get(actorId);
+    }
+
+    /**
+     * Decoded title of the movie, or null if there is no movie with that ID.
+     */
+    public String movieTitle(int movieId) {
+        int titleId = movieTitleIds.get(movieId);
+        return titleId < 0 ? null : movieTitles.get(titleId);
+    }
+
+    /**
+     * Id of the movie's title in movieTitles(), or -1 if there is no movie with that ID.
+     */
+    public int movieTitleId(int movieId) {
+        return movieTitleIds.get(movieId);
+    }
+
+    /**
+     * Whether there is an actor with that ID.
+     */
+    public boolean hasActor(int actorId) {
+        return actorId >= 0 && actorId < actorIdLimit() && actorNameIds.get(actorId) >= 0;
+    }
+
+    /**
+     * Whether there is a movie with that ID.
+     */
+    public boolean hasMovie(int movieId) {
+        return movieId >= 0 && movieId < movieIdLimit() && movieTitleIds.get(movieId) >= 0;
+    }
+
+    /**
+     * Current cast of a movie by actor ID, including changes not yet folded into the CSR arrays.
+     */
+    int[] castOf(int movieId) {
+        int[] changed = recast.get(movieId);
+        if (changed != null) return changed.clone();
+        if (movieId >= castStart.length - 1) return new int[0];
+        return Arrays.copyOfRange(cast, castStart[movieId], castStart[movieId + 1]);
+    }
+
+    /**
+     * Current films of an actor by movie ID, including changes not yet folded into the CSR arrays.
+     */
+    int[] filmsOf(int actorId) {
+        int[] changed = refilmed.get(actorId);
+        if (changed != null) return changed.clone();
+        if (actorId >= filmStart.length - 1) return new int[0];
+        return Arrays.copyOfRange(films, filmStart[actorId], filmStart[actorId + 1]);
+    }
+
+    /**
+     * Replaces a movie's cast and the films of the actors whose rows changed with it; the CSR arrays
+     * are regrouped on their next read.
+     *
+     * @param movieId  movie whose cast changed
+     * @param cast     its actor IDs now
+     * @param actorId  actor who joined or left it
+     * @param films    that actor's movie IDs now
+     */
+    void update(int movieId, int[] cast, int actorId, int[] films) {
+        recast.put(movieId, cast.clone());
+        refilmed.put(actorId, films.clone());
+    }
+
+    // folds the changed casts and films, and any IDs added since, into the CSR arrays
+    private void regroup() {
+        if (recast.isEmpty() && refilmed.isEmpty() && castStart.length - 1 == movieIdLimit() && filmStart.length - 1 == actorIdLimit()) return;
+        int[][] grouped = regroup(castStart, cast, recast, movieIdLimit());
+        castStart = grouped[0];
+        cast = grouped[1];
+        grouped = regroup(filmStart, films, refilmed, actorIdLimit());
+        filmStart = grouped[0];
+        films = grouped[1];
+        recast.clear();
+        refilmed.clear();
+    }
+
+    // offsets and values with the changed rows replaced, over keys 0 .. limit
+    private static int[][] regroup(int[] offsets, int[] values, Map<Integer, int[]> changed, int limit) {
+        int old = offsets.length - 1;
+        int[] start = new int[limit + 1];
+        for (int k = 0; k < limit; k++) {
+            int[] row = changed.get(k);
+            start[k + 1] = start[k] + (row != null ? row.length : k < old ? offsets[k + 1] - offsets[k] : 0);
+        }
+        int[] grouped = new int[start[limit]];
+        for (int k = 0; k < limit; k++) {
+            int[] row = changed.get(k);
+            if (row != null) System.arraycopy(row, 0, grouped, start[k], row.length);
+            else if (k < old) System.arraycopy(values, offsets[k], grouped, start[k], offsets[k + 1] - offsets[k]);
+        }
+        return new int[][]{start, grouped};
+    }
+
+    public StringPool actorNames() {
+        return actorNames;
+    }
+
+    public StringPool movieTitles() {
+        return movieTitles;
+    }
+
+    /**
+     * Number of movie-actor rows indexed.
+     */
+    public int numRows() {
+        regroup();
+        return cast.length;
+    }
+
+    public long indexNanos() {
+        return indexNanos;
+    }
+
+    // CSR arrays for the builders and searches, with every change so far; callers must not modify them
+    int[] castStart() { regroup(); return castStart; }
+    int[] cast() { regroup(); return cast; }
+    int[] filmStart() { regroup(); return filmStart; }
+    int[] films() { regroup(); return films; }
+}
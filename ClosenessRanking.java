@@ -0,0 +1,158 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ranks vertices of a CSRGraph as centers of the universe by their average separation.
+ * Each vertex's average separation is computed exactly once, either by a BFS from that vertex
+ * or by bit-parallel MultiSourceBFS passes that cover 64 vertices each; the searches run in
+ * parallel on a fixed pool of workers that claim chunks of vertices and each reuse their own
+ * search arrays as scratch space.
+ * Vertices that reach nothing else have no average separation and are left out of the ranking.
+ *
+ * PS4
+ */
+public class ClosenessRanking<V, E> {
+    private static final int CHUNK = MultiSourceBFS.WIDTH; //vertices claimed by a worker at a time
+
+    private final CSRGraph<V, E> graph;
+    private final V center;
+    private final int[] ranked; //vertex ids that have an average separation
+    private final double[] averages; //average separation by vertex id, NaN if not ranked
+
+    ClosenessRanking(CSRGraph<V, E> graph, V center, int[] ranked, double[] averages) {
+        this.graph = graph;
+        this.center = center;
+        this.ranked = ranked;
+        this.averages = averages;
+    }
+
+    /**
+     * Computes the average separation of every vertex, or of every vertex connected to center.
+     *
+     * @param g       graph to rank
+     * @param center  vertex whose connected component is ranked, or null to rank the whole graph
+     * @param threads number of worker threads
+     * @return the ranking
+     * @throws IllegalArgumentException if center is not in the graph
+     */
+    public static <V, E> ClosenessRanking<V, E> compute(CSRGraph<V, E> g, V center, int threads) {
+        return compute(g, center, threads, false);
+    }
+
+    /**
+     * Computes the average separation of every vertex, or of every vertex connected to center.
+     *
+     * @param g           graph to rank
+     * @param center      vertex whose connected component is ranked, or null to rank the whole graph
+     * @param threads     number of worker threads
+     * @param bitParallel whether to search from 64 vertices per pass with MultiSourceBFS
+     * @return the ranking
+     * @throws IllegalArgumentException if center is not in the graph
+     */
+    public static <V, E> ClosenessRanking<V, E> compute(CSRGraph<V, E> g, V center, int threads, boolean bitParallel) {
+        int n = g.numVertices();
+        int[] candidates;
+        if (center == null) {
+            candidates = new int[n];
+            for (int v = 0; v < n; v++) candidates[v] = v;
+        } else {
+            BFSResult<V, E> component = new BFSResult<>(g).search(center);
+            candidates = Arrays.copyOf(component.order(), component.numReached());
+        }
+        return compute(g, center, candidates, threads, bitParallel);
+    }
+
+    /**
+     * Computes the average separation of the given vertex ids only, e.g. the candidates left by
+     * ApproximateCloseness; center is only recorded.
+     */
+    static <V, E> ClosenessRanking<V, E> compute(CSRGraph<V, E> g, V center, int[] candidates, int threads, boolean bitParallel) {
+        int n = g.numVertices();
+        double[] averages = new double[n];
+        Arrays.fill(averages, Double.NaN);
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = bitParallel ? () -> {
+            MultiSourceBFS<V, E> scratch = new MultiSourceBFS<>(g);
+            for (int start; (start = next.getAndAdd(CHUNK)) < candidates.length; ) {
+                MultiSourceBFS.Counts counts = scratch.search(candidates, start, Math.min(CHUNK, candidates.length - start));
+                for (int i = 0; i < counts.size(); i++) {
+                    if (counts.numReached(i) > 1) averages[counts.source(i)] = counts.averageSeparation(i);
+                }
+            }
+        } : () -> {
+            BFSResult<V, E> scratch = new BFSResult<>(g);
+            for (int start; (start = next.getAndAdd(CHUNK)) < candidates.length; ) {
+                for (int i = start; i < Math.min(start + CHUNK, candidates.length); i++) {
+                    int v = candidates[i];
+                    if (scratch.search(v).numReached() > 1) averages[v] = scratch.averageSeparation();
+                }
+            }
+        };
+        Parallel.runAll(worker, Math.max(1, Math.min(threads, (candidates.length + CHUNK - 1) / CHUNK)));
+
+        IntList ranked = new IntList(candidates.length);
+        for (int v : candidates) {
+            if (!Double.isNaN(averages[v])) ranked.add(v);
+        }
+        return new ClosenessRanking<>(g, center, ranked.toArray(), averages);
+    }
+
+    /**
+     * The k best centers (smallest average separation first).
+     */
+    public List<V> top(int k) {
+        return select(k, Comparator.comparingDouble((Integer v) -> averages[v]).thenComparing(v -> v));
+    }
+
+    /**
+     * The k worst centers (largest average separation first).
+     */
+    public List<V> bottom(int k) {
+        return select(k, Comparator.comparingDouble((Integer v) -> -averages[v]).thenComparing(v -> v));
+    }
+
+    // first k ranked vertices in order, keeping at most k in a heap whose head is the worst kept
+    private List<V> select(int k, Comparator<Integer> order) {
+        k = Math.min(k, ranked.length);
+        List<V> result = new ArrayList<>(Math.max(k, 0));
+        if (k <= 0) return result;
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k, order.reversed());
+        for (int v : ranked) {
+            if (heap.size() < k) heap.add(v);
+            else if (order.compare(v, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(v);
+            }
+        }
+        Integer[] best = heap.toArray(new Integer[0]);
+        Arrays.sort(best, order);
+        for (int v : best) result.add(graph.vertex(v));
+        return result;
+    }
+
+    /**
+     * Average separation of v, or NaN if v is not ranked.
+     */
+    public double averageSeparation(V v) {
+        int id = graph.vertexId(v);
+        return id < 0 ? Double.NaN : averages[id];
+    }
+
+    /**
+     * Number of ranked vertices.
+     */
+    public int size() {
+        return ranked.length;
+    }
+
+    public CSRGraph<V, E> graph() {
+        return graph;
+    }
+
+    /**
+     * Center whose component was ranked, or null if the whole graph was.
+     */
+    public V center() {
+        return center;
+    }
+}
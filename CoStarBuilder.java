@@ -0,0 +1,281 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the co-star edges of the Bacon graph from a CastIndex.
+ * Each unordered pair of a movie's cast is visited once and appended, as a packed
+ * (co-star, movie) long, to the rows of both actors; the rows are then sorted so that
+ * repeated pairs and movies can be merged after the fact, without a per-edge set or
+ * List.contains scan.
+ * The result is a CSR of co-stars per actor ID, with the shared movie IDs of each edge.
+ * The graph has one vertex per name, so actors who share a name are built as one: their rows go to
+ * the lowest of their IDs, the others' rows stay empty, and no edge joins them to each other.
+ * With more than one thread the casts are split across workers, which claim chunks of movies and
+ * append their pairs to their own buffers, one per range of actor IDs; workers then claim actor
+ * ranges and gather, sort and merge the rows of their range from every buffer. Rows are sorted
+ * before merging, so the result is the same as the single-threaded build whatever the thread count.
+ *
+ * PS4
+ */
+public class CoStarBuilder {
+    private static final int MOVIE_CHUNK = 256; //movies claimed by a worker at a time
+    private static final int RANGES_PER_THREAD = 4; //actor ranges per worker, so uneven ranges even out
+
+    private final CastIndex index;
+    private int[] offsets, targets; //actor -> co-star actor IDs, sorted
+    private int[] movieStart, movies; //edge slot -> shared movie IDs, sorted
+    private long buildNanos;
+
+    /**
+     * Builds the co-star edges for the given casts on every available processor.
+     *
+     * @param index bipartite index to build from
+     */
+    public CoStarBuilder(CastIndex index) {
+        this(index, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds the co-star edges for the given casts.
+     *
+     * @param index   bipartite index to build from
+     * @param threads number of worker threads; 1 builds on the calling thread only
+     */
+    public CoStarBuilder(CastIndex index, int threads) {
+        this.index = index;
+        long start = System.nanoTime();
+        if (threads > 1 && index.actorIdLimit() > 0) build(threads);
+        else build();
+        buildNanos = System.nanoTime() - start;
+    }
+
+    private void build() {
+        int n = index.actorIdLimit();
+        int[] castStart = index.castStart(), cast = index.cast(), canon = canonical();
+
+        //row sizes: each actor gets one entry per other cast member of each of their movies
+        int[] rowStart = new int[n + 1];
+        for (int m = 0; m < index.movieIdLimit(); m++) {
+            int size = castStart[m + 1] - castStart[m];
+            for (int k = castStart[m]; k < castStart[m + 1]; k++) rowStart[canon[cast[k]] + 1] += size - 1;
+        }
+        for (int a = 0; a < n; a++) rowStart[a + 1] += rowStart[a];
+
+        //each unordered pair once, appended to both rows
+        long[] rows = new long[rowStart[n]];
+        int[] fill = Arrays.copyOf(rowStart, n);
+        for (int m = 0; m < index.movieIdLimit(); m++) {
+            for (int i = castStart[m]; i < castStart[m + 1]; i++) {
+                for (int j = i + 1; j < castStart[m + 1]; j++) {
+                    int a = canon[cast[i]], b = canon[cast[j]];
+                    if (a == b) continue;
+                    rows[fill[a]++] = ((long) b << 32) | m;
+                    rows[fill[b]++] = ((long) a << 32) | m;
+                }
+            }
+        }
+
+        //sort each row by (co-star, movie) and merge repeats into edges with movie lists
+        offsets = new int[n + 1];
+        IntList edgeTargets = new IntList(), edgeMovieStart = new IntList(), edgeMovies = new IntList();
+        merge(rows, rowStart, fill, offsets, edgeTargets, edgeMovieStart, edgeMovies);
+        edgeMovieStart.add(edgeMovies.size());
+        targets = edgeTargets.toArray();
+        movieStart = edgeMovieStart.toArray();
+        movies = edgeMovies.toArray();
+    }
+
+    // sorts rows[rowStart[a] .. rowEnd[a]) of each actor a by (co-star, movie), merges repeats into edges
+    // with movie lists appended to the lists, and sets ends[a + 1] to the number of edges so far
+    private static void merge(long[] rows, int[] rowStart, int[] rowEnd, int[] ends,
+                              IntList edgeTargets, IntList edgeMovieStart, IntList edgeMovies) {
+        for (int a = 0; a < rowEnd.length; a++) {
+            Arrays.sort(rows, rowStart[a], rowEnd[a]);
+            long previous = -1;
+            for (int k = rowStart[a]; k < rowEnd[a]; k++) {
+                if (rows[k] == previous) continue; //same movie listed twice for the pair
+                int b = (int) (rows[k] >>> 32);
+                if (previous < 0 || b != (int) (previous >>> 32)) {
+                    edgeTargets.add(b);
+                    edgeMovieStart.add(edgeMovies.size());
+                }
+                edgeMovies.add((int) rows[k]);
+                previous = rows[k];
+            }
+            ends[a + 1] = edgeTargets.size();
+        }
+    }
+
+    private void build(int threads) {
+        int n = index.actorIdLimit(), movieCount = index.movieIdLimit();
+        int[] castStart = index.castStart(), cast = index.cast(), canon = canonical();
+        int rangeSize = (n + RANGES_PER_THREAD * threads - 1) / (RANGES_PER_THREAD * threads);
+        int ranges = (n + rangeSize - 1) / rangeSize;
+
+        //each worker appends (actor, co-star, movie) for both directions of its movies' pairs to its own buffers
+        IntList[][] buffers = new IntList[threads][ranges]; //worker -> actor range -> triples
+        AtomicInteger nextWorker = new AtomicInteger(), nextMovie = new AtomicInteger();
+        Parallel.runAll(() -> {
+            IntList[] own = buffers[nextWorker.getAndIncrement()];
+            for (int r = 0; r < ranges; r++) own[r] = new IntList();
+            for (int first; (first = nextMovie.getAndAdd(MOVIE_CHUNK)) < movieCount; ) {
+                for (int m = first; m < Math.min(first + MOVIE_CHUNK, movieCount); m++) {
+                    for (int i = castStart[m]; i < castStart[m + 1]; i++) {
+                        for (int j = i + 1; j < castStart[m + 1]; j++) {
+                            int a = canon[cast[i]], b = canon[cast[j]];
+                            if (a == b) continue;
+                            IntList row = own[a / rangeSize];
+                            row.add(a);
+                            row.add(b);
+                            row.add(m);
+                            row = own[b / rangeSize];
+                            row.add(b);
+                            row.add(a);
+                            row.add(m);
+                        }
+                    }
+                }
+            }
+        }, threads);
+
+        //each worker gathers the rows of an actor range from every buffer, then sorts and merges them
+        int[][] rangeEnds = new int[ranges][], rangeTargets = new int[ranges][], rangeMovieStart = new int[ranges][], rangeMovies = new int[ranges][];
+        AtomicInteger nextRange = new AtomicInteger();
+        Parallel.runAll(() -> {
+            for (int r; (r = nextRange.getAndIncrement()) < ranges; ) {
+                int low = r * rangeSize, size = Math.min(n, low + rangeSize) - low;
+                int[] rowStart = new int[size + 1];
+                for (IntList[] own : buffers) {
+                    for (int i = 0; i < own[r].size(); i += 3) rowStart[own[r].get(i) - low + 1]++;
+                }
+                for (int a = 0; a < size; a++) rowStart[a + 1] += rowStart[a];
+                long[] rows = new long[rowStart[size]];
+                int[] fill = Arrays.copyOf(rowStart, size);
+                for (IntList[] own : buffers) {
+                    IntList triples = own[r];
+                    for (int i = 0; i < triples.size(); i += 3) rows[fill[triples.get(i) - low]++] = ((long) triples.get(i + 1) << 32) | triples.get(i + 2);
+                    own[r] = null;
+                }
+                int[] ends = new int[size + 1];
+                IntList edgeTargets = new IntList(), edgeMovieStart = new IntList(), edgeMovies = new IntList();
+                merge(rows, rowStart, fill, ends, edgeTargets, edgeMovieStart, edgeMovies);
+                rangeEnds[r] = ends;
+                rangeTargets[r] = edgeTargets.toArray();
+                rangeMovieStart[r] = edgeMovieStart.toArray();
+                rangeMovies[r] = edgeMovies.toArray();
+            }
+        }, threads);
+
+        //concatenate the ranges, shifting their edge and movie positions
+        int edgeCount = 0, movieTotal = 0;
+        for (int r = 0; r < ranges; r++) {
+            edgeCount += rangeTargets[r].length;
+            movieTotal += rangeMovies[r].length;
+        }
+        offsets = new int[n + 1];
+        targets = new int[edgeCount];
+        movieStart = new int[edgeCount + 1];
+        movies = new int[movieTotal];
+        int edgeBase = 0, movieBase = 0;
+        for (int r = 0; r < ranges; r++) {
+            int low = r * rangeSize;
+            for (int a = 1; a < rangeEnds[r].length; a++) offsets[low + a] = edgeBase + rangeEnds[r][a];
+            System.arraycopy(rangeTargets[r], 0, targets, edgeBase, rangeTargets[r].length);
+            for (int k = 0; k < rangeMovieStart[r].length; k++) movieStart[edgeBase + k] = movieBase + rangeMovieStart[r][k];
+            System.arraycopy(rangeMovies[r], 0, movies, movieBase, rangeMovies[r].length);
+            edgeBase += rangeTargets[r].length;
+            movieBase += rangeMovies[r].length;
+        }
+        movieStart[edgeCount] = movieTotal;
+    }
+
+    /**
+     * Number of undirected co-star edges.
+     */
+    public int numEdges() {
+        return targets.length / 2;
+    }
+
+    public long buildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Titles of the movies shared by the edge in slot k, in movie ID order, as ids into the
+     * index's title pool that are decoded only when read.
+     */
+    public List<String> sharedMovies(int k) {
+        int[] titleIds = new int[movieStart[k + 1] - movieStart[k]];
+        for (int i = 0; i < titleIds.length; i++) titleIds[i] = index.movieTitleId(movies[movieStart[k] + i]);
+        return MovieList.of(index.movieTitles(), titleIds);
+    }
+
+    // actor ID whose row holds each actor's edges: the lowest ID with the same name
+    private int[] canonical() {
+        int[] canon = new int[index.actorIdLimit()], first = new int[index.actorNames().size()];
+        Arrays.fill(first, -1);
+        for (int a = 0; a < canon.length; a++) {
+            int name = index.actorNameId(a);
+            if (name >= 0 && first[name] < 0) first[name] = a;
+            canon[a] = name < 0 ? a : first[name];
+        }
+        return canon;
+    }
+
+    // vertex of each actor ID in the co-star graph: the id of their name in the index's pool, or -1
+    private int[] nameIds() {
+        int[] ids = new int[index.actorIdLimit()];
+        for (int a = 0; a < ids.length; a++) ids[a] = index.actorNameId(a);
+        return ids;
+    }
+
+    /**
+     * Inserts every actor and co-star edge into g, with one shared-movie list per undirected edge
+     * used for both directions, as baconReader builds it. Each actor's vertex is the id of their
+     * name in the index's actorNames() pool.
+     *
+     * @param g graph to fill
+     * @return g
+     */
+    public Graph<Integer, List<String>> insertInto(Graph<Integer, List<String>> g) {
+        int[] ids = nameIds();
+        for (int id : ids) {
+            if (id >= 0) g.insertVertex(id);
+        }
+        for (int a = 0; a < ids.length; a++) {
+            for (int k = offsets[a]; k < offsets[a + 1]; k++) {
+                if (a < targets[k]) g.insertUndirected(ids[a], ids[targets[k]], sharedMovies(k));
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Builds the co-star graph directly in compact form, skipping the nested maps.
+     */
+    public CSRGraph<Integer, List<String>> toCSRGraph() {
+        CSRGraph.Builder<Integer, List<String>> b = new CSRGraph.Builder<>();
+        int[] ids = nameIds();
+        int[] vertexIds = new int[ids.length];
+        for (int a = 0; a < ids.length; a++) {
+            if (ids[a] >= 0) vertexIds[a] = b.addVertex(ids[a]);
+        }
+        for (int a = 0; a < index.actorIdLimit(); a++) {
+            for (int k = offsets[a]; k < offsets[a + 1]; k++) {
+                int c = targets[k];
+                if (a < c) {
+                    List<String> label = sharedMovies(k);
+                    b.addDirected(vertexIds[a], vertexIds[c], label);
+                    b.addDirected(vertexIds[c], vertexIds[a], label);
+                }
+            }
+        }
+        return b.build();
+    }
+
+    // CSR arrays for the graph snapshot and other builders; callers must not modify them
+    int[] offsets() { return offsets; }
+    int[] targets() { return targets; }
+    int[] movieStart() { return movieStart; }
+    int[] movies() { return movies; }
+}
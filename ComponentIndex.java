@@ -0,0 +1,284 @@
+import java.util.*;
+
+/**
+ * Connected-component labeling of a graph, so that reachability, component size and the vertices
+ * with infinite separation are lookups rather than a BFS.
+ * Vertices get dense ids in insertion order; label[id] names the vertex's component, and next/prev
+ * link each component's members in a cycle, so a component is listed in time proportional to its size.
+ * Two components merge by relabeling the smaller one, so every vertex is relabeled O(log n) times over
+ * any sequence of inserts.
+ * Edges are treated as undirected. Registered on an AdjacencyMapGraph, the index follows every change
+ * as it happens (including while baconReader loads). A removed edge u -> v is checked locally: a search
+ * from u and one from v, over the graph as it now is, take turns expanding a vertex until one meets
+ * the other's vertices, which means the component is still whole, or runs out, in which case that
+ * side is split off under a new label. Either way the work is bounded by the smaller side, not the
+ * component. A removed vertex leaves its component, which is then relabeled by searching only it.
+ *
+ * PS4
+ */
+public class ComponentIndex<V, E> implements GraphListener<V, E> {
+    private final GraphView<V, E> graph;
+    private final Map<V, Integer> ids = new HashMap<>();
+    private final List<V> vertices = new ArrayList<>(); //id -> vertex, null once removed
+    private int[] label = new int[16], next = new int[16], prev = new int[16]; //by vertex id
+    private int[] size = new int[16], head = new int[16]; //by label: member count and one member
+    private final IntList freeLabels = new IntList(); //labels of components that have merged away
+    private int numLabels;
+    private final Set<Integer> labels = new LinkedHashSet<>(); //one label per component
+    private int[] mark = new int[16]; //search side of each vertex id, by stamp
+    private int stamp;
+
+    private ComponentIndex(GraphView<V, E> g) {
+        this.graph = g;
+        for (V v : graph.vertices()) add(v);
+        for (V u : graph.vertices()) {
+            for (V v : graph.outNeighbors(u)) union(ids.get(u), ids.get(v));
+        }
+    }
+
+    /**
+     * Labels the components of g, and keeps following g if it is an AdjacencyMapGraph.
+     *
+     * @param g graph to index
+     */
+    public static <V, E> ComponentIndex<V, E> of(GraphView<V, E> g) {
+        ComponentIndex<V, E> index = new ComponentIndex<>(g);
+        //registered once built, so the graph never calls back into a half-made index
+        if (g instanceof AdjacencyMapGraph) ((AdjacencyMapGraph<V, E>) g).addListener(index);
+        return index;
+    }
+
+    private int add(V v) {
+        int id = vertices.size();
+        if (id == next.length) {
+            label = Arrays.copyOf(label, id * 2);
+            next = Arrays.copyOf(next, id * 2);
+            prev = Arrays.copyOf(prev, id * 2);
+            mark = Arrays.copyOf(mark, id * 2);
+        }
+        ids.put(v, id);
+        vertices.add(v);
+        next[id] = id;
+        prev[id] = id;
+        int l = newLabel();
+        label[id] = l;
+        size[l] = 1;
+        head[l] = id;
+        return id;
+    }
+
+    private int newLabel() {
+        int l;
+        if (freeLabels.size() > 0) l = freeLabels.removeLast();
+        else {
+            l = numLabels++;
+            if (l == size.length) {
+                size = Arrays.copyOf(size, l * 2);
+                head = Arrays.copyOf(head, l * 2);
+            }
+        }
+        labels.add(l);
+        return l;
+    }
+
+    private void freeLabel(int l) {
+        labels.remove(l);
+        freeLabels.add(l);
+    }
+
+    // merges the components of a and b, relabeling the smaller
+    private void union(int a, int b) {
+        int la = label[a], lb = label[b];
+        if (la == lb) return;
+        if (size[la] < size[lb]) {
+            int t = la;
+            la = lb;
+            lb = t;
+        }
+        int x = head[lb];
+        do {
+            label[x] = la;
+            x = next[x];
+        } while (x != head[lb]);
+        size[la] += size[lb];
+        // splice the two member cycles together
+        int a0 = head[la], b0 = head[lb], a1 = next[a0], b1 = next[b0];
+        next[a0] = b1;
+        prev[b1] = a0;
+        next[b0] = a1;
+        prev[a1] = b0;
+        freeLabel(lb);
+    }
+
+    // takes x out of its component's member cycle
+    private void unlink(int x) {
+        int l = label[x];
+        size[l]--;
+        if (size[l] == 0) {
+            freeLabel(l);
+            return;
+        }
+        if (head[l] == x) head[l] = next[x];
+        next[prev[x]] = next[x];
+        prev[next[x]] = prev[x];
+        next[x] = x;
+        prev[x] = x;
+    }
+
+    // moves the vertices in split[0 .. count) out of their component into a new one
+    private void splitOff(int[] split, int count) {
+        for (int i = 0; i < count; i++) unlink(split[i]);
+        int l = newLabel();
+        size[l] = count;
+        head[l] = split[0];
+        for (int i = 0; i < count; i++) {
+            int x = split[i], y = split[(i + 1) % count];
+            label[x] = l;
+            next[x] = y;
+            prev[y] = x;
+        }
+    }
+
+    // ids of the vertices adjacent to v either way, for the undirected searches
+    private void neighbors(V v, IntList into) {
+        into.clear();
+        for (V w : graph.outNeighbors(v)) into.add(ids.get(w));
+        for (V w : graph.inNeighbors(v)) into.add(ids.get(w));
+    }
+
+    // the vertices reached from s: its whole component, in order of discovery
+    private int[] reach(int s) {
+        stamp += 2;
+        IntList found = new IntList(), adjacent = new IntList();
+        found.add(s);
+        mark[s] = stamp;
+        for (int i = 0; i < found.size(); i++) {
+            neighbors(vertices.get(found.get(i)), adjacent);
+            for (int k = 0; k < adjacent.size(); k++) {
+                int w = adjacent.get(k);
+                if (mark[w] != stamp) {
+                    mark[w] = stamp;
+                    found.add(w);
+                }
+            }
+        }
+        return found.toArray();
+    }
+
+    // after an edge between a and b has gone: searches from both ends in turn until they meet, or one
+    // side runs out of vertices and is split off as a component of its own
+    private void separate(int a, int b) {
+        stamp += 2;
+        int sideA = stamp, sideB = stamp + 1;
+        int[][] queue = {new int[16], new int[16]};
+        int[] tail = {1, 1}, headAt = {0, 0};
+        queue[0][0] = a;
+        queue[1][0] = b;
+        mark[a] = sideA;
+        mark[b] = sideB;
+        IntList adjacent = new IntList();
+        for (int side = 0; ; side ^= 1) {
+            if (headAt[side] == tail[side]) {
+                splitOff(queue[side], tail[side]);
+                return;
+            }
+            int own = side == 0 ? sideA : sideB, other = side == 0 ? sideB : sideA;
+            neighbors(vertices.get(queue[side][headAt[side]++]), adjacent);
+            for (int k = 0; k < adjacent.size(); k++) {
+                int w = adjacent.get(k);
+                if (mark[w] == other) return; //the two ends are still connected
+                if (mark[w] != own) {
+                    mark[w] = own;
+                    if (tail[side] == queue[side].length) queue[side] = Arrays.copyOf(queue[side], tail[side] * 2);
+                    queue[side][tail[side]++] = w;
+                }
+            }
+        }
+    }
+
+    // label of v's component, or -1 if v is not in the graph
+    private int labelOf(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : label[id];
+    }
+
+    private void members(int l, Collection<V> into) {
+        int x = head[l];
+        do {
+            into.add(vertices.get(x));
+            x = next[x];
+        } while (x != head[l]);
+    }
+
+    public void vertexInserted(V v) {
+        add(v);
+    }
+
+    public void edgeInserted(V u, V v, E e) {
+        union(ids.get(u), ids.get(v));
+    }
+
+    public void edgeRemoved(V u, V v) {
+        int a = ids.get(u), b = ids.get(v);
+        //while a vertex is being removed its own maps still hold the edge, so the searches meet at once
+        //and vertexRemoved splits what is left
+        if (a != b && label[a] == label[b]) separate(a, b);
+    }
+
+    public void vertexRemoved(V v) {
+        int id = ids.remove(v);
+        int l = label[id], rest = next[id];
+        unlink(id);
+        vertices.set(id, null);
+        if (rest == id) return;
+        //what is left of the component may be in pieces: peel off each piece the search reaches
+        while (true) {
+            int[] piece = reach(rest);
+            if (piece.length == size[l]) return;
+            splitOff(piece, piece.length);
+            rest = head[l];
+        }
+    }
+
+    /**
+     * Whether there is a path between u and v (ignoring edge direction).
+     */
+    public boolean connected(V u, V v) {
+        int lu = labelOf(u);
+        return lu >= 0 && lu == labelOf(v);
+    }
+
+    /**
+     * Number of vertices in v's component, including v; 0 if v is not in the graph.
+     */
+    public int componentSize(V v) {
+        int l = labelOf(v);
+        return l < 0 ? 0 : size[l];
+    }
+
+    /**
+     * The vertices in v's component, including v; empty if v is not in the graph.
+     */
+    public List<V> component(V v) {
+        List<V> component = new ArrayList<>();
+        int l = labelOf(v);
+        if (l >= 0) members(l, component);
+        return component;
+    }
+
+    /**
+     * The vertices with no path to v, i.e. infinite separation; every vertex if v is not in the graph.
+     */
+    public Set<V> disconnectedFrom(V v) {
+        int l = labelOf(v);
+        Set<V> missing = new HashSet<>();
+        for (int other : labels) {
+            if (other != l) members(other, missing);
+        }
+        return missing;
+    }
+
+    public int numComponents() {
+        return labels.size();
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.*;
+
+/**
+ * In-degree index of a graph: each vertex sits in the bucket of its current in-degree, and only
+ * non-empty buckets are kept, ordered by degree. Degree-range and top-k queries walk the buckets
+ * from the highest degree down, so they take time proportional to the output instead of
+ * rebuilding and sorting a degree map as GraphLibrary.verticesByInDegree does.
+ * Registered on an AdjacencyMapGraph, it moves a vertex between buckets on every
+ * insertDirected/removeDirected (and vertex insert/remove) as it happens.
+ *
+ * PS4
+ */
+public class DegreeIndex<V, E> implements GraphListener<V, E> {
+    private final Map<V, Integer> degree = new HashMap<>(); //vertex -> in-degree
+    private final TreeMap<Integer, Set<V>> buckets = new TreeMap<>(); //in-degree -> vertices, non-empty only
+
+    private DegreeIndex(GraphView<V, E> g) {
+        for (V v : g.vertices()) place(v, g.inDegree(v));
+    }
+
+    /**
+     * Indexes the in-degrees of g, and keeps following g if it is an AdjacencyMapGraph.
+     *
+     * @param g graph to index
+     */
+    public static <V, E> DegreeIndex<V, E> of(GraphView<V, E> g) {
+        DegreeIndex<V, E> index = new DegreeIndex<>(g);
+        if (g instanceof AdjacencyMapGraph) ((AdjacencyMapGraph<V, E>) g).addListener(index);
+        return index;
+    }
+
+    private void place(V v, int d) {
+        degree.put(v, d);
+        buckets.computeIfAbsent(d, k -> new LinkedHashSet<>()).add(v);
+    }
+
+    private void unplace(V v, int d) {
+        Set<V> bucket = buckets.get(d);
+        bucket.remove(v);
+        if (bucket.isEmpty()) buckets.remove(d);
+    }
+
+    private void move(V v, int delta) {
+        Integer d = degree.get(v);
+        if (d == null) return;
+        unplace(v, d);
+        place(v, d + delta);
+    }
+
+    public void vertexInserted(V v) {
+        place(v, 0);
+    }
+
+    public void edgeInserted(V u, V v, E e) {
+        move(v, 1);
+    }
+
+    public void edgeRemoved(V u, V v) {
+        move(v, -1);
+    }
+
+    public void vertexRemoved(V v) {
+        Integer d = degree.remove(v);
+        if (d != null) unplace(v, d);
+    }
+
+    /**
+     * In-degree of v, or -1 if v is not in the graph.
+     */
+    public int inDegree(V v) {
+        Integer d = degree.get(v);
+        return d == null ? -1 : d;
+    }
+
+    /**
+     * Largest in-degree in the graph, or -1 if it is empty.
+     */
+    public int maxInDegree() {
+        return buckets.isEmpty() ? -1 : buckets.lastKey();
+    }
+
+    /**
+     * Vertices with in-degree between low and high, in decreasing order of in-degree.
+     *
+     * @param low  smallest in-degree to include
+     * @param high largest in-degree to include
+     * @return the vertices, largest in-degree first
+     */
+    public List<V> verticesByInDegree(int low, int high) {
+        List<V> vertices = new ArrayList<>();
+        if (low > high) return vertices;
+        for (Set<V> bucket : buckets.subMap(low, true, high, true).descendingMap().values()) vertices.addAll(bucket);
+        return vertices;
+    }
+
+    /**
+     * The k vertices with the largest in-degree, largest first.
+     */
+    public List<V> top(int k) {
+        List<V> vertices = new ArrayList<>(Math.max(k, 0));
+        for (Set<V> bucket : buckets.descendingMap().values()) {
+            for (V v : bucket) {
+                if (vertices.size() == k) return vertices;
+                vertices.add(v);
+            }
+        }
+        return vertices;
+    }
+}
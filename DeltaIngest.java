@@ -0,0 +1,176 @@
+import java.util.*;
+
+/**
+ * Applies added and removed movie-actor rows to a co-star graph built from a CastIndex, touching only
+ * the edges between the changed actor and the rest of that movie's cast.
+ * For each such pair the shared movies are recomputed from the two actors' film sets, and the edge is
+ * reinserted with a new immutable label (one list for both directions, as CoStarBuilder builds them),
+ * or removed when the pair no longer shares a movie. Indexes registered on the graph as GraphListeners
+ * (ComponentIndex, DegreeIndex, BFSCache) are patched by these inserts and removes as they happen.
+ * The casts and film sets of the movies and actors a delta touches are copied out of the index on first
+ * use and kept here, and each changed row is handed back to the index, which folds its changes into the
+ * CSR arrays only when they are next read (e.g. by a bipartite search). So the cost of a delta is
+ * proportional to the casts and filmographies it touches, not to the whole data set.
+ * New actors and movies are added with addActor/addMovie before their rows. Not thread-safe.
+ *
+ * PS4
+ */
+public class DeltaIngest {
+    private final CastIndex index;
+    private final Graph<Integer, List<String>> graph; //vertices are actor name ids, as CoStarBuilder inserts them
+    private final Map<Integer, Set<Integer>> casts = new HashMap<>(); //movie ID -> actor IDs, for touched movies
+    private final Map<Integer, TreeSet<Integer>> films = new HashMap<>(); //actor ID -> movie IDs, for touched actors
+    private int added, removed;
+
+    /**
+     * @param index index the graph was built from, which also holds the names
+     * @param graph co-star graph to keep up to date
+     */
+    public DeltaIngest(CastIndex index, Graph<Integer, List<String>> graph) {
+        this.index = index;
+        this.graph = graph;
+    }
+
+    /**
+     * Adds an actor, or renames nothing if the ID is already taken by the same name.
+     *
+     * @throws IllegalArgumentException if the ID is negative or belongs to another actor
+     */
+    public void addActor(int actorId, String name) {
+        if (index.hasActor(actorId)) {
+            if (!index.actorName(actorId).equals(name)) throw new IllegalArgumentException("actor ID " + actorId + " is " + index.actorName(actorId));
+            return;
+        }
+        index.actor(actorId, name);
+        graph.insertVertex(index.actorNameId(actorId));
+    }
+
+    /**
+     * Adds a movie with no cast yet.
+     *
+     * @throws IllegalArgumentException if the ID is negative or belongs to another movie
+     */
+    public void addMovie(int movieId, String title) {
+        if (index.hasMovie(movieId)) {
+            if (!index.movieTitle(movieId).equals(title)) throw new IllegalArgumentException("movie ID " + movieId + " is " + index.movieTitle(movieId));
+            return;
+        }
+        index.movie(movieId, title);
+    }
+
+    /**
+     * Adds the row "movieId|actorId": the actor gets an edge to, or one more shared movie with,
+     * every other member of the movie's cast.
+     *
+     * @return whether the row was new
+     * @throws IllegalArgumentException if the actor or movie is unknown
+     */
+    public boolean addRow(int movieId, int actorId) {
+        Set<Integer> cast = cast(movieId);
+        requireActor(actorId);
+        if (!cast.add(actorId)) return false;
+        films(actorId).add(movieId);
+        record(movieId, actorId);
+        for (int b : cast) {
+            if (b != actorId) relabel(actorId, b);
+        }
+        added++;
+        return true;
+    }
+
+    /**
+     * Removes the row "movieId|actorId": the actor loses that shared movie with the rest of the cast,
+     * and the edge to any co-star they no longer share a movie with.
+     *
+     * @return whether the row was there
+     * @throws IllegalArgumentException if the actor or movie is unknown
+     */
+    public boolean removeRow(int movieId, int actorId) {
+        Set<Integer> cast = cast(movieId);
+        requireActor(actorId);
+        if (!cast.remove(actorId)) return false;
+        films(actorId).remove(movieId);
+        record(movieId, actorId);
+        for (int b : cast) relabel(actorId, b);
+        removed++;
+        return true;
+    }
+
+    /**
+     * Number of rows added and removed so far.
+     */
+    public int rowsAdded() {
+        return added;
+    }
+
+    public int rowsRemoved() {
+        return removed;
+    }
+
+    // reinserts the edge between the vertices of a and b with the movies they now share, or removes it if
+    // there are none; actors with the same name are one vertex, so the movies of all of them count
+    private void relabel(int a, int b) {
+        int u = index.actorNameId(a), v = index.actorNameId(b);
+        if (u == v) return;
+        Set<Integer> filmsA = filmsNamed(u, a), filmsB = filmsNamed(v, b);
+        if (filmsA.size() > filmsB.size()) {
+            Set<Integer> t = filmsA;
+            filmsA = filmsB;
+            filmsB = t;
+        }
+        IntList titleIds = new IntList();
+        for (int m : filmsA) {
+            if (filmsB.contains(m)) titleIds.add(index.movieTitleId(m));
+        }
+        if (titleIds.size() > 0) graph.insertUndirected(u, v, MovieList.of(index.movieTitles(), titleIds.toArray()));
+        else if (graph.hasEdge(u, v)) graph.removeUndirected(u, v);
+    }
+
+    // films of every actor named like actorId (whose name has id nameId), in movie ID order
+    private Set<Integer> filmsNamed(int nameId, int actorId) {
+        int[] actors = index.actorsNamed(nameId);
+        if (actors.length == 1) return films(actorId);
+        TreeSet<Integer> all = new TreeSet<>();
+        for (int a : actors) all.addAll(films(a));
+        return all;
+    }
+
+    // hands the movie's cast and the actor's films, as they are now, back to the index
+    private void record(int movieId, int actorId) {
+        index.update(movieId, toArray(casts.get(movieId)), actorId, toArray(films.get(actorId)));
+    }
+
+    private static int[] toArray(Collection<Integer> ids) {
+        int[] array = new int[ids.size()];
+        int i = 0;
+        for (int id : ids) array[i++] = id;
+        return array;
+    }
+
+    private void requireActor(int actorId) {
+        if (!index.hasActor(actorId)) throw new IllegalArgumentException("unknown actor ID " + actorId);
+    }
+
+    // cast of a movie, copied out of the index on first use
+    private Set<Integer> cast(int movieId) {
+        Set<Integer> cast = casts.get(movieId);
+        if (cast == null) {
+            if (!index.hasMovie(movieId)) throw new IllegalArgumentException("unknown movie ID " + movieId);
+            cast = new HashSet<>();
+            for (int actor : index.castOf(movieId)) cast.add(actor);
+            casts.put(movieId, cast);
+        }
+        return cast;
+    }
+
+    // films of an actor, copied out of the index on first use, in movie ID order
+    private TreeSet<Integer> films(int actorId) {
+        TreeSet<Integer> own = films.get(actorId);
+        if (own == null) {
+            own = new TreeSet<>();
+            for (int movie : index.filmsOf(actorId)) own.add(movie);
+            films.put(actorId, own);
+        }
+        return own;
+    }
+}
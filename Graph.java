@@ -0,0 +1,39 @@
+/**
+ * Graph ADT: vertices of type V, directed edges labeled with E
+ * An undirected edge is a pair of directed edges with the same label
+ * Inspired by and loosely based on Goodrich & Tamassia
+ *
+ * @author Chris Bailey-Kellogg, Dartmouth CS 10, Spring 2015
+ */
+
+public interface Graph<V,E> extends GraphView<V,E> {
+	/**
+	 * Adds the vertex to the graph; does nothing if it is already there
+	 */
+	public void insertVertex(V v);
+
+	/**
+	 * Adds an edge from u to v with label e, replacing the label if the edge is already there
+	 */
+	public void insertDirected(V u, V v, E e);
+
+	/**
+	 * Adds edges u -> v and v -> u, both labeled e
+	 */
+	public void insertUndirected(V u, V v, E e);
+
+	/**
+	 * Removes the vertex and every edge to or from it
+	 */
+	public void removeVertex(V v);
+
+	/**
+	 * Removes the edge from u to v
+	 */
+	public void removeDirected(V u, V v);
+
+	/**
+	 * Removes the edges u -> v and v -> u
+	 */
+	public void removeUndirected(V u, V v);
+}
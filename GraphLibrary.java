@@ -12,31 +12,77 @@ public class GraphLibrary {
     /**
      * BFS to find the shortest path tree for a current center of the universe.
      * Return a path tree as a Graph.
+     * The search runs over int arrays (see bfsResult) and only the tree is built as a Graph.
      *
      * @param g      graph to search on
      * @param source starting vertex of the search
-     * @return a graph representing the shortest path tree
+     * @return a graph representing the shortest path tree, or null if source is not in the graph
      */
-    public static <V, E> Graph<V, E> bfs(Graph<V, E> g, V source) {
-        Graph<V, E> tree = new AdjacencyMapGraph<>();
-        Queue<V> queue = new ArrayDeque<>();
+    public static <V, E> Graph<V, E> bfs(GraphView<V, E> g, V source) {
+        return bfs(g, source, false);
+    }
 
-        if (!g.hasVertex(source)) return null;//return null if source does not exist
+    /**
+     * BFS path tree as bfs(g, source) returns it, optionally from a direction-optimizing search that
+     * expands large frontiers bottom-up; distances are the same, parents may differ within a level.
+     *
+     * @param g                   graph to search on
+     * @param source              starting vertex of the search
+     * @param directionOptimizing whether to switch to bottom-up steps while the frontier is large
+     * @return a graph representing the shortest path tree, or null if source is not in the graph
+     */
+    public static <V, E> Graph<V, E> bfs(GraphView<V, E> g, V source, boolean directionOptimizing) {
+        BFSResult<V, E> result = bfsResult(g, source, directionOptimizing);
+        return result == null ? null : result.toGraph();
+    }
 
-        queue.add(source);
-        tree.insertVertex(source);
+    /**
+     * BFS to find the shortest path tree for a current center of the universe,
+     * kept as parent/distance arrays over dense vertex ids rather than as a Graph.
+     * A graph that is not already a CSRGraph is compacted first; CSRGraph.of keeps that copy until the graph changes.
+     *
+     * @param g      graph to search on
+     * @param source starting vertex of the search
+     * @return the search result, or null if source is not in the graph
+     */
+    public static <V, E> BFSResult<V, E> bfsResult(GraphView<V, E> g, V source) {
+        return bfsResult(g, source, false);
+    }
 
-        while (!queue.isEmpty()) {
-            V currentVertex = queue.remove();
-            for (V neighbor : g.outNeighbors(currentVertex)) {
-                if (!tree.hasVertex(neighbor)) {
-                    queue.add(neighbor);
-                    tree.insertVertex(neighbor);
-                    tree.insertDirected(neighbor, currentVertex, g.getLabel(currentVertex, neighbor));
-                }
-            }
-        }
-        return tree;
+    /**
+     * As bfsResult(g, source), optionally direction-optimizing.
+     *
+     * @param directionOptimizing whether to switch to bottom-up steps while the frontier is large
+     */
+    public static <V, E> BFSResult<V, E> bfsResult(GraphView<V, E> g, V source, boolean directionOptimizing) {
+        CSRGraph<V, E> compact = CSRGraph.of(g);
+        if (!compact.hasVertex(source)) return null;
+        return new BFSResult<>(compact, directionOptimizing).search(source);
+    }
+
+    /**
+     * BFS over the bipartite actor-movie index, expanding through movie nodes but counting only
+     * actor hops, so separations match the co-star graph without building its cliques.
+     *
+     * @param cast   bipartite index to search on
+     * @param source starting actor of the search
+     * @return the search result, or null if source is not in the index
+     */
+    public static CastBFSResult bfs(CastIndex cast, String source) {
+        if (cast.actorId(source) < 0) return null;
+        return new CastBFSResult(cast).search(source);
+    }
+
+    /**
+     * construct a path from an actor back to the center of a bipartite search.
+     *
+     * @param tree result of the bipartite search
+     * @param v    actor to construct the path for
+     * @return list of actors in the path, in order from v back to the root; the shared movie between
+     * consecutive actors comes from tree.getMovies(v)
+     */
+    public static List<String> getPath(CastBFSResult tree, String v) {
+        return tree.getPath(v);
     }
 
     /**
@@ -47,7 +93,7 @@ public class GraphLibrary {
      * @return list of vertices in the path, in order from v back to the root of the tree
      */
 
-    public static <V, E> List<V> getPath(Graph<V, E> tree, V v) {
+    public static <V, E> List<V> getPath(GraphView<V, E> tree, V v) {
         // Initialize a list to store the shortest path.
         List<V> shortestPath = new ArrayList<>();
 
@@ -79,6 +125,91 @@ public class GraphLibrary {
     }
 
 
+    /**
+     * Point-to-point shortest path by bidirectional BFS: searches a level at a time from whichever end
+     * has the smaller frontier (forward along out-edges from the start, backward along in-edges from the
+     * goal) and stops at the first level where the two searches meet, so only the neighborhoods of the
+     * endpoints are touched rather than the whole graph.
+     *
+     * @param g    graph to search on
+     * @param from first vertex of the path
+     * @param to   last vertex of the path
+     * @return list of vertices in a shortest path, in order from "from" to "to"; empty if either vertex
+     * is not in the graph or there is no path
+     */
+    public static <V, E> List<V> shortestPath(GraphView<V, E> g, V from, V to) {
+        List<V> path = new ArrayList<>();
+        if (!g.hasVertex(from) || !g.hasVertex(to)) return path;
+        if (from.equals(to)) {
+            path.add(from);
+            return path;
+        }
+
+        long started = GraphMetrics.start();
+        long scanned = 0;
+        //each side maps a reached vertex to its distance and its next vertex toward that side's end
+        Map<V, Integer> forwardDist = new HashMap<>(), backwardDist = new HashMap<>();
+        Map<V, V> forwardParent = new HashMap<>(), backwardParent = new HashMap<>();
+        List<V> forwardFrontier = new ArrayList<>(), backwardFrontier = new ArrayList<>();
+        forwardDist.put(from, 0);
+        backwardDist.put(to, 0);
+        forwardFrontier.add(from);
+        backwardFrontier.add(to);
+
+        V meet = null, meetParent = null;
+        boolean meetForward = true;
+        int best = Integer.MAX_VALUE;
+        while (meet == null && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+            Map<V, Integer> dist = forward ? forwardDist : backwardDist, otherDist = forward ? backwardDist : forwardDist;
+            Map<V, V> parent = forward ? forwardParent : backwardParent;
+            List<V> nextFrontier = new ArrayList<>();
+            //expand the whole level, keeping the shortest meeting through it
+            for (V u : forward ? forwardFrontier : backwardFrontier) {
+                int d = dist.get(u) + 1;
+                for (V w : forward ? g.outNeighbors(u) : g.inNeighbors(u)) {
+                    scanned++;
+                    Integer other = otherDist.get(w);
+                    if (other != null && d + other < best) {
+                        best = d + other;
+                        meet = w;
+                        meetParent = u;
+                        meetForward = forward;
+                    }
+                    if (!dist.containsKey(w)) {
+                        dist.put(w, d);
+                        parent.put(w, u);
+                        nextFrontier.add(w);
+                    }
+                }
+            }
+            if (forward) forwardFrontier = nextFrontier;
+            else backwardFrontier = nextFrontier;
+        }
+        GraphMetrics.bfs(started, forwardDist.size() + backwardDist.size(), scanned);
+        if (meet == null) return path;
+
+        //the edge meetParent-meet joins the two halves; walk each half back to its end
+        V first = meetForward ? meetParent : meet, second = meetForward ? meet : meetParent;
+        for (V v = first; v != null; v = forwardParent.get(v)) path.add(v);
+        Collections.reverse(path);
+        for (V v = second; v != null; v = backwardParent.get(v)) path.add(v);
+        return path;
+    }
+
+    /**
+     * Labels of the edges along a path, e.g. the shared movies between consecutive actors.
+     *
+     * @param g    graph the path is in
+     * @param path vertices of the path, in order
+     * @return list whose element i is the label of the edge from path[i] to path[i+1]
+     */
+    public static <V, E> List<E> pathLabels(GraphView<V, E> g, List<V> path) {
+        List<E> labels = new ArrayList<>();
+        for (int i = 0; i + 1 < path.size(); i++) labels.add(g.getLabel(path.get(i), path.get(i + 1)));
+        return labels;
+    }
+
     /**
      * Given a graph and a subgraph, determine which vertices are in the graph but not the subgraph.
      *
@@ -86,7 +217,7 @@ public class GraphLibrary {
      * @param subgraph the subgraph
      * @return set of vertices in the graph but not the subgraph
      */
-    public static <V, E> Set<V> missingVertices(Graph<V, E> graph, Graph<V, E> subgraph) {
+    public static <V, E> Set<V> missingVertices(GraphView<V, E> graph, GraphView<V, E> subgraph) {
         Set<V> missing = new HashSet<>();//create empty Hashset
         if (graph.numVertices() == 0) {//if no vertices return the empty list
             return missing;
@@ -109,7 +240,7 @@ public class GraphLibrary {
      * @param <E>
      * @return value of the average separation between vertices in map and a root
      */
-    public static <V, E> double averageSeparation(Graph<V, E> tree, V root) {
+    public static <V, E> double averageSeparation(GraphView<V, E> tree, V root) {
         double averageHelper = 0;
         int length = 0;
         double average = 0;
@@ -131,25 +262,101 @@ public class GraphLibrary {
      * @param <E>
      * @return the recursive value of average separation
      */
-    public static <V, E> double averageDistanceHelper(Graph<V, E> tree, V root, int length) {
-        int avgDistance = length; //Keeps count of average separation
+    public static <V, E> double averageDistanceHelper(GraphView<V, E> tree, V root, int length) {
+        long avgDistance = 0; //Keeps count of average separation
 
-        //checks if current node has no neighbor
-        if (tree.inNeighbors(root) != null) {
-            for (V vertice : tree.inNeighbors(root)) {
-                avgDistance += averageDistanceHelper(tree, vertice, length + 1);
+        //walking the tree with an explicit stack instead of recursion, so long chains cannot overflow the call stack
+        Deque<V> stack = new ArrayDeque<>();
+        IntList depths = new IntList();
+        stack.push(root);
+        depths.add(length);
+        while (!stack.isEmpty()) {
+            V vertex = stack.pop();
+            int depth = depths.removeLast();
+            avgDistance += depth;
+            //checks if current node has no neighbor
+            if (tree.inNeighbors(vertex) != null) {
+                for (V vertice : tree.inNeighbors(vertex)) {
+                    stack.push(vertice);
+                    depths.add(depth + 1);
+                }
             }
         }
         return avgDistance;
     }
 
+    /**
+     * Separation counts from many centers at once, searching from 64 of them per pass over the graph.
+     * A graph that is not already a CSRGraph is compacted first.
+     *
+     * @param g       graph to search on
+     * @param sources centers to search from
+     * @return distance histogram, distance sum and reached count for each source, in the order given
+     */
+    public static <V, E> MultiSourceBFS.Counts separationCounts(GraphView<V, E> g, List<V> sources) {
+        return new MultiSourceBFS<>(CSRGraph.of(g)).search(sources);
+    }
+
+    /**
+     * Separation statistics of a center from one BFS, counted per level as the search runs:
+     * no path tree, no recursion and no allocation per vertex.
+     * A graph that is not already a CSRGraph is compacted first.
+     *
+     * @param g      graph to search on
+     * @param center vertex to measure separations from
+     * @return mean, eccentricity, distance histogram and reachable count, or null if center is not in the graph
+     */
+    public static <V, E> SeparationStats separationStats(GraphView<V, E> g, V center) {
+        BFSResult<V, E> result = bfsResult(g, center);
+        return result == null ? null : result.separationStats();
+    }
+
+    /**
+     * Estimated average separation of every vertex connected to center, from BFS runs out of a seeded
+     * random sample of pivots, with error bounds. A graph that is not already a CSRGraph is compacted first.
+     *
+     * @param g      graph to estimate on, whose edges go both ways
+     * @param center vertex whose connected component is estimated
+     * @param pivots number of vertices to search from
+     * @param seed   seed for choosing the pivots, so the same seed gives the same estimates
+     * @return the estimates
+     */
+    public static <V, E> ApproximateCloseness<V, E> estimateSeparations(GraphView<V, E> g, V center, int pivots, long seed) {
+        return ApproximateCloseness.estimate(CSRGraph.of(g), center, pivots, seed);
+    }
+
+    /**
+     * The best (k > 0) or worst (k < 0) |k| centers of the universe among the vertices connected to center.
+     * With pivots > 0, estimates from that many pivot searches rule out most vertices first and only
+     * the rest are searched exactly; otherwise every vertex is searched.
+     * A graph that is not already a CSRGraph is compacted first.
+     *
+     * @param g       graph to rank, whose edges go both ways
+     * @param center  vertex whose connected component is ranked
+     * @param k       number of centers, positive for the best and negative for the worst
+     * @param pivots  number of pivots for the estimates, or 0 for an exact ranking
+     * @param seed    seed for choosing the pivots
+     * @param threads number of worker threads for the exact searches
+     * @return centers, best (or worst) first
+     */
+    public static <V, E> List<V> centers(GraphView<V, E> g, V center, int k, int pivots, long seed, int threads) {
+        CSRGraph<V, E> csr = CSRGraph.of(g);
+        if (pivots <= 0) {
+            ClosenessRanking<V, E> ranking = ClosenessRanking.compute(csr, center, threads, true);
+            return k > 0 ? ranking.top(k) : ranking.bottom(-k);
+        }
+        ApproximateCloseness<V, E> estimates = ApproximateCloseness.estimate(csr, center, pivots, seed);
+        return k > 0 ? estimates.confirmTop(k, ApproximateCloseness.Z, threads).top(k)
+                : estimates.confirmBottom(-k, ApproximateCloseness.Z, threads).bottom(-k);
+    }
+
     /**
      * Orders vertices in decreasing order by their in-degree
      *
      * @param g graph
      * @return list of vertices sorted by in-degree, decreasing (i.e., largest at index 0)
      */
-    public static <V, E> List<V> verticesByInDegree(Graph<V, E> g) {
+    public static <V, E> List<V> verticesByInDegree(GraphView<V, E> g) {
         Map<V, Integer> inDegree = new HashMap<>();//Vertex Key : Value in-degree
         for (V vertex : g.vertices()) {
             inDegree.put(vertex, g.inDegree(vertex));
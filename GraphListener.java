@@ -0,0 +1,35 @@
+/**
+ * Receives the changes made to an AdjacencyMapGraph, so that indexes derived from it
+ * can be kept up to date instead of being rebuilt.
+ * Edge events are per direction: insertUndirected reports two edgeInserted calls.
+ *
+ * PS4
+ */
+public interface GraphListener<V, E> {
+    /**
+     * A vertex that was not in the graph has been added.
+     */
+    void vertexInserted(V v);
+
+    /**
+     * An edge u -> v that was not in the graph has been added with label e.
+     */
+    void edgeInserted(V u, V v, E e);
+
+    /**
+     * The edge u -> v, already in the graph, has been given a new label e.
+     * Nothing derived from the graph's structure alone needs to follow this.
+     */
+    default void edgeLabeled(V u, V v, E e) {
+    }
+
+    /**
+     * The edge u -> v has been removed, directly or because one of its ends was removed.
+     */
+    void edgeRemoved(V u, V v);
+
+    /**
+     * A vertex has been removed, after edgeRemoved was reported for each of its edges.
+     */
+    void vertexRemoved(V v);
+}
@@ -0,0 +1,202 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide metrics for the game's hot paths: BFS searches (latency, vertices visited, edges
+ * scanned), per-command latency histograms and allocated bytes, the hit rate of the BFS cache,
+ * and how long each load phase took.
+ * Instrumented code calls start() before the work and one of the record methods after it; while
+ * metrics are disabled start() returns 0 after a single volatile read and the record methods return
+ * at once, so the cost is near zero. Metrics are enabled with -Dbacon.metrics=true or through JMX.
+ * Everything can be read through the GraphMetricsMBean or printed periodically as text.
+ *
+ * PS4
+ */
+public class GraphMetrics implements GraphMetricsMBean {
+    private static final GraphMetrics INSTANCE = new GraphMetrics();
+    private static volatile boolean enabled = Boolean.getBoolean("bacon.metrics");
+
+    private final LongAdder searches = new LongAdder(), visited = new LongAdder(), scanned = new LongAdder();
+    private final LatencyHistogram bfsLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> commandBytes = new ConcurrentHashMap<>();
+    private final Map<String, Long> phases = new ConcurrentHashMap<>(); //load phase -> nanos, last run
+    private volatile BFSCache<?, ?> cache;
+
+    private GraphMetrics() {
+    }
+
+    public static GraphMetrics get() {
+        return INSTANCE;
+    }
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Start time for a record method, or 0 while metrics are disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 while disabled or where the JVM cannot tell.
+     */
+    public static long allocated() {
+        if (!enabled) return -1;
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean
+                ? ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Records a BFS that started at start and reached visited vertices over scanned edges.
+     */
+    public static void bfs(long start, long visited, long scanned) {
+        if (start == 0) return;
+        INSTANCE.bfsLatency.record(System.nanoTime() - start);
+        INSTANCE.searches.increment();
+        INSTANCE.visited.add(visited);
+        INSTANCE.scanned.add(scanned);
+    }
+
+    /**
+     * Records a command that started at start, when the thread had allocated startBytes.
+     *
+     * @param name       command, e.g. "p"
+     * @param start      value of start() before the command
+     * @param startBytes value of allocated() before the command
+     */
+    public static void command(String name, long start, long startBytes) {
+        if (start == 0) return;
+        INSTANCE.commands.computeIfAbsent(name, k -> new LatencyHistogram()).record(System.nanoTime() - start);
+        long bytes = startBytes < 0 ? -1 : allocated();
+        if (bytes >= startBytes && startBytes >= 0) INSTANCE.commandBytes.computeIfAbsent(name, k -> new LongAdder()).add(bytes - startBytes);
+    }
+
+    /**
+     * Records how long a load phase took; kept even while disabled, since loads are rare.
+     */
+    public static void phase(String name, long nanos) {
+        INSTANCE.phases.put(name, nanos);
+    }
+
+    /**
+     * Reports the hit rate of this cache from now on.
+     */
+    public static void watch(BFSCache<?, ?> cache) {
+        INSTANCE.cache = cache;
+    }
+
+    /**
+     * Registers the MBean, and prints the metrics every bacon.metrics.dump seconds if that is set.
+     */
+    public static void install() {
+        try {
+            ObjectName name = new ObjectName("bacon:type=GraphMetrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+        } catch (JMException e) {
+            System.err.println("could not register metrics MBean: " + e.getMessage());
+        }
+        long period = Long.getLong("bacon.metrics.dump", 0);
+        if (period > 0) startDump(period, System.err);
+    }
+
+    /**
+     * Prints dump() to out every period seconds on a daemon thread.
+     *
+     * @return the scheduler, to shut down to stop the dump
+     */
+    public static ScheduledExecutorService startDump(long period, PrintStream out) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bacon-metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(() -> out.print(INSTANCE.dump()), period, period, TimeUnit.SECONDS);
+        return timer;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public long getBfsSearches() {
+        return searches.sum();
+    }
+
+    public long getVerticesVisited() {
+        return visited.sum();
+    }
+
+    public long getEdgesScanned() {
+        return scanned.sum();
+    }
+
+    public String getBfsLatency() {
+        return bfsLatency.toString();
+    }
+
+    public double getCacheHitRate() {
+        BFSCache<?, ?> c = cache;
+        return c == null ? 0 : c.hitRate();
+    }
+
+    public String getCommandLatencies() {
+        StringBuilder s = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(commands).entrySet()) {
+            LongAdder bytes = commandBytes.get(e.getKey());
+            s.append(e.getKey()).append(": ").append(e.getValue());
+            if (bytes != null) s.append(" allocated=").append(bytes.sum() / Math.max(1, e.getValue().count())).append("B/op");
+            s.append('\n');
+        }
+        return s.toString();
+    }
+
+    public String getLoadPhases() {
+        StringBuilder s = new StringBuilder();
+        for (Map.Entry<String, Long> e : new TreeMap<>(phases).entrySet()) {
+            s.append(e.getKey()).append(": ").append(e.getValue() / 1000000).append(" ms\n");
+        }
+        return s.toString();
+    }
+
+    public String dump() {
+        StringBuilder s = new StringBuilder("--- graph metrics").append(enabled ? "" : " (disabled)").append(" ---\n");
+        s.append("bfs: searches=").append(getBfsSearches()).append(" visited=").append(getVerticesVisited())
+                .append(" scanned=").append(getEdgesScanned()).append(' ').append(getBfsLatency()).append('\n');
+        BFSCache<?, ?> c = cache;
+        if (c != null) s.append("cache: ").append(c).append('\n');
+        for (String line : getCommandLatencies().split("\n")) {
+            if (!line.isEmpty()) s.append("command ").append(line).append('\n');
+        }
+        for (String line : getLoadPhases().split("\n")) {
+            if (!line.isEmpty()) s.append("load ").append(line).append('\n');
+        }
+        return s.toString();
+    }
+
+    public void reset() {
+        searches.reset();
+        visited.reset();
+        scanned.reset();
+        bfsLatency.reset();
+        commands.clear();
+        commandBytes.clear();
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * JMX view of GraphMetrics, registered as bacon:type=GraphMetrics.
+ *
+ * PS4
+ */
+public interface GraphMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getBfsSearches();
+
+    long getVerticesVisited();
+
+    long getEdgesScanned();
+
+    String getBfsLatency();
+
+    /**
+     * Fraction of BFS tree lookups answered from the watched BFSCache.
+     */
+    double getCacheHitRate();
+
+    /**
+     * Latency histogram and allocated bytes of each command, one line per command.
+     */
+    String getCommandLatencies();
+
+    /**
+     * Duration of each load phase the last time it ran, one line per phase.
+     */
+    String getLoadPhases();
+
+    /**
+     * Everything above as the periodic text dump prints it.
+     */
+    String dump();
+
+    void reset();
+}
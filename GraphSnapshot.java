@@ -0,0 +1,465 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshot of a built co-star graph and the CastIndex it was built from, so startup
+ * can skip parsing the text files and recomputing every clique.
+ * Layout (little-endian ints): a 32-byte header of magic, format version, flags (whether the graph is
+ * symmetric), the length of the metadata, a CRC32 of everything after the header and a CRC32 of the
+ * header and metadata (both as longs); the metadata: the size, modification time and SHA-256 of each
+ * source text file, then the counts; then the actor name and movie title string tables (offsets into
+ * a UTF-8 blob padded to 4 bytes); the index's name and title id per actor and movie ID and its cast
+ * and film CSR arrays; the actor name id of each vertex and the vertex id of each name (-1 for none);
+ * the CSR adjacency (offsets, targets, label id per edge), followed by the in-adjacency only if the
+ * graph is not symmetric; and the label table as movie-list arrays (start of each label's movies,
+ * title ids). A label shared by both directions of an edge is stored once.
+ * The file is opened with FileChannel.map, so processes on one host read it through the same page
+ * cache, and the graph is served from the mapping: its CSR arrays are IntBuffers over it, its vertex
+ * and id tables are views of the stored ones, and each label becomes a MovieList the first time it is
+ * asked for. Vertices are the name ids, as in the graph baconReader builds, so no name is decoded
+ * until it is printed. The index and the string pools change under deltas, so they are copied out.
+ * Opening checks only the header checksum, the counts against the file size and the ends of the
+ * arrays, so it costs time in the size of the metadata rather than the graph; read with verify (or
+ * -Dbacon.snapshot.verify=true) also checks the whole file's checksum and every id in it.
+ * Any mismatch in magic, version, size or checksum, or a source file that has changed since the
+ * snapshot was written, is reported as an IOException so callers can fall back to the text files.
+ *
+ * PS4
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x42434E53; //"BCNS"
+    public static final int FORMAT_VERSION = 4;
+    private static final int HEADER_BYTES = 32;
+    private static final int SYMMETRIC = 1; //flag: the in-adjacency is the out-adjacency, so it is not stored
+    private static final String VERIFY_PROPERTY = "bacon.snapshot.verify";
+
+    private final CSRGraph<Integer, List<String>> graph;
+    private final CastIndex castIndex;
+
+    private GraphSnapshot(CSRGraph<Integer, List<String>> graph, CastIndex castIndex) {
+        this.graph = graph;
+        this.castIndex = castIndex;
+    }
+
+    /**
+     * The co-star graph, with actor name ids as vertices.
+     */
+    public CSRGraph<Integer, List<String>> graph() {
+        return graph;
+    }
+
+    /**
+     * The bipartite index the graph was built from, ready for deltas and bipartite searches.
+     */
+    public CastIndex castIndex() {
+        return castIndex;
+    }
+
+    /**
+     * Names of the graph's vertices, by vertex.
+     */
+    public StringPool actorNames() {
+        return castIndex.actorNames();
+    }
+
+    /**
+     * Size, modification time and content hash of a text file a snapshot was built from.
+     * A snapshot is current for a file if the size matches and either the modification time or,
+     * for a file that was touched or copied, the content hash does.
+     */
+    public static final class Source {
+        private final long size, modified;
+        private final byte[] digest;
+
+        private Source(long size, long modified, byte[] digest) {
+            this.size = size;
+            this.modified = modified;
+            this.digest = digest;
+        }
+
+        /**
+         * Fingerprints a file as it is now.
+         */
+        public static Source of(Path file) throws IOException {
+            return new Source(Files.size(file), Files.getLastModifiedTime(file).toMillis(), sha256(file));
+        }
+
+        /**
+         * Whether file still has the contents this fingerprint was taken from.
+         */
+        public boolean matches(Path file) throws IOException {
+            if (Files.size(file) != size) return false;
+            return Files.getLastModifiedTime(file).toMillis() == modified || Arrays.equals(sha256(file), digest);
+        }
+
+        private static byte[] sha256(Path file) throws IOException {
+            MessageDigest md;
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("every JVM has SHA-256", e);
+            }
+            byte[] chunk = new byte[1 << 16];
+            try (InputStream in = Files.newInputStream(file)) {
+                for (int read; (read = in.read(chunk)) > 0; ) md.update(chunk, 0, read);
+            }
+            return md.digest();
+        }
+    }
+
+    /**
+     * Fingerprints of the given files, to record in a snapshot built from them.
+     */
+    public static List<Source> sources(List<Path> files) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        for (Path f : files) sources.add(Source.of(f));
+        return sources;
+    }
+
+    /**
+     * Writes g and the index it was built from to file, replacing it atomically through a temporary file.
+     * Every title in g's labels must be in the index; the index is only read.
+     *
+     * @param g       co-star graph with actor name id vertices and shared-movie labels
+     * @param index   index g was built from; its pools name the vertices and label titles
+     * @param sources fingerprints of the text files, taken before they were read
+     * @param file    snapshot file to write
+     * @throws IOException if the file cannot be written, or g has a vertex or title the index does not name
+     */
+    public static void write(CSRGraph<Integer, List<String>> g, CastIndex index, List<Source> sources, Path file) throws IOException {
+        int n = g.numVertices(), m = g.numEdges(), numLabels = g.numLabels();
+        StringPool names = index.actorNames(), titles = index.movieTitles();
+
+        //label movie lists as title ids, straight from MovieLists over the index's pool
+        int[] labelStart = new int[numLabels + 1];
+        IntList labelMovies = new IntList();
+        for (int l = 0; l < numLabels; l++) {
+            List<String> label = g.label(l);
+            if (label instanceof MovieList movies && movies.titles() == titles) {
+                for (int id : movies.titleIds()) labelMovies.add(id);
+            } else {
+                for (String title : label) {
+                    int id = titles.find(title);
+                    if (id < 0) throw new IOException("title not in the index: " + title);
+                    labelMovies.add(id);
+                }
+            }
+            labelStart[l + 1] = labelMovies.size();
+        }
+        int[] nameStarts = names.starts(), titleStarts = titles.starts();
+        int numNames = nameStarts.length - 1;
+        int[] vertexNames = new int[n], vertexIds = new int[numNames];
+        Arrays.fill(vertexIds, -1);
+        for (int v = 0; v < n; v++) {
+            vertexNames[v] = g.vertex(v);
+            if (vertexNames[v] < 0 || vertexNames[v] >= numNames) throw new IOException("vertex " + vertexNames[v] + " has no name");
+            vertexIds[vertexNames[v]] = v;
+        }
+        int actorIds = index.actorIdLimit(), movieIds = index.movieIdLimit(), rows = index.numRows();
+        int[] actorNameIds = new int[actorIds], movieTitleIds = new int[movieIds];
+        for (int a = 0; a < actorIds; a++) actorNameIds[a] = index.actorNameId(a);
+        for (int mv = 0; mv < movieIds; mv++) movieTitleIds[mv] = index.movieTitleId(mv);
+        boolean symmetric = g.symmetric();
+
+        int meta = 4 + sources.size() * 48 + 9 * 4;
+        long payload = meta + tableBytes(nameStarts) + tableBytes(titleStarts)
+                + 4L * actorIds + 4L * movieIds + 4L * (movieIds + 1) + 4L * (actorIds + 1) + 8L * rows
+                + 4L * n + 4L * numNames + (symmetric ? 1 : 2) * (4L * (n + 1) + 8L * m) + 4L * (numLabels + 1) + 4L * labelMovies.size();
+        if (HEADER_BYTES + payload > Integer.MAX_VALUE) throw new IOException("graph too large for a snapshot: " + payload + " bytes");
+        ByteBuffer buf = ByteBuffer.allocate((int) (HEADER_BYTES + payload)).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(symmetric ? SYMMETRIC : 0).putInt(meta).putLong(0).putLong(0);
+        buf.putInt(sources.size());
+        for (Source s : sources) buf.putLong(s.size).putLong(s.modified).put(s.digest);
+        buf.putInt(n).putInt(m).putInt(numLabels).putInt(labelMovies.size()).putInt(numNames).putInt(titleStarts.length - 1)
+                .putInt(actorIds).putInt(movieIds).putInt(rows);
+        putTable(buf, nameStarts, names.bytes());
+        putTable(buf, titleStarts, titles.bytes());
+        IntBuffer ints = buf.asIntBuffer();
+        ints.put(actorNameIds).put(movieTitleIds).put(index.castStart()).put(index.cast()).put(index.filmStart()).put(index.films());
+        ints.put(vertexNames).put(vertexIds);
+        //duplicates, since a bulk put moves the source's position and the graph's buffers are shared
+        ints.put(g.outOffsets().duplicate()).put(g.outTargets().duplicate()).put(g.outLabels().duplicate());
+        if (!symmetric) ints.put(g.inOffsets().duplicate()).put(g.inTargets().duplicate()).put(g.inLabels().duplicate());
+        ints.put(labelStart).put(labelMovies.toArray());
+        buf.position(buf.position() + 4 * ints.position());
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), HEADER_BYTES, buf.position() - HEADER_BYTES);
+        buf.putLong(16, crc.getValue());
+        crc.reset();
+        crc.update(buf.array(), 0, 24);
+        crc.update(buf.array(), HEADER_BYTES, meta);
+        buf.putLong(24, crc.getValue());
+        buf.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) out.write(buf);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a snapshot file and opens the co-star graph and cast index in it, if it was built from the
+     * text files as they are now; the whole file is checked only if the bacon.snapshot.verify system
+     * property is true.
+     *
+     * @param file    snapshot file to read
+     * @param sources the text files the snapshot must have been built from, in the order written
+     * @return the graph, served from the mapped file, and its index
+     * @throws IOException if the file is missing, from another format version, truncated or corrupt,
+     *                     or a source file has changed since it was written
+     */
+    public static GraphSnapshot read(Path file, List<Path> sources) throws IOException {
+        return read(file, sources, Boolean.getBoolean(VERIFY_PROPERTY));
+    }
+
+    /**
+     * Maps a snapshot file and opens the co-star graph and cast index in it, if it was built from the
+     * text files as they are now.
+     *
+     * @param file    snapshot file to read
+     * @param sources the text files the snapshot must have been built from, in the order written
+     * @param verify  whether to check the whole file's checksum and every id in it, rather than only
+     *                the header, the metadata and the size
+     * @return the graph, served from the mapped file, and its index
+     * @throws IOException if the file is missing, from another format version, truncated or corrupt,
+     *                     or a source file has changed since it was written
+     */
+    public static GraphSnapshot read(Path file, List<Path> sources, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) throw new IOException("not a graph snapshot: " + file);
+            //the mapping outlives the channel, and the graph keeps it alive
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt(0) != MAGIC) throw new IOException("not a graph snapshot: " + file);
+            int version = buf.getInt(4);
+            if (version != FORMAT_VERSION) throw new IOException("snapshot format version " + version + ", expected " + FORMAT_VERSION + ": " + file);
+            int flags = buf.getInt(8), meta = buf.getInt(12);
+            if (meta < 0 || meta > size - HEADER_BYTES) throw new IOException("malformed graph snapshot: " + file);
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(0, 24));
+            crc.update(buf.slice(HEADER_BYTES, meta));
+            if (crc.getValue() != buf.getLong(24)) throw new IOException("snapshot header checksum mismatch: " + file);
+            if (verify) {
+                crc.reset();
+                crc.update(buf.slice(HEADER_BYTES, (int) size - HEADER_BYTES));
+                if (crc.getValue() != buf.getLong(16)) throw new IOException("snapshot checksum mismatch: " + file);
+            }
+
+            buf.position(HEADER_BYTES);
+            List<Source> recorded = new ArrayList<>();
+            try {
+                int count = buf.getInt();
+                for (int i = 0; i < count; i++) {
+                    long length = buf.getLong(), modified = buf.getLong();
+                    byte[] digest = new byte[32];
+                    buf.get(digest);
+                    recorded.add(new Source(length, modified, digest));
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("malformed graph snapshot: " + file, e);
+            }
+            if (recorded.size() != sources.size()) throw new IOException("snapshot was built from " + recorded.size() + " file(s), not " + sources.size());
+            for (int i = 0; i < recorded.size(); i++) {
+                try {
+                    if (!recorded.get(i).matches(sources.get(i))) throw new IOException(sources.get(i) + " changed since the snapshot was written");
+                } catch (NoSuchFileException e) {
+                    throw new IOException(sources.get(i) + " is missing", e);
+                }
+            }
+
+            try {
+                int n = buf.getInt(), m = buf.getInt(), numLabels = buf.getInt(), numLabelMovies = buf.getInt();
+                int numNames = buf.getInt(), numMovies = buf.getInt(), actorIds = buf.getInt(), movieIds = buf.getInt(), rows = buf.getInt();
+                if (buf.position() != HEADER_BYTES + meta) throw new IllegalArgumentException("metadata is " + meta + " bytes, read " + (buf.position() - HEADER_BYTES));
+                StringPool names = getTable(buf, numNames);
+                StringPool titles = getTable(buf, numMovies);
+                int[] actorNameIds = toArray(ints(buf, actorIds)), movieTitleIds = toArray(ints(buf, movieIds));
+                int[] castStart = toArray(ints(buf, movieIds + 1)), cast = toArray(ints(buf, rows));
+                int[] filmStart = toArray(ints(buf, actorIds + 1)), films = toArray(ints(buf, rows));
+                IntBuffer vertexNames = ints(buf, n), vertexIds = ints(buf, numNames);
+                IntBuffer[] out = {ints(buf, n + 1), ints(buf, m), ints(buf, m)};
+                IntBuffer[] in = (flags & SYMMETRIC) != 0 ? null : new IntBuffer[]{ints(buf, n + 1), ints(buf, m), ints(buf, m)};
+                IntBuffer labelStart = ints(buf, numLabels + 1), labelMovies = ints(buf, numLabelMovies);
+                if (buf.hasRemaining()) throw new IllegalArgumentException(buf.remaining() + " bytes past the last array");
+                if (out[0].get(0) != 0 || out[0].get(n) != m || (in != null && (in[0].get(0) != 0 || in[0].get(n) != m))
+                        || labelStart.get(0) != 0 || labelStart.get(numLabels) != numLabelMovies) {
+                    throw new IllegalArgumentException("offsets do not span their arrays");
+                }
+                if (verify) {
+                    check(vertexNames, vertexIds, out, numLabels);
+                    if (in != null) check(vertexNames, vertexIds, in, numLabels);
+                    for (int k = 0; k < numLabelMovies; k++) {
+                        if (labelMovies.get(k) < 0 || labelMovies.get(k) >= numMovies) throw new IllegalArgumentException("title id out of range: " + labelMovies.get(k));
+                    }
+                }
+
+                CastIndex index = new CastIndex(names, titles, actorNameIds, movieTitleIds, castStart, cast, filmStart, films);
+                CSRGraph<Integer, List<String>> graph = new CSRGraph<>(new MappedVertices(vertexNames), new MappedIds(vertexNames, vertexIds),
+                        new MappedLabels(titles, labelStart, labelMovies), out, in);
+                return new GraphSnapshot(graph, index);
+            } catch (RuntimeException e) {
+                //a file whose header checks out but does not parse was truncated, or written by a broken or different writer
+                throw new IOException("malformed graph snapshot: " + file, e);
+            }
+        }
+    }
+
+    // every vertex's name maps back to it, and every row is in range, sorted and without repeats
+    private static void check(IntBuffer vertexNames, IntBuffer vertexIds, IntBuffer[] rows, int numLabels) {
+        int n = vertexNames.limit();
+        for (int v = 0; v < n; v++) {
+            int name = vertexNames.get(v);
+            if (name < 0 || name >= vertexIds.limit() || vertexIds.get(name) != v) throw new IllegalArgumentException("vertex " + v + " has name id " + name);
+            for (int k = rows[0].get(v); k < rows[0].get(v + 1); k++) {
+                int w = rows[1].get(k);
+                if (w < 0 || w >= n || (k > rows[0].get(v) && w <= rows[1].get(k - 1))) throw new IllegalArgumentException("row of " + v + " is out of order at " + k);
+                if (rows[2].get(k) < 0 || rows[2].get(k) >= numLabels) throw new IllegalArgumentException("label id out of range: " + rows[2].get(k));
+            }
+        }
+    }
+
+    // the next count ints as a view over buf, which is moved past them
+    private static IntBuffer ints(ByteBuffer buf, int count) {
+        if (count < 0 || count > buf.remaining() / 4) throw new IllegalArgumentException(count + " ints do not fit in the " + buf.remaining() + " bytes left");
+        IntBuffer ints = buf.slice(buf.position(), 4 * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        buf.position(buf.position() + 4 * count);
+        return ints;
+    }
+
+    private static int[] toArray(IntBuffer ints) {
+        int[] a = new int[ints.limit()];
+        ints.get(0, a);
+        return a;
+    }
+
+    // offsets array plus the blob padded to a whole number of ints
+    private static long tableBytes(int[] starts) {
+        return 4L * starts.length + (starts[starts.length - 1] + 3L) / 4 * 4;
+    }
+
+    // starts read before bytes, so a pool growing meanwhile still has every byte they cover
+    private static void putTable(ByteBuffer buf, int[] starts, byte[] bytes) {
+        buf.asIntBuffer().put(starts);
+        buf.position(buf.position() + 4 * starts.length);
+        buf.put(bytes, 0, starts[starts.length - 1]);
+        while (buf.position() % 4 != 0) buf.put((byte) 0);
+    }
+
+    private static StringPool getTable(ByteBuffer buf, int count) {
+        int[] offsets = toArray(ints(buf, count + 1));
+        byte[] bytes = new byte[offsets[count]];
+        buf.get(bytes);
+        while (buf.position() % 4 != 0) buf.get();
+        return new StringPool(bytes, offsets);
+    }
+
+    // vertex id -> name id, read from the mapping
+    private static final class MappedVertices extends AbstractList<Integer> implements RandomAccess {
+        private final IntBuffer names;
+
+        MappedVertices(IntBuffer names) {
+            this.names = names;
+        }
+
+        public Integer get(int v) {
+            return names.get(v);
+        }
+
+        public int size() {
+            return names.limit();
+        }
+    }
+
+    // name id -> vertex id, read from the stored table, in which -1 marks a name that is not a vertex
+    private static final class MappedIds extends AbstractMap<Integer, Integer> {
+        private final IntBuffer names, ids;
+
+        MappedIds(IntBuffer names, IntBuffer ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+
+        public Integer get(Object key) {
+            if (!(key instanceof Integer name) || name < 0 || name >= ids.limit()) return null;
+            int v = ids.get(name);
+            return v < 0 ? null : v;
+        }
+
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        public int size() {
+            return names.limit();
+        }
+
+        public Set<Entry<Integer, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                public int size() {
+                    return names.limit();
+                }
+
+                public Iterator<Entry<Integer, Integer>> iterator() {
+                    return new Iterator<>() {
+                        int v;
+
+                        public boolean hasNext() {
+                            return v < names.limit();
+                        }
+
+                        public Entry<Integer, Integer> next() {
+                            if (v >= names.limit()) throw new NoSuchElementException();
+                            return new SimpleImmutableEntry<>(names.get(v), v++);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    // label id -> shared movies, made from the mapped title ids the first time the label is asked for and
+    // kept, so both directions of an edge get the same list
+    private static final class MappedLabels extends AbstractList<List<String>> implements RandomAccess {
+        private final StringPool titles;
+        private final IntBuffer starts, movies;
+        private final MovieList[] made;
+
+        MappedLabels(StringPool titles, IntBuffer starts, IntBuffer movies) {
+            this.titles = titles;
+            this.starts = starts;
+            this.movies = movies;
+            made = new MovieList[starts.limit() - 1];
+        }
+
+        public List<String> get(int l) {
+            MovieList list = made[l];
+            if (list == null) {
+                int from = starts.get(l);
+                int[] ids = new int[starts.get(l + 1) - from];
+                movies.get(from, ids);
+                //MovieLists are immutable, so a list made twice by racing readers is only made twice
+                made[l] = list = MovieList.of(titles, ids);
+            }
+            return list;
+        }
+
+        public int size() {
+            return made.length;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Read-only part of the Graph ADT: vertices of type V, directed edges labeled with E.
+ * Graph adds the mutators; immutable graphs such as CSRGraph implement only this, so code that
+ * just reads a graph takes a GraphView and works on either.
+ *
+ * PS4
+ */
+
+public interface GraphView<V,E> {
+	/**
+	 * Number of vertices in the graph
+	 */
+	public int numVertices();
+
+	/**
+	 * Number of edges in the graph
+	 */
+	public int numEdges();
+
+	/**
+	 * Iterable for vertices (not a copy, so don't modify the graph while iterating)
+	 */
+	public Iterable<V> vertices();
+
+	/**
+	 * Is the vertex in the graph?
+	 */
+	public boolean hasVertex(V v);
+
+	/**
+	 * Number of edges out from a vertex
+	 */
+	public int outDegree(V v);
+
+	/**
+	 * Number of edges in to a vertex
+	 */
+	public int inDegree(V v);
+
+	/**
+	 * Iterable for the vertices an edge from v goes to
+	 */
+	public Iterable<V> outNeighbors(V v);
+
+	/**
+	 * Iterable for the vertices an edge to v comes from
+	 */
+	public Iterable<V> inNeighbors(V v);
+
+	/**
+	 * Is there an edge from u to v?
+	 */
+	public boolean hasEdge(V u, V v);
+
+	/**
+	 * Label of the edge from u to v, null if there is no such edge
+	 */
+	public E getLabel(V u, V v);
+}
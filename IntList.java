@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used by the loaders and graph builders
+ * to buffer ids without boxing them into a List<Integer>.
+ *
+ * PS4
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * List holding the given values; takes ownership of the array.
+     */
+    public IntList(int[] values) {
+        this.values = values.length > 0 ? values : new int[1];
+        size = values.length;
+    }
+
+    public void add(int value) {
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return values[index];
+    }
+
+    public void set(int index, int value) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        values[index] = value;
+    }
+
+    /**
+     * Removes and returns the last value.
+     */
+    public int removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException("empty list");
+        return values[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copy of the values, trimmed to size.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
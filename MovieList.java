@@ -0,0 +1,164 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of movie titles stored as ids into a StringPool, used as the shared-movie
+ * label of a co-star edge. Titles are decoded only when an element is read, e.g. when the
+ * p command prints a path, and a title used by many edges is stored once in the pool.
+ * Most co-stars share exactly one movie, so of() keeps a single title id inline in the label
+ * object; longer lists are packed into one byte array as varints of the difference from the
+ * previous id (zigzag-encoded, so ids need not be sorted), usually one or two bytes per movie.
+ * Element i of a packed list is found by decoding from the start, so only the one-movie form is
+ * RandomAccess; read packed lists with an iterator or titleIds().
+ *
+ * PS4
+ */
+public abstract class MovieList extends AbstractList<String> {
+    private final StringPool titles;
+
+    private MovieList(StringPool titles) {
+        this.titles = titles;
+    }
+
+    /**
+     * The most compact list of these titles.
+     *
+     * @param titles pool the ids refer to
+     * @param ids    title ids, in list order; copied, so the caller may reuse it
+     */
+    public static MovieList of(StringPool titles, int[] ids) {
+        return of(titles, ids, 0, ids.length);
+    }
+
+    /**
+     * The most compact list of the title ids in ids[from .. to).
+     */
+    public static MovieList of(StringPool titles, int[] ids, int from, int to) {
+        return to - from == 1 ? new One(titles, ids[from]) : new Packed(titles, ids, from, to);
+    }
+
+    public String get(int index) {
+        return titles.get(titleId(index));
+    }
+
+    /**
+     * Title id of element index.
+     */
+    public abstract int titleId(int index);
+
+    /**
+     * Title ids of all the elements, in list order.
+     */
+    public abstract int[] titleIds();
+
+    public StringPool titles() {
+        return titles;
+    }
+
+    /**
+     * A label for one shared movie: just the title id.
+     */
+    private static final class One extends MovieList implements RandomAccess {
+        private final int id;
+
+        One(StringPool titles, int id) {
+            super(titles);
+            this.id = id;
+        }
+
+        public int titleId(int index) {
+            if (index != 0) throw new IndexOutOfBoundsException("index " + index + ", size 1");
+            return id;
+        }
+
+        public int[] titleIds() {
+            return new int[]{id};
+        }
+
+        public int size() {
+            return 1;
+        }
+    }
+
+    /**
+     * A label for any number of movies, as zigzag varint deltas in one array.
+     * Lists are short, so element i is found by decoding from the start.
+     */
+    private static final class Packed extends MovieList {
+        private final byte[] block;
+        private final int size;
+
+        Packed(StringPool titles, int[] ids, int from, int to) {
+            super(titles);
+            byte[] buf = new byte[5 * (to - from)];
+            int n = 0, previous = 0;
+            for (int i = from; i < to; i++) {
+                int id = ids[i];
+                int delta = id - previous;
+                previous = id;
+                int zigzag = (delta << 1) ^ (delta >> 31);
+                while ((zigzag & ~0x7F) != 0) {
+                    buf[n++] = (byte) ((zigzag & 0x7F) | 0x80);
+                    zigzag >>>= 7;
+                }
+                buf[n++] = (byte) zigzag;
+            }
+            block = Arrays.copyOf(buf, n);
+            size = to - from;
+        }
+
+        public int titleId(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+            Decoder d = new Decoder();
+            for (int i = 0; i < index; i++) d.next();
+            return d.next();
+        }
+
+        public int[] titleIds() {
+            int[] ids = new int[size];
+            Decoder d = new Decoder();
+            for (int i = 0; i < size; i++) ids[i] = d.next();
+            return ids;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                final Decoder d = new Decoder();
+                int i;
+
+                public boolean hasNext() {
+                    return i < size;
+                }
+
+                public String next() {
+                    if (i >= size) throw new NoSuchElementException();
+                    i++;
+                    return titles().get(d.next());
+                }
+            };
+        }
+
+        // reads the ids back in order
+        private final class Decoder {
+            int pos, id;
+
+            int next() {
+                int zigzag = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = block[pos++];
+                    zigzag |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                id += (zigzag >>> 1) ^ -(zigzag & 1);
+                return id;
+            }
+        }
+    }
+}
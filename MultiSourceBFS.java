@@ -0,0 +1,181 @@
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Bit-parallel breadth-first search from up to 64 sources at once over a CSRGraph.
+ * Every vertex has a seen word and a frontier word whose bit j belongs to source j, so one
+ * pass over the adjacency arrays advances all 64 searches by a level: a vertex's frontier word
+ * is ORed into each neighbor, and the bits the neighbor had not seen become its new frontier.
+ * Only separation counts are kept, not parent trees: for each source a histogram of how many
+ * vertices lie at each distance, the sum of the distances and the number of vertices reached.
+ * The word arrays are reused by every pass run through the same instance.
+ *
+ * PS4
+ */
+public class MultiSourceBFS<V, E> {
+    public static final int WIDTH = 64; //sources per pass
+
+    private final CSRGraph<V, E> graph;
+    private final long[] seen, frontier, next;
+
+    public MultiSourceBFS(CSRGraph<V, E> g) {
+        this.graph = g;
+        int n = g.numVertices();
+        seen = new long[n];
+        frontier = new long[n];
+        next = new long[n];
+    }
+
+    /**
+     * Separation counts from each of the given vertices, 64 sources per pass.
+     *
+     * @param sources vertices to search from
+     * @return counts for each source, in the order given
+     * @throws IllegalArgumentException if a source is not in the graph
+     */
+    public Counts search(List<V> sources) {
+        int[] ids = new int[sources.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.vertexId(sources.get(i));
+            if (ids[i] < 0) throw new IllegalArgumentException("vertex not in graph: " + sources.get(i));
+        }
+        Counts counts = new Counts(ids);
+        for (int from = 0; from < ids.length; from += WIDTH) pass(counts, from, Math.min(WIDTH, ids.length - from));
+        return counts;
+    }
+
+    /**
+     * Separation counts from the vertex ids sources[from .. from+count), count at most 64, in one pass.
+     */
+    Counts search(int[] sources, int from, int count) {
+        return search(sources, from, count, null, null);
+    }
+
+    /**
+     * As search(sources, from, count), also adding each vertex's distances from the sources to
+     * sums[v] and their squares to squares[v], which ApproximateCloseness uses to estimate from pivots.
+     */
+    Counts search(int[] sources, int from, int count, long[] sums, long[] squares) {
+        Counts counts = new Counts(Arrays.copyOfRange(sources, from, from + count));
+        pass(counts, 0, count, sums, squares);
+        return counts;
+    }
+
+    private void pass(Counts counts, int from, int count) {
+        pass(counts, from, count, null, null);
+    }
+
+    private void pass(Counts counts, int from, int count, long[] sums, long[] squares) {
+        if (count > WIDTH) throw new IllegalArgumentException("at most " + WIDTH + " sources per pass: " + count);
+        int n = seen.length;
+        IntBuffer offsets = graph.outOffsets(), targets = graph.outTargets();
+        Arrays.fill(seen, 0);
+        Arrays.fill(frontier, 0);
+        for (int j = 0; j < count; j++) {
+            int s = counts.sources[from + j];
+            seen[s] |= 1L << j;
+            frontier[s] |= 1L << j;
+            counts.add(from + j, 0, 1);
+        }
+
+        boolean active = count > 0;
+        for (int d = 1; active; d++) {
+            // push every frontier word to the neighbors
+            for (int u = 0; u < n; u++) {
+                long f = frontier[u];
+                if (f == 0) continue;
+                for (int k = offsets.get(u), end = offsets.get(u + 1); k < end; k++) next[targets.get(k)] |= f;
+            }
+            // keep the newly seen bits as the next frontier and count them per source
+            active = false;
+            for (int v = 0; v < n; v++) {
+                long fresh = next[v] & ~seen[v];
+                next[v] = 0;
+                frontier[v] = fresh;
+                if (fresh == 0) continue;
+                seen[v] |= fresh;
+                active = true;
+                for (long bits = fresh; bits != 0; bits &= bits - 1) counts.add(from + Long.numberOfTrailingZeros(bits), d, 1);
+                if (sums != null) {
+                    int found = Long.bitCount(fresh);
+                    sums[v] += (long) d * found;
+                    squares[v] += (long) d * d * found;
+                }
+            }
+        }
+    }
+
+    /**
+     * Separation counts for a list of sources: per-source distance histograms, distance sums and
+     * reached counts.
+     */
+    public static class Counts {
+        private final int[] sources;
+        private final int[][] histograms; //histograms[i][d] = vertices at distance d from source i
+        private final long[] sums;
+        private final int[] reached;
+        private final int[] eccentricity;
+
+        private Counts(int[] sources) {
+            this.sources = sources;
+            histograms = new int[sources.length][4];
+            sums = new long[sources.length];
+            reached = new int[sources.length];
+            eccentricity = new int[sources.length];
+        }
+
+        private void add(int i, int d, int vertices) {
+            if (d >= histograms[i].length) histograms[i] = Arrays.copyOf(histograms[i], Math.max(d + 1, histograms[i].length * 2));
+            histograms[i][d] += vertices;
+            sums[i] += (long) d * vertices;
+            reached[i] += vertices;
+            if (d > eccentricity[i]) eccentricity[i] = d;
+        }
+
+        public int size() {
+            return sources.length;
+        }
+
+        /**
+         * Vertex id of source i.
+         */
+        public int source(int i) {
+            return sources[i];
+        }
+
+        /**
+         * Number of vertices at each distance from source i, from 0 up to its eccentricity.
+         */
+        public int[] histogram(int i) {
+            return Arrays.copyOf(histograms[i], eccentricity[i] + 1);
+        }
+
+        /**
+         * Sum of the distances from source i to the vertices it reaches.
+         */
+        public long distanceSum(int i) {
+            return sums[i];
+        }
+
+        /**
+         * Number of vertices reached from source i, including itself.
+         */
+        public int numReached(int i) {
+            return reached[i];
+        }
+
+        /**
+         * Largest distance from source i to a vertex it reaches.
+         */
+        public int eccentricity(int i) {
+            return eccentricity[i];
+        }
+
+        /**
+         * Average separation of source i, as BFSResult.averageSeparation.
+         */
+        public double averageSeparation(int i) {
+            return sums[i] / (double) (reached[i] - 1);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs one worker on several threads at once and waits for all of them, for the parallel builders
+ * and searches (CoStarBuilder, ClosenessRanking). Workers share their work through their own
+ * counters, e.g. an AtomicInteger of the next chunk, so any number of copies can run.
+ *
+ * PS4
+ */
+class Parallel {
+    private Parallel() {
+    }
+
+    /**
+     * Runs worker on the calling thread plus (threads - 1) pool threads and waits for all of them.
+     *
+     * @throws IllegalStateException if a worker threw, or the wait was interrupted
+     */
+    static void runAll(Runnable worker, int threads) {
+        if (threads == 1) {
+            worker.run();
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads - 1);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 1; t < threads; t++) running.add(pool.submit(worker));
+            worker.run();
+            for (Future<?> f : running) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for workers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+/**
+ * Separation statistics of the vertices reached from one center, taken from the per-level
+ * vertex counts of a single BFS: the distance histogram, the number reached, the mean
+ * (average separation) and the largest separation (eccentricity of the center).
+ *
+ * PS4
+ */
+public class SeparationStats {
+    private final int[] histogram; //histogram[d] = vertices at separation d, d = 0 is the center
+    private final int reachable;
+    private final long total;
+
+    /**
+     * @param histogram number of vertices at each separation, starting from the center at 0
+     */
+    public SeparationStats(int[] histogram) {
+        this.histogram = histogram.clone();
+        int n = 0;
+        long sum = 0;
+        for (int d = 0; d < histogram.length; d++) {
+            n += histogram[d];
+            sum += (long) d * histogram[d];
+        }
+        reachable = n;
+        total = sum;
+    }
+
+    /**
+     * Number of vertices reached, including the center.
+     */
+    public int reachable() {
+        return reachable;
+    }
+
+    /**
+     * Average separation of the other reached vertices from the center, as GraphLibrary.averageSeparation
+     * (NaN if the center reaches nothing else).
+     */
+    public double mean() {
+        return total / (double) (reachable - 1);
+    }
+
+    /**
+     * Largest separation of a reached vertex.
+     */
+    public int eccentricity() {
+        return histogram.length - 1;
+    }
+
+    /**
+     * Number of vertices at separation d, or 0 beyond the eccentricity.
+     */
+    public int count(int d) {
+        return d < 0 || d >= histogram.length ? 0 : histogram[d];
+    }
+
+    /**
+     * Copy of the histogram, indexed by separation.
+     */
+    public int[] histogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Sum of the separations of all reached vertices.
+     */
+    public long totalSeparation() {
+        return total;
+    }
+
+    public String toString() {
+        return "reachable " + reachable + ", mean " + mean() + ", eccentricity " + eccentricity() + ", histogram " + Arrays.toString(histogram);
+    }
+}
@@ -0,0 +1,137 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary of distinct strings with dense int ids, stored as UTF-8 bytes in one shared array.
+ * Interning a string that is already present returns its existing id, so repeated names
+ * (e.g. movie titles used by many edges) are kept once, and no String object exists until
+ * get() decodes one for output. Lookups go through an open-addressing table of ids keyed by
+ * a hash of the bytes, which is built lazily for pools read back from a snapshot.
+ * A pool can be read while another thread appends to it (e.g. DeltaIngest adding titles while
+ * BaconServer decodes labels): an append writes past the published strings, into grown copies of
+ * the arrays when they are full, and then publishes the new size through a volatile write, so get()
+ * takes no lock and sees every string below the size it read. intern() and find() share the hash
+ * table and are synchronized.
+ *
+ * PS4
+ */
+public class StringPool {
+    private volatile byte[] bytes;
+    private volatile int[] starts; //starts[id] .. starts[id+1] are the bytes of string id
+    private volatile int size; //strings below it are fully written
+    private int[] table; //open addressing: id + 1, or 0 for an empty slot; null until first lookup; guarded by this
+
+    public StringPool() {
+        bytes = new byte[1024];
+        starts = new int[17];
+    }
+
+    /**
+     * Wraps pool contents read back from storage.
+     *
+     * @param bytes  UTF-8 bytes of all strings, back to back
+     * @param starts start of each string in bytes, plus the total length
+     */
+    StringPool(byte[] bytes, int[] starts) {
+        this.bytes = bytes;
+        this.starts = starts;
+        this.size = starts.length - 1;
+    }
+
+    /**
+     * Id of the string in buf[offset .. offset+length), adding it if it is new.
+     */
+    public synchronized int intern(byte[] buf, int offset, int length) {
+        int slot = slot(buf, offset, length);
+        if (table[slot] != 0) return table[slot] - 1;
+        int id = size;
+        byte[] b = bytes;
+        int[] s = starts;
+        //readers may hold the old arrays, so grow by copying and write the new string past the published size
+        if (s[id] + length > b.length) bytes = b = Arrays.copyOf(b, Math.max(b.length * 2, s[id] + length));
+        if (id + 2 > s.length) starts = s = Arrays.copyOf(s, s.length * 2);
+        System.arraycopy(buf, offset, b, s[id], length);
+        s[id + 1] = s[id] + length;
+        size = id + 1;
+        table[slot] = id + 1;
+        if ((id + 1) * 2 > table.length) rehash(table.length * 2);
+        return id;
+    }
+
+    public int intern(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return intern(b, 0, b.length);
+    }
+
+    /**
+     * Id of s, or -1 if it is not in the pool.
+     */
+    public synchronized int find(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        int slot = slot(b, 0, b.length);
+        return table[slot] - 1;
+    }
+
+    /**
+     * Decodes string id. Takes no lock, so it may run while another thread interns.
+     */
+    public String get(int id) {
+        int n = size; //read before the arrays, which hold at least this many strings
+        if (id < 0 || id >= n) throw new IndexOutOfBoundsException("string id " + id + ", size " + n);
+        int[] s = starts;
+        return new String(bytes, s[id], s[id + 1] - s[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Number of distinct strings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bytes used by the string contents.
+     */
+    public int byteSize() {
+        int n = size;
+        return starts[n];
+    }
+
+    // slot holding the id of these bytes, or the empty slot where they belong; caller holds the lock
+    private int slot(byte[] buf, int offset, int length) {
+        if (table == null) rehash(Integer.highestOneBit(Math.max(size, 8)) * 4);
+        byte[] b = bytes;
+        int[] s = starts;
+        int mask = table.length - 1;
+        for (int i = hash(buf, offset, length) & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0 || Arrays.equals(b, s[id], s[id + 1], buf, offset, offset + length)) return i;
+        }
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        byte[] b = bytes;
+        int[] s = starts;
+        for (int id = 0; id < size; id++) {
+            int i = hash(b, s[id], s[id + 1] - s[id]) & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = id + 1;
+        }
+    }
+
+    // FNV-1a
+    private static int hash(byte[] buf, int offset, int length) {
+        int h = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) h = (h ^ buf[i]) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    // contents for GraphSnapshot, at least byteSize() bytes and size() + 1 starts; callers must not modify them
+    byte[] bytes() { return bytes; }
+    int[] starts() {
+        int n = size;
+        return Arrays.copyOf(starts, n + 1);
+    }
+}
@@ -0,0 +1,62 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates Bacon game data sets of any size in the same pipe-delimited format as the bundled
+ * actors.txt, movies.txt and movie-actors.txt, so loading and searching can be measured on graphs
+ * with millions of co-star edges.
+ * Casts average meanCast actors, and actors are picked with a skewed popularity (a few appear in
+ * very many movies), which gives the small diameter and hub actors of the real graph.
+ * The same seed always gives the same files.
+ *
+ * PS4
+ */
+public class SyntheticGraphs {
+    /**
+     * Writes actors.txt, movies.txt and movie-actors.txt into dir.
+     *
+     * @param dir      directory to write into; created if missing
+     * @param actors   number of actors
+     * @param movies   number of movies
+     * @param meanCast average number of actors per movie
+     * @param seed     seed for the random choices
+     * @return number of movie-actor rows written
+     * @throws IOException if a file cannot be written
+     */
+    public static long write(Path dir, int actors, int movies, int meanCast, long seed) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("actors.txt"), StandardCharsets.UTF_8)) {
+            for (int a = 0; a < actors; a++) out.write(a + "|Actor " + a + "\n");
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("movies.txt"), StandardCharsets.UTF_8)) {
+            for (int m = 0; m < movies; m++) out.write(m + "|Movie " + m + " (" + (1920 + random.nextInt(100)) + ")\n");
+        }
+        long rows = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("movie-actors.txt"), StandardCharsets.UTF_8)) {
+            for (int m = 0; m < movies; m++) {
+                int cast = 1 + random.nextInt(2 * meanCast - 1);
+                for (int i = 0; i < cast; i++) {
+                    //squaring a uniform draw favors low ids, so low-id actors are the hubs
+                    double u = random.nextDouble();
+                    out.write(m + "|" + (int) (u * u * actors) + "\n");
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Usage: SyntheticGraphs dir actors movies meanCast [seed]
+     */
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        long rows = write(Path.of(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), seed);
+        System.out.println("wrote " + rows + " movie-actor rows to " + args[0]);
+    }
+}
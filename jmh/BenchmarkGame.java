@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import bench.GameOps;
+
+/**
+ * The game side of the JMH benchmarks in package bench: loads a data set with baconReader and runs
+ * the operations they time on it. The popular center is the actor with the most co-stars and the
+ * peripheral one an actor as far from them as any; paths go to 1000 actors drawn with a fixed seed.
+ *
+ * PS4
+ */
+public class BenchmarkGame implements GameOps {
+    private static final int PATHS = 1000;
+
+    private final String actors, movies, casts;
+    private final GraphView<Integer, List<String>> g; //the graph the operations run on
+    private final CSRGraph<Integer, List<String>> csr;
+    private final Integer popular, peripheral; //actor vertices
+    private final Graph<Integer, List<String>> tree; //bfs tree from popular
+    private final List<Integer> targets = new ArrayList<>();
+    private final BFSResult<Integer, List<String>> topDown, directionOptimizing;
+
+    public BenchmarkGame(String actors, String movies, String casts, String graph) throws Exception {
+        this.actors = actors;
+        this.movies = movies;
+        this.casts = casts;
+        Graph<Integer, List<String>> map = new BaconGame().baconReader(actors, movies, casts);
+        csr = CSRGraph.of(map);
+        g = switch (graph) {
+            case "map" -> map;
+            case "csr" -> csr;
+            default -> throw new IllegalArgumentException("unknown graph: " + graph);
+        };
+        Integer hub = null;
+        for (Integer v : map.vertices()) {
+            if (hub == null || map.inDegree(v) > map.inDegree(hub)) hub = v;
+        }
+        popular = hub;
+        BFSResult<Integer, List<String>> fromPopular = new BFSResult<>(csr).search(popular);
+        peripheral = fromPopular.verticesWithin(fromPopular.eccentricity(), fromPopular.eccentricity()).get(0);
+        tree = GraphLibrary.bfs(g, popular);
+        List<Integer> vertices = new ArrayList<>();
+        for (Integer v : map.vertices()) vertices.add(v);
+        Random random = new Random(1);
+        for (int i = 0; i < PATHS; i++) targets.add(vertices.get(random.nextInt(vertices.size())));
+        topDown = new BFSResult<>(csr, false);
+        directionOptimizing = new BFSResult<>(csr, true);
+    }
+
+    public int baconReader() throws Exception {
+        return new BaconGame().baconReader(actors, movies, casts).numEdges();
+    }
+
+    public Object bfsPopular() {
+        return GraphLibrary.bfs(g, popular);
+    }
+
+    public Object bfsPeripheral() {
+        return GraphLibrary.bfs(g, peripheral);
+    }
+
+    public int paths() {
+        return PATHS;
+    }
+
+    public int getPaths() {
+        int length = 0;
+        for (Integer v : targets) length += GraphLibrary.getPath(tree, v).size();
+        return length;
+    }
+
+    public double averageSeparation() {
+        return GraphLibrary.averageSeparation(tree, popular);
+    }
+
+    public List<?> verticesByInDegree() {
+        return GraphLibrary.verticesByInDegree(g);
+    }
+
+    public int search(boolean peripheral, boolean directionOptimizing) {
+        BFSResult<Integer, List<String>> scratch = directionOptimizing ? this.directionOptimizing : topDown;
+        return scratch.search(peripheral ? this.peripheral : popular).numReached();
+    }
+
+    public List<?> degreeIndex() {
+        return DegreeIndex.of(csr).verticesByInDegree(1, 10);
+    }
+
+    public List<?> topCenters(String method, int pivots, int threads) {
+        return switch (method) {
+            case "bfs" -> ClosenessRanking.compute(csr, popular, threads, false).top(10);
+            case "bitParallel" -> ClosenessRanking.compute(csr, popular, threads, true).top(10);
+            case "sampled" -> ApproximateCloseness.estimate(csr, popular, pivots, 1).top(10);
+            default -> throw new IllegalArgumentException("unknown method: " + method);
+        };
+    }
+}
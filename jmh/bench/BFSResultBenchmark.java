@@ -0,0 +1,45 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * BFSResult searches into reused arrays on the CSRGraph, top-down and direction-optimizing
+ * (-p directionOptimizing=false,true), and building a DegreeIndex for the d command.
+ *
+ * PS4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class BFSResultBenchmark {
+    @Param({"false", "true"})
+    public boolean directionOptimizing;
+
+    private GameOps game;
+
+    @Setup(Level.Trial)
+    public void setUp(GameData data) throws Exception {
+        game = data.open("csr");
+    }
+
+    @Benchmark
+    public int searchPopular() {
+        return game.search(false, directionOptimizing);
+    }
+
+    @Benchmark
+    public int searchPeripheral() {
+        return game.search(true, directionOptimizing);
+    }
+
+    @Benchmark
+    public List<?> degreeIndex() {
+        return game.degreeIndex();
+    }
+}
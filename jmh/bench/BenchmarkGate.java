@@ -0,0 +1,81 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Regression gate over JMH results saved with -rf csv: compares each benchmark's score (with the same
+ * parameters) against a baseline run and exits with status 1 when any is worse by more than the
+ * tolerance. Lower is better for the time modes and higher for throughput (thrpt).
+ *
+ * PS4
+ */
+public class BenchmarkGate {
+    /**
+     * Scores by benchmark, mode and parameters, e.g. "bench.SearchBenchmark.bfsPopular avgt data=bundled graph=csr".
+     */
+    public static Map<String, Double> scores(Path csv) throws IOException {
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        List<String> header = fields(lines.get(0));
+        int name = header.indexOf("Benchmark"), mode = header.indexOf("Mode"), score = header.indexOf("Score");
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) continue;
+            List<String> row = fields(line);
+            StringBuilder key = new StringBuilder(row.get(name)).append(' ').append(row.get(mode));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")) key.append(' ').append(header.get(i).substring(7)).append('=').append(row.get(i));
+            }
+            scores.put(key.toString(), Double.parseDouble(row.get(score)));
+        }
+        return scores;
+    }
+
+    // comma-separated fields, some of them in double quotes
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else field.append(c);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * The benchmarks in current that are worse than in baseline by more than tolerance, e.g. 0.2 for 20%.
+     */
+    public static List<String> regressions(Map<String, Double> baseline, Map<String, Double> current, double tolerance) {
+        List<String> worse = new ArrayList<>();
+        for (Map.Entry<String, Double> e : current.entrySet()) {
+            Double before = baseline.get(e.getKey());
+            if (before == null) continue;
+            double now = e.getValue();
+            boolean throughput = e.getKey().contains(" thrpt");
+            if (throughput ? now < before * (1 - tolerance) : now > before * (1 + tolerance)) {
+                worse.add(String.format("%s: %.4f -> %.4f", e.getKey(), before, now));
+            }
+        }
+        return worse;
+    }
+
+    /**
+     * Usage: BenchmarkGate baseline.csv current.csv [tolerance]
+     */
+    public static void main(String[] args) throws IOException {
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+        List<String> worse = regressions(scores(Path.of(args[0])), scores(Path.of(args[1])), tolerance);
+        for (String s : worse) System.out.println("REGRESSION " + s);
+        if (!worse.isEmpty()) System.exit(1);
+        System.out.println("no regressions beyond " + Math.round(tolerance * 100) + "%");
+    }
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark fixture: the three game files, either the bundled ones in the working directory or a
+ * SyntheticGraphs data set written to a temporary directory for the trial and deleted after it.
+ * Pick the data set with -p data=bundled,synthetic and size the synthetic one with -p actors=...
+ *
+ * PS4
+ */
+@State(Scope.Benchmark)
+public class GameData {
+    @Param({"bundled", "synthetic"})
+    public String data;
+
+    @Param({"200000"})
+    public int actors;
+
+    @Param({"100000"})
+    public int movies;
+
+    @Param({"10"})
+    public int meanCast;
+
+    public String actorsFile, moviesFile, castsFile;
+    private Path dir; //synthetic files
+
+    @Setup(Level.Trial)
+    public void write() throws Exception {
+        if (data.equals("synthetic")) {
+            dir = Files.createTempDirectory("bacon-synthetic");
+            GameOps.writeSynthetic(dir, actors, movies, meanCast, 1);
+            actorsFile = dir.resolve("actors.txt").toString();
+            moviesFile = dir.resolve("movies.txt").toString();
+            castsFile = dir.resolve("movie-actors.txt").toString();
+        } else if (data.equals("bundled")) {
+            actorsFile = "actors.txt";
+            moviesFile = "movies.txt";
+            castsFile = "movie-actors.txt";
+        } else {
+            throw new IllegalArgumentException("unknown data set: " + data);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        if (dir == null) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    /**
+     * Loads the files into a game for the benchmarks to run on.
+     *
+     * @param graph "map" or "csr", see GameOps.open
+     */
+    public GameOps open(String graph) throws Exception {
+        return GameOps.open(actorsFile, moviesFile, castsFile, graph);
+    }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The game operations the benchmarks time. JMH only accepts benchmarks in a named package, and a
+ * named package cannot refer to the game's classes in the default package, so the benchmarks call
+ * them through this interface, implemented by BenchmarkGame in the default package.
+ * Every call site sees a single implementation, so the JIT inlines through it.
+ *
+ * PS4
+ */
+public interface GameOps {
+    /**
+     * Writes a SyntheticGraphs data set into dir.
+     *
+     * @return number of movie-actor rows written
+     */
+    static long writeSynthetic(Path dir, int actors, int movies, int meanCast, long seed) throws Exception {
+        return (Long) Class.forName("SyntheticGraphs").getMethod("write", Path.class, int.class, int.class, int.class, long.class)
+                .invoke(null, dir, actors, movies, meanCast, seed);
+    }
+
+    /**
+     * Reads the three files with baconReader into a fresh game.
+     *
+     * @param graph "map" to run the graph operations on the AdjacencyMapGraph baconReader builds,
+     *              "csr" to run them on its CSRGraph copy
+     */
+    static GameOps open(String actors, String movies, String casts, String graph) throws Exception {
+        return (GameOps) Class.forName("BenchmarkGame").getConstructor(String.class, String.class, String.class, String.class)
+                .newInstance(actors, movies, casts, graph);
+    }
+
+    /**
+     * Builds the co-star graph again from the files, returning its number of edges.
+     */
+    int baconReader() throws Exception;
+
+    /**
+     * GraphLibrary.bfs tree from the most connected actor.
+     */
+    Object bfsPopular();
+
+    /**
+     * GraphLibrary.bfs tree from an actor as far from the most connected one as any.
+     */
+    Object bfsPeripheral();
+
+    /**
+     * Number of random actors getPaths walks to the most connected actor.
+     */
+    int paths();
+
+    /**
+     * Total length of the getPath walks from paths() random actors in the bfs tree of the most connected one.
+     */
+    int getPaths();
+
+    /**
+     * averageSeparation in the bfs tree of the most connected actor.
+     */
+    double averageSeparation();
+
+    /**
+     * GraphLibrary.verticesByInDegree over the whole graph.
+     */
+    List<?> verticesByInDegree();
+
+    /**
+     * Vertices reached by a BFSResult search into reused arrays.
+     *
+     * @param peripheral search from the peripheral actor instead of the most connected one
+     */
+    int search(boolean peripheral, boolean directionOptimizing);
+
+    /**
+     * Actors with 1 to 10 co-stars from a freshly built DegreeIndex.
+     */
+    List<?> degreeIndex();
+
+    /**
+     * The 10 best centers around the most connected actor for the c command.
+     *
+     * @param method "bfs" or "bitParallel" for the exact ranking, "sampled" to estimate from pivots
+     */
+    List<?> topCenters(String method, int pivots, int threads);
+}
@@ -0,0 +1,30 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time for baconReader to parse the three files and build the co-star graph.
+ *
+ * PS4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class LoadBenchmark {
+    private GameOps game;
+
+    @Setup(Level.Trial)
+    public void setUp(GameData data) throws Exception {
+        game = data.open("map");
+    }
+
+    @Benchmark
+    public int baconReader() throws Exception {
+        return game.baconReader();
+    }
+}
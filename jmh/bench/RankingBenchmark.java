@@ -0,0 +1,40 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The c command: the 10 best centers among the actors connected to the most connected one, ranked
+ * exactly with one BFS per actor (bfs) or 64 at a time (bitParallel), or estimated from sampled
+ * pivots (sampled); pick with -p method=...
+ *
+ * PS4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RankingBenchmark {
+    @Param({"bfs", "bitParallel", "sampled"})
+    public String method;
+
+    @Param({"256"})
+    public int pivots;
+
+    private GameOps game;
+    private final int threads = Runtime.getRuntime().availableProcessors();
+
+    @Setup(Level.Trial)
+    public void setUp(GameData data) throws Exception {
+        game = data.open("csr");
+    }
+
+    @Benchmark
+    public List<?> topCenters() {
+        return game.topCenters(method, pivots, threads);
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The game's per-command graph work, on AdjacencyMapGraph and CSRGraph side by side (-p graph=map,csr):
+ * GraphLibrary.bfs from the most connected actor and from one as far from them as any, getPath from
+ * random actors, averageSeparation and verticesByInDegree.
+ *
+ * PS4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    @Param({"map", "csr"})
+    public String graph;
+
+    private GameOps game;
+
+    @Setup(Level.Trial)
+    public void setUp(GameData data) throws Exception {
+        game = data.open(graph);
+        if (game.paths() != 1000) throw new IllegalStateException("getPath is timed per 1000 paths, not " + game.paths());
+    }
+
+    @Benchmark
+    public Object bfsPopular() {
+        return game.bfsPopular();
+    }
+
+    @Benchmark
+    public Object bfsPeripheral() {
+        return game.bfsPeripheral();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int getPath() {
+        return game.getPaths();
+    }
+
+    @Benchmark
+    public double averageSeparation() {
+        return game.averageSeparation();
+    }
+
+    @Benchmark
+    public List<?> verticesByInDegree() {
+        return game.verticesByInDegree();
+    }
+}
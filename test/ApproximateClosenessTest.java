@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * On a co-star graph, the exact averages must lie within the error bounds of the estimates: the
+ * Hoeffding bound for every vertex, the normal bound for all but a few. One seed must always give the
+ * same estimates, searching from every vertex must give the exact ones, and the confirmed top and
+ * bottom must be the exact ranking's.
+ *
+ * PS4
+ */
+class ApproximateClosenessTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void boundsContainExactAverages() throws Exception {
+        CSRGraph<Integer, List<String>> g = coStars();
+        Integer center = busiest(g);
+        ClosenessRanking<Integer, List<String>> exact = ClosenessRanking.compute(g, center, 4, true);
+        ApproximateCloseness<Integer, List<String>> approx = ApproximateCloseness.estimate(g, center, 150, 7);
+        assertEquals(exact.size(), approx.size());
+        assertEquals(150, approx.pivots());
+        assertEquals(center, approx.center());
+
+        double worst = approx.worstCaseBound(0.01 / approx.size());
+        int outside = 0;
+        for (Integer v : g.vertices()) {
+            double want = exact.averageSeparation(v), got = approx.averageSeparation(v);
+            if (Double.isNaN(want)) {
+                assertTrue(Double.isNaN(got), v + " is not connected to the center");
+                assertTrue(Double.isNaN(approx.errorBound(v, ApproximateCloseness.Z)));
+                continue;
+            }
+            assertTrue(Math.abs(got - want) <= worst, v + ": " + got + " vs " + want + " beyond " + worst);
+            double bound = approx.errorBound(v, ApproximateCloseness.Z);
+            assertTrue(bound > 0 && bound < worst, v + ": " + bound);
+            if (Math.abs(got - want) > bound) outside++;
+        }
+        //about 0.3% per vertex at z = 3; allow several times that
+        assertTrue(outside <= exact.size() / 50, outside + " of " + exact.size() + " outside the normal bound");
+    }
+
+    @Test
+    void seedGivesSameEstimates() throws Exception {
+        CSRGraph<Integer, List<String>> g = coStars();
+        Integer center = busiest(g);
+        ApproximateCloseness<Integer, List<String>> a = ApproximateCloseness.estimate(g, center, 40, 11),
+                b = ApproximateCloseness.estimate(g, center, 40, 11), c = ApproximateCloseness.estimate(g, center, 40, 12);
+        boolean differs = false;
+        for (Integer v : g.vertices()) {
+            assertEquals(a.averageSeparation(v), b.averageSeparation(v), 0, "at " + v);
+            assertEquals(a.errorBound(v, 1), b.errorBound(v, 1), 0);
+            differs |= a.averageSeparation(v) != c.averageSeparation(v);
+        }
+        assertTrue(differs, "another seed draws other pivots");
+        assertEquals(a.top(20), b.top(20));
+        assertEquals(11, a.seed());
+
+        //pivots from the whole component give the exact averages with no error
+        ClosenessRanking<Integer, List<String>> exact = ClosenessRanking.compute(g, center, 2);
+        ApproximateCloseness<Integer, List<String>> all = ApproximateCloseness.estimate(g, center, Integer.MAX_VALUE, 1);
+        assertEquals(exact.size(), all.pivots());
+        assertEquals(0, all.worstCaseBound(0.01));
+        for (Integer v : g.vertices()) {
+            if (!Double.isNaN(exact.averageSeparation(v))) {
+                assertEquals(exact.averageSeparation(v), all.averageSeparation(v), 1e-9, "at " + v);
+                assertEquals(0, all.errorBound(v, ApproximateCloseness.Z), 1e-9);
+            }
+        }
+        assertEquals(exact.top(10), all.top(10));
+
+        assertThrows(IllegalArgumentException.class, () -> ApproximateCloseness.estimate(g, center, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> ApproximateCloseness.estimate(g, -1, 10, 1));
+    }
+
+    @Test
+    void confirmedRankingsAreExact() throws Exception {
+        CSRGraph<Integer, List<String>> g = coStars();
+        Integer center = busiest(g);
+        ClosenessRanking<Integer, List<String>> exact = ClosenessRanking.compute(g, center, 4, true);
+        ApproximateCloseness<Integer, List<String>> approx = ApproximateCloseness.estimate(g, center, 100, 5);
+        ClosenessRanking<Integer, List<String>> top = approx.confirmTop(10, ApproximateCloseness.Z, 2);
+        ClosenessRanking<Integer, List<String>> bottom = approx.confirmBottom(10, ApproximateCloseness.Z, 2);
+        assertEquals(exact.top(10), top.top(10));
+        assertEquals(exact.bottom(10), bottom.bottom(10));
+        //the bounds must rule most vertices out, or nothing was saved
+        assertTrue(top.size() < exact.size() / 2, top.size() + " of " + exact.size() + " searched");
+        assertTrue(bottom.size() < exact.size() / 2, bottom.size() + " of " + exact.size() + " searched");
+        for (Integer v : top.top(Integer.MAX_VALUE)) assertEquals(exact.averageSeparation(v), top.averageSeparation(v), 1e-9);
+        assertEquals(0, approx.confirmTop(0, ApproximateCloseness.Z, 1).size());
+    }
+
+    private CSRGraph<Integer, List<String>> coStars() throws Exception {
+        SyntheticGraphs.write(dir, 2500, 1200, 4, 21);
+        CastIndex index = CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        return new CoStarBuilder(index, 1).toCSRGraph();
+    }
+
+    // the vertex with the most co-stars, which is in the large component
+    private static Integer busiest(CSRGraph<Integer, List<String>> g) {
+        Integer best = null;
+        for (Integer v : g.vertices()) {
+            if (best == null || g.outDegree(v) > g.outDegree(best)) best = v;
+        }
+        return best;
+    }
+}
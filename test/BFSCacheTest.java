@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The cache must evict least recently used trees past its entry and byte limits, drop exactly the
+ * trees a change can affect, and answer every lookup with the distances a fresh search would give.
+ *
+ * PS4
+ */
+class BFSCacheTest {
+    @Test
+    void evictsLeastRecentlyUsed() {
+        AdjacencyMapGraph<Integer, String> g = square();
+        BFSCache<Integer, String> cache = BFSCache.of(g, 3, Long.MAX_VALUE);
+        for (int c : new int[]{0, 1, 2}) cache.get(c);
+        assertSame(cache.get(0), cache.get(0));
+        cache.get(3); //1 is now the least recently used
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictions());
+        long misses = cache.misses();
+        cache.get(0);
+        cache.get(2);
+        assertEquals(misses, cache.misses());
+        cache.get(1);
+        assertEquals(misses + 1, cache.misses());
+        assertEquals(5, cache.misses());
+        assertEquals(4, cache.hits());
+        assertNull(cache.get(99));
+
+        //room for two trees by bytes, and the latest is kept even when one is too many
+        long tree = cache.estimatedBytes() / cache.size();
+        BFSCache<Integer, String> byBytes = BFSCache.of(g, 10, 2 * tree);
+        for (int c = 0; c < 5; c++) byBytes.get(c);
+        assertEquals(2, byBytes.size());
+        BFSCache<Integer, String> tiny = BFSCache.of(g, 10, 1);
+        for (int c = 0; c < 5; c++) tiny.get(c);
+        assertEquals(1, tiny.size());
+        assertEquals(4, (int) tiny.get(4).source());
+    }
+
+    @Test
+    void changesDropOnlyAffectedTrees() {
+        AdjacencyMapGraph<Integer, String> g = square();
+        BFSCache<Integer, String> cache = BFSCache.of(g, 10, Long.MAX_VALUE);
+        for (int c : new int[]{0, 1, 4}) cache.get(c);
+
+        //1 - 2 shortens no distance from 0 or 4, but 2 is now one step from 1
+        g.insertUndirected(1, 2, "1-2");
+        assertEquals(1, cache.dropped());
+        assertEquals(2, cache.size());
+        assertCurrent(g, cache, 0, 4);
+        assertSame(cache.compact(), cache.get(0).graph(), "kept trees are moved onto the new copy");
+        long hits = cache.hits();
+        cache.get(0);
+        cache.get(4);
+        assertEquals(hits + 2, cache.hits());
+
+        //the edge into 3 that 0's tree did not use
+        int other = cache.get(0).getPath(3).get(1) == 1 ? 2 : 1;
+        g.removeUndirected(other, 3);
+        hits = cache.hits();
+        cache.get(0);
+        assertEquals(hits + 1, cache.hits(), "0's tree survives removing an edge it does not use");
+        assertCurrent(g, cache, 0, 1, 2, 3, 4);
+
+        //3 - 4 is the only way to 4, so every tree uses it
+        g.removeUndirected(3, 4);
+        assertEquals(0, cache.size());
+        assertCurrent(g, cache, 0, 4);
+
+        g.insertVertex(5);
+        assertEquals(2, cache.size(), "an isolated vertex changes no distance");
+        g.removeVertex(5);
+        assertEquals(0, cache.size());
+
+        cache.get(0);
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.estimatedBytes());
+        assertEquals(1, cache.invalidations());
+    }
+
+    @Test
+    void randomChangesKeepLookupsCurrent() {
+        Random random = new Random(8);
+        AdjacencyMapGraph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < 200; v++) g.insertVertex(v);
+        for (int i = 0; i < 300; i++) {
+            int u = random.nextInt(200), v = random.nextInt(200);
+            if (u != v) g.insertUndirected(u, v, u + "-" + v);
+        }
+        BFSCache<Integer, String> cache = BFSCache.of(g, 8, Long.MAX_VALUE, true);
+        Integer[] centers = {0, 1, 2, 3, 50, 199};
+        for (int step = 0; step < 200; step++) {
+            int u = random.nextInt(200), v = random.nextInt(200);
+            if (u == v) continue;
+            if (g.hasEdge(u, v)) g.removeUndirected(u, v);
+            else g.insertUndirected(u, v, u + "-" + v);
+            if (step % 5 == 0) assertCurrent(g, cache, centers);
+        }
+        assertTrue(cache.hits() > 0);
+    }
+
+    // every center's cached tree has the distances of a plain queue search over g as it is now
+    private static void assertCurrent(AdjacencyMapGraph<Integer, String> g, BFSCache<Integer, String> cache, Integer... centers) {
+        for (int c : centers) {
+            Map<Integer, Integer> want = new HashMap<>();
+            Deque<Integer> queue = new ArrayDeque<>(List.of(c));
+            want.put(c, 0);
+            while (!queue.isEmpty()) {
+                int u = queue.remove();
+                for (int w : g.outNeighbors(u)) {
+                    if (want.putIfAbsent(w, want.get(u) + 1) == null) queue.add(w);
+                }
+            }
+            BFSResult<Integer, String> tree = cache.get(c);
+            for (Integer v : g.vertices()) assertEquals(want.getOrDefault(v, -1), tree.distance(v), "from " + c + " to " + v);
+        }
+    }
+
+    // 0 - 1 - 3 - 4 and 0 - 2 - 3, plus isolated vertices so that a change touches few enough rows for
+    // the compact copy to be patched rather than rebuilt
+    private static AdjacencyMapGraph<Integer, String> square() {
+        AdjacencyMapGraph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < 5; v++) g.insertVertex(v);
+        for (int v = 10; v < 30; v++) g.insertVertex(v);
+        g.insertUndirected(0, 1, "0-1");
+        g.insertUndirected(0, 2, "0-2");
+        g.insertUndirected(1, 3, "1-3");
+        g.insertUndirected(2, 3, "2-3");
+        g.insertUndirected(3, 4, "3-4");
+        return g;
+    }
+}
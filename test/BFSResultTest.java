@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The direction-optimizing search must find the same distances and level buckets as the plain
+ * top-down BFS, with a parent one level closer to the source along a real edge, and a range of
+ * level buckets must hold exactly the vertices at those separations.
+ *
+ * PS4
+ */
+class BFSResultTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void bothWaysMatchesTopDownOnSyntheticGraph() throws Exception {
+        SyntheticGraphs.write(dir, 5000, 2000, 8, 3);
+        CastIndex index = CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        CSRGraph<Integer, List<String>> g = new CoStarBuilder(index, 1).toCSRGraph();
+        //hubs have low actor IDs; the last ones are peripheral or isolated
+        int[] sources = {0, 1, 10, 100, 2500, g.numVertices() - 1};
+        BFSResult<Integer, List<String>> topDown = new BFSResult<>(g), bothWays = new BFSResult<>(g, true);
+        for (int s : sources) {
+            //the same results are searched again, so resetting between sources is checked too
+            assertSameSearch(g, topDown.search(s), bothWays.search(s));
+        }
+    }
+
+    @Test
+    void bothWaysMatchesTopDownOnDirectedGraph() {
+        //edges one way only, so bottom-up steps have to use the in-edges
+        Random random = new Random(5);
+        CSRGraph.Builder<Integer, String> b = new CSRGraph.Builder<>();
+        for (int v = 0; v < 3000; v++) b.addVertex(v);
+        for (int i = 0; i < 30000; i++) {
+            //skewed targets make a few vertices with very many in-edges
+            double u = random.nextDouble();
+            b.addDirected(random.nextInt(3000), (int) (u * u * 3000), "e" + i);
+        }
+        CSRGraph<Integer, String> g = b.build();
+        for (int s = 0; s < 3000; s += 299) {
+            assertSameSearch(g, new BFSResult<>(g).search(s), new BFSResult<>(g, true).search(s));
+        }
+    }
+
+    @Test
+    void verticesWithinIsTheDistanceRange() throws Exception {
+        SyntheticGraphs.write(dir, 2000, 800, 4, 8);
+        CastIndex index = CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        CSRGraph<Integer, List<String>> g = new CoStarBuilder(index, 1).toCSRGraph();
+        for (boolean bothWays : new boolean[]{false, true}) {
+            BFSResult<Integer, List<String>> tree = new BFSResult<>(g, bothWays).search(5);
+            int ecc = tree.eccentricity();
+            int[][] ranges = {{0, 0}, {1, 1}, {0, 2}, {2, ecc}, {3, Integer.MAX_VALUE}, {-5, 1}, {4, 2}, {ecc + 1, ecc + 5}};
+            for (int[] range : ranges) {
+                List<Integer> within = tree.verticesWithin(range[0], range[1]);
+                Set<Integer> want = new HashSet<>();
+                for (Integer v : g.vertices()) {
+                    int d = tree.distance(v);
+                    if (d >= 0 && d >= range[0] && d <= range[1]) want.add(v);
+                }
+                assertEquals(want, new HashSet<>(within), Arrays.toString(range));
+                assertEquals(want.size(), within.size(), "no vertex twice");
+                for (int i = 1; i < within.size(); i++) {
+                    assertTrue(tree.distance(within.get(i - 1)) <= tree.distance(within.get(i)), "in order of separation");
+                }
+            }
+        }
+    }
+
+    private static <E> void assertSameSearch(CSRGraph<Integer, E> g, BFSResult<Integer, E> want, BFSResult<Integer, E> got) {
+        assertArrayEquals(want.distances(), got.distances(), "distances from " + want.source());
+        assertEquals(want.numReached(), got.numReached());
+        assertEquals(want.eccentricity(), got.eccentricity());
+        for (int d = 0; d <= want.eccentricity(); d++) {
+            assertEquals(want.levelSize(d), got.levelSize(d), "size of level " + d);
+            //a level found bottom-up is in id order, so compare each bucket as a set
+            assertEquals(new HashSet<>(want.verticesWithin(d, d)), new HashSet<>(got.verticesWithin(d, d)), "level " + d);
+        }
+        int[] dist = got.distances(), parents = got.parents();
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] <= 0) {
+                assertEquals(-1, parents[v]);
+                continue;
+            }
+            int p = parents[v];
+            assertEquals(dist[v] - 1, dist[p], "parent of " + v + " is one level up");
+            assertNotNull(g.edgeLabel(p, v), "parent of " + v + " has an edge to it");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The console game must start without Kevin Bacon in the data, from the best-connected actor.
+ *
+ * PS4
+ */
+class BaconGameTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void startsFromTheBestConnectedActorWithoutKevinBacon() throws Exception {
+        SyntheticGraphs.write(dir, 200, 100, 5, 4);
+        BaconGame game = new BaconGame();
+        game.baconReader(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        assertTrue(game.actor("Kevin Bacon") < 0);
+        String out = play(game, "p Actor 150\nq\n");
+        int best = game.degrees.verticesByInDegree(0, Integer.MAX_VALUE).get(0);
+        assertEquals(best, (int) game.center);
+        assertTrue(out.contains("Kevin Bacon is not in the graph; " + game.name(best) + " is the center"), out);
+        assertTrue(out.contains("Actor 150's number is") || out.contains("There is no path"), out);
+    }
+
+    // runs the command loop on input, returning what it printed
+    private static String play(BaconGame game, String input) throws Exception {
+        InputStream in = System.in;
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        try {
+            System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+            System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+            game.commandKey();
+        } finally {
+            System.setIn(in);
+            System.setOut(out);
+        }
+        return printed.toString(StandardCharsets.UTF_8);
+    }
+}
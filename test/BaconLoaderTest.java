@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The byte-level loader must hand over every record as String.split would read it, whatever the line
+ * endings, and must reject a line without a numeric id; the index must reject rows naming unknown IDs.
+ *
+ * PS4
+ */
+class BaconLoaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsMatchSplitLines() throws Exception {
+        //CRLF, a blank line, UTF-8, a pipe inside a name and no newline at the end
+        write("actors.txt", "1|Kevin Bacon\r\n2|Zoë Saldaña\n\n30|A|B\n4|");
+        write("movies.txt", "7|Footloose (1984)\n8|Apollo 13 (1995)\r\n");
+        write("movie-actors.txt", "7|1\n8|1\r\n8|30\n7|2");
+        List<String> records = new ArrayList<>();
+        BaconLoader.load(file("actors.txt"), file("movies.txt"), file("movie-actors.txt"), new BaconLoader.Sink() {
+            public void actor(int actorId, String name) {
+                records.add("actor " + actorId + " " + name);
+            }
+
+            public void movie(int movieId, String name) {
+                records.add("movie " + movieId + " " + name);
+            }
+
+            public void cast(int movieId, int actorId) {
+                records.add("cast " + movieId + " " + actorId);
+            }
+        });
+        assertEquals(List.of("actor 1 Kevin Bacon", "actor 2 Zoë Saldaña", "actor 30 A|B", "actor 4 ",
+                "movie 7 Footloose (1984)", "movie 8 Apollo 13 (1995)",
+                "cast 7 1", "cast 8 1", "cast 8 30", "cast 7 2"), records);
+    }
+
+    @Test
+    void indexGroupsTheRows() throws Exception {
+        write("actors.txt", "1|Kevin Bacon\r\n2|Zoë Saldaña\n3|Nobody\n");
+        write("movies.txt", "7|Footloose (1984)\n8|Apollo 13 (1995)\n");
+        write("movie-actors.txt", "7|1\n8|1\n8|2\n");
+        CastIndex index = CastIndex.load(file("actors.txt"), file("movies.txt"), file("movie-actors.txt"));
+        assertEquals("Zoë Saldaña", index.actorName(2));
+        assertEquals("Apollo 13 (1995)", index.movieTitle(8));
+        assertEquals(2, index.actorId("Zoë Saldaña"));
+        assertEquals(-1, index.actorId("Tom Hanks"));
+        assertFalse(index.hasActor(0));
+        assertTrue(index.hasActor(3));
+        assertEquals(3, index.numRows());
+        int[] castStart = index.castStart(), filmStart = index.filmStart();
+        assertArrayEquals(new int[]{1, 2}, Arrays.copyOfRange(index.cast(), castStart[8], castStart[9]));
+        assertArrayEquals(new int[]{7, 8}, Arrays.copyOfRange(index.films(), filmStart[1], filmStart[2]));
+        assertEquals(filmStart[3], filmStart[4], "an actor in no movie has no films");
+    }
+
+    @Test
+    void malformedLinesAreRejected() throws Exception {
+        write("movies.txt", "7|Footloose (1984)\n");
+        for (String actors : new String[]{"Kevin Bacon\n", "|Kevin Bacon\n", "1x|Kevin Bacon\n", "-1|Kevin Bacon\n"}) {
+            write("actors.txt", actors);
+            write("movie-actors.txt", "");
+            assertThrows(IOException.class, () -> CastIndex.load(file("actors.txt"), file("movies.txt"), file("movie-actors.txt")), actors);
+        }
+        write("actors.txt", "1|Kevin Bacon\n");
+        for (String rows : new String[]{"7|\n", "7\n", "7|1|1\n", "7| 1\n"}) {
+            write("movie-actors.txt", rows);
+            assertThrows(IOException.class, () -> CastIndex.load(file("actors.txt"), file("movies.txt"), file("movie-actors.txt")), rows);
+        }
+    }
+
+    @Test
+    void rowsNamingUnknownIdsAreRejected() throws Exception {
+        write("actors.txt", "1|Kevin Bacon\n");
+        write("movies.txt", "7|Footloose (1984)\n");
+        write("movie-actors.txt", "7|2\n");
+        Exception e = assertThrows(Exception.class, () -> CastIndex.load(file("actors.txt"), file("movies.txt"), file("movie-actors.txt")));
+        assertTrue(e.getMessage().contains("unknown actor ID 2"), e.getMessage());
+        write("movie-actors.txt", "9|1\n");
+        e = assertThrows(Exception.class, () -> CastIndex.load(file("actors.txt"), file("movies.txt"), file("movie-actors.txt")));
+        assertTrue(e.getMessage().contains("unknown movie ID 9"), e.getMessage());
+    }
+
+    private void write(String name, String contents) throws IOException {
+        Files.write(dir.resolve(name), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String file(String name) {
+        return dir.resolve(name).toString();
+    }
+}
@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A pinned snapshot must keep answering from the graph it was published with while updates publish
+ * new ones, updates must not touch the graph they copy, and readers racing a writer must only ever
+ * see whole snapshots, in publication order.
+ *
+ * PS4
+ */
+class BaconQueryServiceTest {
+    @Test
+    void pinnedSnapshotIsUnchangedByUpdates() {
+        AdjacencyMapGraph<String, String> g = new AdjacencyMapGraph<>();
+        for (String v : List.of("a", "b", "c", "x", "y")) g.insertVertex(v);
+        g.insertUndirected("a", "b", "ab");
+        g.insertUndirected("b", "c", "bc");
+        g.insertUndirected("x", "y", "xy");
+        BaconQueryService<String, String> service = BaconQueryService.of(g);
+        BaconQueryService.Snapshot<String, String> pinned = service.current();
+        assertEquals(1, pinned.epoch());
+
+        BaconQueryService.Snapshot<String, String> updated = service.update(copy -> {
+            copy.insertVertex("z");
+            copy.insertUndirected("c", "z", "cz");
+            copy.insertUndirected("z", "x", "zx");
+        });
+        assertSame(updated, service.current());
+        assertEquals(2, updated.epoch());
+        assertFalse(g.hasVertex("z"), "the published graph is a copy");
+
+        assertFalse(pinned.connected("a", "y"));
+        assertEquals(List.of(), service.path(pinned, "a", "y"));
+        assertEquals(3, pinned.componentSize("a"));
+        assertEquals(Set.of("x", "y"), pinned.disconnectedFrom("a"));
+        assertFalse(pinned.graph().hasVertex("z"));
+
+        List<String> path = service.path(updated, "a", "y");
+        assertEquals(List.of("a", "b", "c", "z", "x", "y"), path);
+        assertEquals(List.of("ab", "bc", "cz", "zx", "xy"), service.pathLabels(updated, path));
+        assertEquals(List.of("ab", "bc", "cz", "zx", "xy"), service.pathLabels("a", "y"));
+        assertEquals(6, service.componentSize("a"));
+        assertEquals(Set.of(), service.disconnectedFrom("a"));
+        assertEquals(5, service.separationStats("a").eccentricity());
+        assertEquals(3, service.separationStats(pinned, "a").reachable());
+        assertNull(service.separationStats(pinned, "z"));
+
+        //publishing a graph directly replaces the snapshot too
+        service.publish(g);
+        assertEquals(3, service.current().epoch());
+        assertFalse(service.hasVertex("z"));
+    }
+
+    @Test
+    void readersOnlySeeWholeSnapshots() throws Exception {
+        //a star that grows by one leaf per update, so every snapshot has its own consistent size
+        AdjacencyMapGraph<Integer, String> g = new AdjacencyMapGraph<>();
+        g.insertVertex(0);
+        BaconQueryService<Integer, String> service = BaconQueryService.of(g);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                long epoch = 0;
+                try {
+                    while (!done.get()) {
+                        BaconQueryService.Snapshot<Integer, String> s = service.current();
+                        assertTrue(s.epoch() >= epoch, "epochs never go back");
+                        epoch = s.epoch();
+                        int n = s.graph().numVertices();
+                        assertEquals(epoch, n, "one leaf per update after the first snapshot");
+                        assertEquals(n, s.componentSize(0));
+                        assertEquals(n, service.separationStats(s, 0).reachable());
+                        if (n > 2) {
+                            assertEquals(List.of(0), s.degrees().verticesByInDegree(2, Integer.MAX_VALUE));
+                            assertEquals(List.of(n - 1, 0, 1), service.path(s, n - 1, 1));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (int leaf = 1; leaf <= 200; leaf++) {
+            int v = leaf;
+            service.update(copy -> {
+                copy.insertVertex(v);
+                copy.insertUndirected(0, v, "0-" + v);
+            });
+        }
+        done.set(true);
+        for (Thread reader : readers) reader.join();
+        if (failure.get() != null) throw new AssertionError("reader saw a torn snapshot", failure.get());
+        assertEquals(201, service.current().graph().numVertices());
+        assertEquals(List.of(200, 0, 1), service.path(200, 1));
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pipelined commands on one connection must be answered in order, each ending with an empty line,
+ * with the same answers as the query service, and the load generator must time every command it sends.
+ *
+ * PS4
+ */
+class BaconServerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void pipelinedCommandsAreAnsweredInOrder() throws Exception {
+        BaconGame game = load();
+        BaconQueryService<Integer, List<String>> queries = game.queryService();
+        try (BaconServer server = new BaconServer(queries, game.actorNames, 0, 2);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            //all sent before any answer is read
+            out.write("u Actor 0\np Actor 150\np Nobody\ns 1 1\nx\nd 0 " + Integer.MAX_VALUE + "\n");
+            out.flush();
+
+            int center = game.actor("Actor 0");
+            List<String> u = response(in);
+            assertEquals(1, u.size());
+            assertTrue(u.get(0).startsWith("Actor 0 is now the center"), u.get(0));
+
+            List<Integer> path = queries.path(game.actor("Actor 150"), center);
+            List<String> p = response(in);
+            assertEquals("Actor 150's number is " + (path.size() - 1), p.get(0));
+            assertEquals(path.size(), p.size());
+            for (int i = 1; i < p.size(); i++) {
+                assertTrue(p.get(i).startsWith(game.name(path.get(i - 1)) + " appeared in "), p.get(i));
+                assertTrue(p.get(i).endsWith(" with " + game.name(path.get(i))), p.get(i));
+            }
+
+            assertEquals(List.of("error actor not in graph: Nobody"), response(in));
+            assertEquals(names(game, queries.verticesWithin(center, 1, 1)), response(in));
+            assertEquals(List.of("error unknown command: x"), response(in));
+            assertEquals(names(game, queries.verticesByInDegree(0, Integer.MAX_VALUE)), response(in));
+        }
+    }
+
+    @Test
+    void loadGeneratorTimesEveryCommand() throws Exception {
+        BaconGame game = load();
+        try (BaconServer server = new BaconServer(game.queryService(), game.actorNames, 0, 4)) {
+            List<String> actors = BaconLoadGenerator.fetchActors(server.port());
+            assertEquals(game.movieActors.numVertices(), actors.size());
+            long[] latencies = new BaconLoadGenerator(server.port(), actors).run(3, 50, 4, 7);
+            assertEquals(150, latencies.length);
+            for (long l : latencies) assertTrue(l > 0);
+            assertTrue(BaconLoadGenerator.percentile(latencies, 0.5) <= BaconLoadGenerator.percentile(latencies, 0.99));
+        }
+    }
+
+    private BaconGame load() throws Exception {
+        SyntheticGraphs.write(dir, 300, 200, 5, 17);
+        BaconGame game = new BaconGame();
+        game.baconReader(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        return game;
+    }
+
+    private static List<String> names(BaconGame game, Collection<Integer> actors) {
+        List<String> names = new ArrayList<>();
+        for (int a : actors) names.add(game.name(a));
+        return names;
+    }
+
+    // the lines of one response, without the empty line that ends it
+    private static List<String> response(BufferedReader in) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line; (line = in.readLine()) != null && !line.isEmpty(); ) lines.add(line);
+        return lines;
+    }
+}
@@ -0,0 +1,74 @@
+import bench.BenchmarkGate;
+import bench.GameOps;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The gate must key JMH csv scores by benchmark, mode and parameters and flag only the ones worse than
+ * the baseline by more than the tolerance, in the right direction for each mode; the operations the
+ * benchmarks time must give the same answers on the map graph and its compact copy.
+ *
+ * PS4
+ */
+class BenchmarkGateTest {
+    private static final String HEADER = "\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\",\"Unit\",\"Param: data\",\"Param: graph\"";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void flagsOnlyRegressionsBeyondTolerance() throws Exception {
+        Path baseline = csv("baseline.csv",
+                "\"bench.SearchBenchmark.bfsPopular\",\"avgt\",1,5,10.0,0.5,\"ms/op\",synthetic,csr",
+                "\"bench.SearchBenchmark.bfsPopular\",\"avgt\",1,5,40.0,0.5,\"ms/op\",synthetic,map",
+                "\"bench.SearchBenchmark.paths\",\"thrpt\",1,5,1000.0,5.0,\"ops/s\",synthetic,csr",
+                "\"bench.LoadBenchmark.baconReader\",\"avgt\",1,5,1200.5,3.0,\"ms/op\",bundled,map");
+        Path current = csv("current.csv",
+                "\"bench.SearchBenchmark.bfsPopular\",\"avgt\",1,5,13.0,0.5,\"ms/op\",synthetic,csr",
+                "\"bench.SearchBenchmark.bfsPopular\",\"avgt\",1,5,44.0,0.5,\"ms/op\",synthetic,map",
+                "\"bench.SearchBenchmark.paths\",\"thrpt\",1,5,700.0,5.0,\"ops/s\",synthetic,csr",
+                "\"bench.LoadBenchmark.baconReader\",\"avgt\",1,5,900.0,3.0,\"ms/op\",bundled,map",
+                "\"bench.RankingBenchmark.topCenters\",\"avgt\",1,5,99.0,1.0,\"ms/op\",synthetic,csr");
+
+        Map<String, Double> scores = BenchmarkGate.scores(current);
+        assertEquals(13.0, scores.get("bench.SearchBenchmark.bfsPopular avgt data=synthetic graph=csr"));
+        assertEquals(44.0, scores.get("bench.SearchBenchmark.bfsPopular avgt data=synthetic graph=map"));
+        assertEquals(5, scores.size());
+
+        //30% slower and 30% less throughput fail at 20%; 10% slower, faster, and a new benchmark pass
+        List<String> worse = BenchmarkGate.regressions(BenchmarkGate.scores(baseline), scores, 0.2);
+        assertEquals(2, worse.size(), worse.toString());
+        assertTrue(worse.get(0).startsWith("bench.SearchBenchmark.bfsPopular avgt data=synthetic graph=csr"), worse.get(0));
+        assertTrue(worse.get(1).startsWith("bench.SearchBenchmark.paths thrpt"), worse.get(1));
+        assertEquals(List.of(), BenchmarkGate.regressions(BenchmarkGate.scores(baseline), scores, 0.5));
+    }
+
+    @Test
+    void operationsAgreeOnMapAndCompactGraphs() throws Exception {
+        GameOps.writeSynthetic(dir, 600, 300, 5, 6);
+        String actors = dir.resolve("actors.txt").toString(), movies = dir.resolve("movies.txt").toString(),
+                casts = dir.resolve("movie-actors.txt").toString();
+        GameOps map = GameOps.open(actors, movies, casts, "map"), csr = GameOps.open(actors, movies, casts, "csr");
+        assertEquals(map.baconReader(), csr.baconReader());
+        assertEquals(map.getPaths(), csr.getPaths());
+        assertEquals(map.averageSeparation(), csr.averageSeparation(), 1e-9);
+        assertEquals(new HashSet<>(map.verticesByInDegree()), new HashSet<>(csr.verticesByInDegree()));
+        for (boolean peripheral : new boolean[]{false, true}) {
+            assertEquals(csr.search(peripheral, false), csr.search(peripheral, true));
+        }
+        assertEquals(csr.topCenters("bfs", 0, 2), csr.topCenters("bitParallel", 0, 2));
+        assertEquals(map.topCenters("bfs", 0, 1), csr.topCenters("bfs", 0, 3));
+    }
+
+    private Path csv(String name, String... rows) throws Exception {
+        List<String> lines = new ArrayList<>(List.of(HEADER));
+        lines.addAll(Arrays.asList(rows));
+        return Files.write(dir.resolve(name), lines);
+    }
+}
@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A compact copy must read exactly like the graph it was made from, store a label shared by both
+ * directions once, and copy back into an equal map graph; of() must reuse and patch its copy.
+ *
+ * PS4
+ */
+class CSRGraphTest {
+    @Test
+    void copyReadsLikeTheMapGraph() {
+        AdjacencyMapGraph<Integer, String> g = randomGraph(300, 900, 4);
+        CSRGraph<Integer, String> csr = new CSRGraph<>(g);
+        assertSameGraph(g, csr);
+        assertFalse(csr.hasVertex(300));
+        assertNull(csr.getLabel(0, 300));
+        assertEquals(-1, csr.vertexId(300));
+        for (Integer v : csr.vertices()) assertEquals(v, csr.vertex(csr.vertexId(v)));
+        assertSameGraph(g, csr.toAdjacencyMapGraph());
+    }
+
+    @Test
+    void sharedLabelIsStoredOnce() {
+        CSRGraph.Builder<String, List<String>> b = new CSRGraph.Builder<>();
+        List<String> shared = List.of("Footloose (1984)");
+        b.addUndirected("Kevin Bacon", "Lori Singer", shared);
+        b.addUndirected("Kevin Bacon", "John Lithgow", List.of("Footloose (1984)"));
+        CSRGraph<String, List<String>> g = b.build();
+        assertEquals(2, g.numLabels());
+        assertSame(g.getLabel("Kevin Bacon", "Lori Singer"), g.getLabel("Lori Singer", "Kevin Bacon"));
+        assertEquals(4, g.numEdges());
+        assertEquals(2, g.outDegree("Kevin Bacon"));
+        assertEquals(List.of("Kevin Bacon"), iterate(g.inNeighbors("Lori Singer")));
+    }
+
+    @Test
+    void ofReusesAndPatchesItsCopy() {
+        AdjacencyMapGraph<Integer, String> g = randomGraph(200, 400, 9);
+        CSRGraph<Integer, String> first = CSRGraph.of(g);
+        assertSame(first, CSRGraph.of(g), "unchanged graph, same copy");
+        g.insertUndirected(0, 199, "new");
+        g.insertVertex(200);
+        g.insertDirected(200, 3, "one way");
+        CSRGraph<Integer, String> patched = CSRGraph.of(g);
+        assertNotSame(first, patched);
+        assertTrue(patched.sharesIds(first), "a small change patches the last copy");
+        for (Integer v : first.vertices()) assertEquals(first.vertexId(v), patched.vertexId(v));
+        assertSameGraph(g, patched);
+        g.removeVertex(5);
+        CSRGraph<Integer, String> rebuilt = CSRGraph.of(g);
+        assertFalse(rebuilt.sharesIds(patched), "a removed vertex makes a fresh copy");
+        assertSameGraph(g, rebuilt);
+    }
+
+    private static void assertSameGraph(GraphView<Integer, String> want, GraphView<Integer, String> got) {
+        assertEquals(want.numVertices(), got.numVertices());
+        assertEquals(want.numEdges(), got.numEdges());
+        assertEquals(new HashSet<>(iterate(want.vertices())), new HashSet<>(iterate(got.vertices())));
+        for (Integer v : want.vertices()) {
+            assertEquals(want.outDegree(v), got.outDegree(v));
+            assertEquals(want.inDegree(v), got.inDegree(v));
+            assertEquals(new HashSet<>(iterate(want.outNeighbors(v))), new HashSet<>(iterate(got.outNeighbors(v))));
+            assertEquals(new HashSet<>(iterate(want.inNeighbors(v))), new HashSet<>(iterate(got.inNeighbors(v))));
+            for (Integer w : want.outNeighbors(v)) {
+                assertTrue(got.hasEdge(v, w));
+                assertEquals(want.getLabel(v, w), got.getLabel(v, w));
+            }
+        }
+    }
+
+    private static <T> List<T> iterate(Iterable<T> items) {
+        List<T> list = new ArrayList<>();
+        for (T t : items) list.add(t);
+        return list;
+    }
+
+    private static AdjacencyMapGraph<Integer, String> randomGraph(int n, int edges, long seed) {
+        Random random = new Random(seed);
+        AdjacencyMapGraph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < n; v++) g.insertVertex(v);
+        for (int i = 0; i < edges; i++) {
+            int u = random.nextInt(n), v = random.nextInt(n);
+            if (u == v) continue;
+            if (i % 4 == 0) g.insertDirected(u, v, "d" + i);
+            else g.insertUndirected(u, v, "u" + i);
+        }
+        return g;
+    }
+}
@@ -0,0 +1,54 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The search through movie nodes must find the co-star graph's distances, with each step of a path
+ * through a movie both actors are in.
+ *
+ * PS4
+ */
+class CastBFSResultTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void distancesMatchTheCoStarGraph() throws Exception {
+        SyntheticGraphs.write(dir, 3000, 1500, 6, 21);
+        CastIndex index = CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        CSRGraph<Integer, List<String>> g = new CoStarBuilder(index, 1).toCSRGraph();
+        CastBFSResult tree = new CastBFSResult(index);
+        for (int source : new int[]{0, 7, 1000, 2999}) {
+            String name = index.actorName(source);
+            tree.search(name);
+            BFSResult<Integer, List<String>> want = new BFSResult<>(g).search(Integer.valueOf(index.actorNameId(source)));
+            assertEquals(want.numReached(), tree.numReached(), name);
+            Set<String> missing = new HashSet<>();
+            for (int a = 0; a < index.actorIdLimit(); a++) {
+                String actor = index.actorName(a);
+                int d = want.distance(index.actorNameId(a));
+                assertEquals(d, tree.distance(actor), name + " to " + actor);
+                if (d < 0) {
+                    missing.add(actor);
+                    assertTrue(tree.getPath(actor).isEmpty());
+                    continue;
+                }
+                List<String> path = tree.getPath(actor), movies = tree.getMovies(actor);
+                assertEquals(d + 1, path.size());
+                assertEquals(d, movies.size());
+                assertEquals(actor, path.get(0));
+                assertEquals(name, path.get(d));
+                for (int i = 0; i < d; i++) {
+                    assertTrue(g.getLabel(index.actorNameId(index.actorId(path.get(i))), index.actorNameId(index.actorId(path.get(i + 1))))
+                            .contains(movies.get(i)), path.get(i) + " and " + path.get(i + 1) + " are in " + movies.get(i));
+                }
+            }
+            assertEquals(missing, tree.missingVertices());
+        }
+    }
+}
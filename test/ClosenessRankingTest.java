@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ranking must give every vertex the average separation of its own search, whichever search
+ * kind and thread count is used, and top/bottom must list the best and worst of them in order.
+ *
+ * PS4
+ */
+class ClosenessRankingTest {
+    @Test
+    void averagesMatchSingleSearches() {
+        CSRGraph<Integer, String> g = randomGraph(700, 900, 6);
+        Map<Integer, Double> want = new HashMap<>();
+        for (Integer v : g.vertices()) {
+            double average = average(g, v);
+            if (!Double.isNaN(average)) want.put(v, average);
+        }
+        for (boolean bitParallel : new boolean[]{false, true}) {
+            for (int threads : new int[]{1, 4}) {
+                ClosenessRanking<Integer, String> ranking = ClosenessRanking.compute(g, null, threads, bitParallel);
+                String run = (bitParallel ? "bit-parallel" : "bfs") + " with " + threads + " thread(s)";
+                assertEquals(want.size(), ranking.size(), run);
+                for (Integer v : g.vertices()) {
+                    double got = ranking.averageSeparation(v);
+                    if (want.containsKey(v)) assertEquals(want.get(v), got, 1e-9, run + " at " + v);
+                    else assertTrue(Double.isNaN(got), run + ": " + v + " reaches nothing");
+                }
+                assertEquals(order(g, want, Comparator.naturalOrder(), 25), ranking.top(25), run);
+                assertEquals(order(g, want, Comparator.reverseOrder(), 25), ranking.bottom(25), run);
+                assertEquals(want.size(), ranking.top(Integer.MAX_VALUE).size());
+                assertEquals(List.of(), ranking.top(0));
+            }
+        }
+    }
+
+    @Test
+    void centerRanksOnlyItsComponent() {
+        CSRGraph<Integer, String> g = randomGraph(400, 300, 2);
+        Integer center = null;
+        for (Integer v : g.vertices()) {
+            if (g.outDegree(v) > 0) {
+                center = v;
+                break;
+            }
+        }
+        ClosenessRanking<Integer, String> ranking = ClosenessRanking.compute(g, center, 2);
+        Set<Integer> component = new HashSet<>(new BFSResult<>(g).search(center).verticesWithin(0, Integer.MAX_VALUE));
+        assertEquals(component.size(), ranking.size());
+        assertEquals(center, ranking.center());
+        for (Integer v : g.vertices()) {
+            if (component.contains(v)) assertEquals(average(g, v), ranking.averageSeparation(v), 1e-9);
+            else assertTrue(Double.isNaN(ranking.averageSeparation(v)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> ClosenessRanking.compute(g, 400, 2));
+    }
+
+    // vertices by average separation in the given direction, ties by id, at most k of them
+    private static List<Integer> order(CSRGraph<Integer, String> g, Map<Integer, Double> averages, Comparator<Double> by, int k) {
+        List<Integer> vertices = new ArrayList<>(averages.keySet());
+        vertices.sort(Comparator.comparing((Integer v) -> averages.get(v), by).thenComparingInt(g::vertexId));
+        return vertices.subList(0, Math.min(k, vertices.size()));
+    }
+
+    // mean distance to the vertices v reaches by a plain queue search, or NaN if it reaches none
+    private static double average(CSRGraph<Integer, String> g, Integer v) {
+        Map<Integer, Integer> dist = new HashMap<>(Map.of(v, 0));
+        Deque<Integer> queue = new ArrayDeque<>(List.of(v));
+        long sum = 0;
+        while (!queue.isEmpty()) {
+            int u = queue.remove();
+            for (int w : g.outNeighbors(u)) {
+                if (dist.putIfAbsent(w, dist.get(u) + 1) == null) {
+                    sum += dist.get(w);
+                    queue.add(w);
+                }
+            }
+        }
+        return dist.size() == 1 ? Double.NaN : sum / (double) (dist.size() - 1);
+    }
+
+    private static CSRGraph<Integer, String> randomGraph(int n, int edges, long seed) {
+        Random random = new Random(seed);
+        CSRGraph.Builder<Integer, String> b = new CSRGraph.Builder<>();
+        for (Integer v = 0; v < n; v++) b.addVertex(v);
+        for (int i = 0; i < edges; i++) {
+            Integer u = random.nextInt(n), v = random.nextInt(n);
+            if (!u.equals(v)) b.addUndirected(u, v, u + "-" + v);
+        }
+        return b.build();
+    }
+}
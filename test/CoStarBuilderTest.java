@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The parallel co-star build must give exactly the single-threaded graph, labels included, whatever
+ * the thread count, and the single-threaded graph must match the pairs of each movie's cast.
+ *
+ * PS4
+ */
+class CoStarBuilderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void parallelMatchesSerial() throws Exception {
+        CastIndex index = load(4000, 3000, 10);
+        Map<Integer, Map<Integer, List<String>>> serial = edges(new CoStarBuilder(index, 1).toCSRGraph());
+        for (int threads : new int[]{2, 3, 8}) {
+            assertEquals(serial, edges(new CoStarBuilder(index, threads).toCSRGraph()), threads + " threads");
+        }
+    }
+
+    @Test
+    void serialMatchesCastPairs() throws Exception {
+        CastIndex index = load(500, 300, 6);
+        //the movies shared by every pair of actors, straight from the casts
+        Map<Integer, Map<Integer, SortedSet<Integer>>> shared = new HashMap<>();
+        int[] castStart = index.castStart(), cast = index.cast();
+        for (int m = 0; m < index.movieIdLimit(); m++) {
+            for (int i = castStart[m]; i < castStart[m + 1]; i++) {
+                for (int j = castStart[m]; j < castStart[m + 1]; j++) {
+                    int a = cast[i], b = cast[j];
+                    if (a != b) shared.computeIfAbsent(a, x -> new HashMap<>()).computeIfAbsent(b, x -> new TreeSet<>()).add(m);
+                }
+            }
+        }
+        Map<Integer, Map<Integer, List<String>>> expected = new HashMap<>();
+        for (int a = 0; a < index.actorIdLimit(); a++) {
+            if (!index.hasActor(a)) continue;
+            Map<Integer, List<String>> costars = new HashMap<>();
+            for (Map.Entry<Integer, SortedSet<Integer>> e : shared.getOrDefault(a, Map.of()).entrySet()) {
+                List<String> titles = new ArrayList<>();
+                for (int m : e.getValue()) titles.add(index.movieTitle(m));
+                costars.put(index.actorNameId(e.getKey()), titles);
+            }
+            expected.put(index.actorNameId(a), costars);
+        }
+        assertEquals(expected, edges(new CoStarBuilder(index, 1).toCSRGraph()));
+    }
+
+    @Test
+    void actorsWithTheSameNameAreOneVertex() throws Exception {
+        Files.write(dir.resolve("actors.txt"), List.of("1|Same", "2|Same", "3|Other", "4|Third"));
+        Files.write(dir.resolve("movies.txt"), List.of("10|M1", "11|M2", "12|M3"));
+        Files.write(dir.resolve("movie-actors.txt"), List.of("10|1", "10|2", "10|3", "11|2", "11|3", "12|1", "12|4"));
+        CastIndex index = CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        int same = index.actorNameId(1), other = index.actorNameId(3), third = index.actorNameId(4);
+        //no self-loop between the two of them, and the movies of both are merged into one label
+        Map<Integer, Map<Integer, List<String>>> expected = Map.of(
+                same, Map.of(other, List.of("M1", "M2"), third, List.of("M3")),
+                other, Map.of(same, List.of("M1", "M2")),
+                third, Map.of(same, List.of("M3")));
+        assertEquals(expected, edges(new CoStarBuilder(index, 1).toCSRGraph()));
+        assertEquals(expected, edges(new CoStarBuilder(index, 3).toCSRGraph()));
+        assertEquals(expected, edges(new CoStarBuilder(index, 1).insertInto(new AdjacencyMapGraph<>())));
+        assertEquals(1, index.actorId("Same"));
+        assertArrayEquals(new int[]{1, 2}, index.actorsNamed(same));
+    }
+
+    private CastIndex load(int actors, int movies, int meanCast) throws Exception {
+        SyntheticGraphs.write(dir, actors, movies, meanCast, 9);
+        return CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+    }
+
+    // vertex -> co-star -> shared titles in order, as plain lists so labels compare by content
+    private static Map<Integer, Map<Integer, List<String>>> edges(GraphView<Integer, List<String>> g) {
+        Map<Integer, Map<Integer, List<String>>> edges = new HashMap<>();
+        for (Integer u : g.vertices()) {
+            Map<Integer, List<String>> costars = new HashMap<>();
+            for (Integer v : g.outNeighbors(u)) costars.put(v, new ArrayList<>(g.getLabel(u, v)));
+            edges.put(u, costars);
+        }
+        return edges;
+    }
+}
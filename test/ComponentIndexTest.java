@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The component index must follow every change to a map graph, splitting components when a cut
+ * edge or vertex goes, and always agree with a fresh search of the graph as it is.
+ *
+ * PS4
+ */
+class ComponentIndexTest {
+    @Test
+    void cutEdgeSplitsAPath() {
+        Graph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < 10; v++) g.insertVertex(v);
+        for (int v = 0; v < 9; v++) g.insertUndirected(v, v + 1, "e");
+        ComponentIndex<Integer, String> index = ComponentIndex.of(g);
+        assertEquals(1, index.numComponents());
+        g.removeUndirected(3, 4);
+        assertEquals(2, index.numComponents());
+        assertEquals(4, index.componentSize(0));
+        assertEquals(6, index.componentSize(9));
+        assertFalse(index.connected(0, 9));
+        assertEquals(Set.of(0, 1, 2, 3), index.disconnectedFrom(5));
+        //a cycle edge is not a cut
+        g.insertUndirected(0, 3, "e");
+        g.removeUndirected(1, 2);
+        assertEquals(2, index.numComponents());
+        assertTrue(index.connected(1, 2));
+    }
+
+    @Test
+    void removedHubLeavesItsSpokes() {
+        Graph<Integer, String> g = new AdjacencyMapGraph<>();
+        ComponentIndex<Integer, String> index = ComponentIndex.of(g);
+        g.insertVertex(0);
+        for (int v = 1; v <= 6; v++) {
+            g.insertVertex(v);
+            g.insertUndirected(0, v, "spoke");
+        }
+        g.insertUndirected(1, 2, "rim");
+        assertEquals(1, index.numComponents());
+        g.removeVertex(0);
+        assertEquals(5, index.numComponents());
+        assertEquals(List.of(), index.component(0));
+        assertEquals(Set.of(1, 2), new HashSet<>(index.component(2)));
+        assertEquals(0, index.componentSize(0));
+    }
+
+    @Test
+    void randomChangesMatchAFreshSearch() {
+        Random random = new Random(12);
+        Graph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < 200; v++) g.insertVertex(v);
+        ComponentIndex<Integer, String> index = ComponentIndex.of(g);
+        int next = 200;
+        for (int step = 0; step < 3000; step++) {
+            List<Integer> vertices = new ArrayList<>();
+            for (Integer v : g.vertices()) vertices.add(v);
+            int op = random.nextInt(10);
+            int u = vertices.get(random.nextInt(vertices.size())), v = vertices.get(random.nextInt(vertices.size()));
+            if (op < 5) {
+                if (u != v) g.insertUndirected(u, v, "e");
+            } else if (op < 6) {
+                if (u != v) g.insertDirected(u, v, "one way");
+            } else if (op < 9) {
+                List<Integer> out = new ArrayList<>();
+                for (Integer w : g.outNeighbors(u)) out.add(w);
+                if (!out.isEmpty()) {
+                    int w = out.get(random.nextInt(out.size()));
+                    if (g.hasEdge(w, u)) g.removeUndirected(u, w);
+                    else g.removeDirected(u, w);
+                }
+            } else if (random.nextBoolean() && vertices.size() > 50) {
+                g.removeVertex(u);
+            } else {
+                g.insertVertex(next++);
+            }
+            if (step % 50 == 0) assertMatches(g, index);
+        }
+        assertMatches(g, index);
+    }
+
+    // compares the index with components found by searching g, ignoring edge direction
+    private static void assertMatches(Graph<Integer, String> g, ComponentIndex<Integer, String> index) {
+        Map<Integer, Set<Integer>> componentOf = new HashMap<>();
+        for (Integer s : g.vertices()) {
+            if (componentOf.containsKey(s)) continue;
+            Set<Integer> component = new HashSet<>();
+            Deque<Integer> queue = new ArrayDeque<>(List.of(s));
+            component.add(s);
+            while (!queue.isEmpty()) {
+                int x = queue.remove();
+                for (Integer w : g.outNeighbors(x)) if (component.add(w)) queue.add(w);
+                for (Integer w : g.inNeighbors(x)) if (component.add(w)) queue.add(w);
+            }
+            for (Integer x : component) componentOf.put(x, component);
+        }
+        assertEquals(new HashSet<>(componentOf.values()).size(), index.numComponents());
+        for (Integer v : g.vertices()) {
+            Set<Integer> want = componentOf.get(v);
+            assertEquals(want.size(), index.componentSize(v), "size of " + v);
+            assertEquals(want, new HashSet<>(index.component(v)), "component of " + v);
+        }
+        Integer v = g.vertices().iterator().next();
+        Set<Integer> missing = new HashSet<>(componentOf.keySet());
+        missing.removeAll(componentOf.get(v));
+        assertEquals(missing, index.disconnectedFrom(v));
+    }
+}
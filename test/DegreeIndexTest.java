@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Following a map graph through edge and vertex changes, the index must answer every degree range
+ * and top-k query as a fresh count of the graph's in-degrees would.
+ *
+ * PS4
+ */
+class DegreeIndexTest {
+    @Test
+    void followsChangesToTheGraph() {
+        Random random = new Random(4);
+        AdjacencyMapGraph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < 150; v++) g.insertVertex(v);
+        for (int i = 0; i < 600; i++) g.insertDirected(random.nextInt(150), skewed(random, 150), "e" + i);
+        DegreeIndex<Integer, String> index = DegreeIndex.of(g);
+        assertMatches(g, index);
+        int next = 150;
+        for (int step = 0; step < 400; step++) {
+            int u = random.nextInt(next), v = skewed(random, next);
+            if (!g.hasVertex(u) || !g.hasVertex(v)) continue;
+            switch (random.nextInt(6)) {
+                case 0 -> g.insertVertex(next++);
+                case 1 -> {
+                    if (random.nextInt(10) == 0) g.removeVertex(u);
+                }
+                case 2 -> {
+                    if (g.hasEdge(u, v)) g.removeDirected(u, v);
+                }
+                //re-inserting an edge relabels it, which must not count it twice
+                default -> g.insertDirected(u, v, "s" + step);
+            }
+            if (step % 25 == 0) assertMatches(g, index);
+        }
+        assertMatches(g, index);
+        assertEquals(-1, index.inDegree(-1));
+    }
+
+    @Test
+    void emptyGraphHasNoDegrees() {
+        DegreeIndex<Integer, String> index = DegreeIndex.of(new AdjacencyMapGraph<>());
+        assertEquals(-1, index.maxInDegree());
+        assertEquals(List.of(), index.top(3));
+        assertEquals(List.of(), index.verticesByInDegree(0, Integer.MAX_VALUE));
+    }
+
+    private static void assertMatches(AdjacencyMapGraph<Integer, String> g, DegreeIndex<Integer, String> index) {
+        List<Integer> byDegree = new ArrayList<>();
+        int max = -1;
+        for (Integer v : g.vertices()) {
+            assertEquals(g.inDegree(v), index.inDegree(v), "in-degree of " + v);
+            byDegree.add(g.inDegree(v));
+            max = Math.max(max, g.inDegree(v));
+        }
+        assertEquals(max, index.maxInDegree());
+        byDegree.sort(Comparator.reverseOrder());
+        for (int[] range : new int[][]{{0, 0}, {1, 3}, {2, 2}, {4, Integer.MAX_VALUE}, {0, Integer.MAX_VALUE}, {5, 1}, {max + 1, max + 9}}) {
+            List<Integer> within = index.verticesByInDegree(range[0], range[1]);
+            Set<Integer> want = new HashSet<>();
+            for (Integer v : g.vertices()) {
+                if (g.inDegree(v) >= range[0] && g.inDegree(v) <= range[1]) want.add(v);
+            }
+            assertEquals(want, new HashSet<>(within), Arrays.toString(range));
+            assertEquals(want.size(), within.size());
+            for (int i = 1; i < within.size(); i++) assertTrue(g.inDegree(within.get(i - 1)) >= g.inDegree(within.get(i)));
+        }
+        for (int k : new int[]{0, 1, 10, g.numVertices() + 5}) {
+            List<Integer> top = index.top(k);
+            assertEquals(Math.min(k, g.numVertices()), top.size());
+            for (int i = 0; i < top.size(); i++) assertEquals(byDegree.get(i), g.inDegree(top.get(i)), "top " + k + " at " + i);
+        }
+    }
+
+    // a vertex below n, low ids far more often, so some in-degrees are large
+    private static int skewed(Random random, int n) {
+        double x = random.nextDouble();
+        return (int) (x * x * n);
+    }
+}
@@ -0,0 +1,188 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A delta applied to a loaded game must leave the graph, its compact copy, the component index, the
+ * cached path trees and the bipartite index as a full rebuild from the changed files would.
+ *
+ * PS4
+ */
+class DeltaIngestTest {
+    private static final int ACTORS = 2000, MOVIES = 1000;
+
+    @TempDir
+    Path dir;
+    private CSRGraph<Integer, List<String>> last; //compact copy at the last query
+
+    @Test
+    void deltaThenQueriesMatchRebuild() throws Exception {
+        SyntheticGraphs.write(dir, ACTORS, MOVIES, 4, 7);
+        BaconGame game = new BaconGame();
+        game.baconReader(file("actors.txt"), file("movies.txt"), file("movie-actors.txt"));
+        String[] centers = {"Actor 0", "Actor 1", "Actor 500", "Actor 1999"};
+        query(game, centers);
+        CastBFSResult reused = new CastBFSResult(game.castIndex).search("Actor 0");
+
+        //rows as the rebuild will read them; a repeated row is one row
+        Set<String> rows = new LinkedHashSet<>(Files.readAllLines(dir.resolve("movie-actors.txt")));
+        List<String> remaining = new ArrayList<>(rows);
+        Random random = new Random(11);
+        DeltaIngest delta = game.delta();
+        delta.addActor(ACTORS, "Actor " + ACTORS);
+        delta.addMovie(MOVIES, "Movie " + MOVIES + " (2020)");
+        for (int i = 0; i < 300; i++) {
+            String row = remaining.remove(random.nextInt(remaining.size()));
+            rows.remove(row);
+            String[] ids = row.split("\\|");
+            assertTrue(delta.removeRow(Integer.parseInt(ids[0]), Integer.parseInt(ids[1])));
+            if (i % 20 == 0) query(game, centers);
+        }
+        for (int i = 0; i < 300; i++) {
+            int movie = random.nextInt(MOVIES + 1), actor = i % 10 == 0 ? ACTORS : random.nextInt(ACTORS + 1);
+            if (!game.castIndex.hasActor(actor)) continue;
+            assertEquals(rows.add(movie + "|" + actor), delta.addRow(movie, actor));
+            if (i % 20 == 0) query(game, centers);
+        }
+
+        Path rebuiltDir = Files.createDirectories(dir.resolve("rebuilt"));
+        List<String> actors = new ArrayList<>(Files.readAllLines(dir.resolve("actors.txt")));
+        actors.add(ACTORS + "|Actor " + ACTORS);
+        List<String> movies = new ArrayList<>(Files.readAllLines(dir.resolve("movies.txt")));
+        movies.add(MOVIES + "|Movie " + MOVIES + " (2020)");
+        Files.write(rebuiltDir.resolve("actors.txt"), actors);
+        Files.write(rebuiltDir.resolve("movies.txt"), movies);
+        Files.write(rebuiltDir.resolve("movie-actors.txt"), rows);
+        BaconGame rebuilt = new BaconGame();
+        rebuilt.baconReader(rebuiltDir.resolve("actors.txt").toString(), rebuiltDir.resolve("movies.txt").toString(),
+                rebuiltDir.resolve("movie-actors.txt").toString());
+
+        Map<String, Map<String, Set<String>>> expected = edges(rebuilt, rebuilt.movieActors);
+        assertEquals(expected, edges(game, game.movieActors));
+        assertEquals(expected, edges(game, game.pathTrees.compact()));
+
+        assertEquals(rebuilt.components.numComponents(), game.components.numComponents());
+        for (Integer v : rebuilt.movieActors.vertices()) {
+            String name = rebuilt.name(v);
+            assertEquals(rebuilt.components.componentSize(v), game.components.componentSize(game.actor(name)), name);
+        }
+
+        for (String center : centers) {
+            if (rebuilt.actor(center) < 0) continue;
+            BFSResult<Integer, List<String>> want = rebuilt.pathTrees.get(rebuilt.actor(center));
+            BFSResult<Integer, List<String>> got = game.pathTrees.get(game.actor(center));
+            assertSame(game.pathTrees.compact(), got.graph(), "cached tree is on the current copy");
+            for (Integer v : rebuilt.movieActors.vertices()) {
+                assertEquals(want.distance(v), got.distance(game.actor(rebuilt.name(v))), center + " to " + rebuilt.name(v));
+            }
+        }
+
+        assertTrue(game.pathTrees.hits() > 0, "some trees were kept across deltas");
+
+        String added = "Actor " + ACTORS;
+        CastBFSResult want = GraphLibrary.bfs(rebuilt.castIndex, added);
+        CastBFSResult got = GraphLibrary.bfs(game.castIndex, added);
+        reused.search(added);
+        for (int a = 0; a <= ACTORS; a++) {
+            String name = "Actor " + a;
+            assertEquals(want.distance(name), got.distance(name), name);
+            assertEquals(want.distance(name), reused.distance(name), name);
+        }
+    }
+
+    @Test
+    void removingAndRestoringCastsGivesTheBuiltGraph() throws Exception {
+        SyntheticGraphs.write(dir, 1000, 500, 6, 13);
+        BaconGame game = new BaconGame();
+        game.baconReader(file("actors.txt"), file("movies.txt"), file("movie-actors.txt"));
+        Map<String, Map<String, Set<String>>> built = edges(game, game.movieActors);
+        int[] castStart = game.castIndex.castStart(), cast = game.castIndex.cast();
+        int[] movies = {0, 1, 7, 100, 499};
+        Map<Integer, int[]> removed = new HashMap<>();
+        for (int m : movies) removed.put(m, Arrays.copyOfRange(cast, castStart[m], castStart[m + 1]));
+        DeltaIngest delta = game.delta();
+        for (int m : movies) {
+            for (int a : removed.get(m)) delta.removeRow(m, a);
+        }
+        assertNotEquals(built, edges(game, game.movieActors));
+        for (int m : movies) {
+            for (int a : removed.get(m)) delta.addRow(m, a);
+        }
+        assertEquals(built, edges(game, game.movieActors));
+        assertEquals(built, edges(game, new CoStarBuilder(game.castIndex, 1).insertInto(new AdjacencyMapGraph<>())));
+    }
+
+    @Test
+    void unknownAndNegativeIdsAreRejected() throws Exception {
+        SyntheticGraphs.write(dir, 50, 20, 3, 2);
+        BaconGame game = new BaconGame();
+        game.baconReader(file("actors.txt"), file("movies.txt"), file("movie-actors.txt"));
+        DeltaIngest delta = game.delta();
+        assertThrows(IllegalArgumentException.class, () -> delta.addActor(-1, "Nobody"));
+        assertThrows(IllegalArgumentException.class, () -> delta.addMovie(-1, "Nothing (2020)"));
+        assertThrows(IllegalArgumentException.class, () -> delta.addActor(0, "Someone Else"));
+        assertThrows(IllegalArgumentException.class, () -> delta.addRow(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> delta.addRow(0, -1));
+        assertThrows(IllegalArgumentException.class, () -> delta.removeRow(20, 0));
+        assertThrows(IllegalArgumentException.class, () -> delta.removeRow(0, 50));
+        delta.addActor(0, game.castIndex.actorName(0)); //same name again is a no-op
+        assertEquals(50, game.movieActors.numVertices());
+    }
+
+    @Test
+    void actorsWithTheSameNameShareOneVertex() throws Exception {
+        Files.write(dir.resolve("actors.txt"), List.of("1|Same", "2|Same", "3|Other", "4|Third"));
+        Files.write(dir.resolve("movies.txt"), List.of("10|M1", "11|M2", "12|M3"));
+        Files.write(dir.resolve("movie-actors.txt"), List.of("10|1", "10|2", "10|3", "11|2", "11|3", "12|1", "12|4"));
+        BaconGame game = new BaconGame();
+        game.baconReader(file("actors.txt"), file("movies.txt"), file("movie-actors.txt"));
+        DeltaIngest delta = game.delta();
+        assertEquals(Map.of("Other", Set.of("M1", "M2"), "Third", Set.of("M3")), edges(game, game.movieActors).get("Same"));
+        //one of the two still shares each movie, so the edge keeps it
+        delta.removeRow(11, 2);
+        delta.removeRow(10, 1);
+        assertEquals(Set.of("M1"), edges(game, game.movieActors).get("Same").get("Other"));
+        delta.removeRow(10, 2);
+        assertNull(edges(game, game.movieActors).get("Same").get("Other"));
+        delta.addRow(11, 1);
+        delta.addRow(12, 2); //both in M3 with Third, and with each other
+        assertEquals(Map.of("Other", Set.of("M2"), "Third", Set.of("M3")), edges(game, game.movieActors).get("Same"));
+        delta.addActor(5, "Same");
+        delta.addRow(10, 5);
+        delta.addRow(10, 3);
+        assertEquals(Set.of("M1", "M2"), edges(game, game.movieActors).get("Same").get("Other"));
+        assertEquals(3, game.movieActors.numVertices());
+        assertEquals(edges(game, game.movieActors), edges(game, new CoStarBuilder(game.castIndex, 1).insertInto(new AdjacencyMapGraph<>())));
+        assertArrayEquals(new int[]{1, 2, 5}, game.castIndex.actorsNamed(game.actor("Same")));
+    }
+
+    // queries between small deltas, so the compact copy is patched from the last one and kept trees move onto it
+    private void query(BaconGame game, String[] centers) {
+        for (String center : centers) {
+            if (game.actor(center) >= 0) game.pathTrees.get(game.actor(center));
+        }
+        CSRGraph<Integer, List<String>> current = game.pathTrees.compact();
+        if (last != null) assertTrue(current.sharesIds(last), "copy was patched, not rebuilt");
+        last = current;
+    }
+
+    private String file(String name) {
+        return dir.resolve(name).toString();
+    }
+
+    // actor -> co-star -> titles of their shared movies, by name, so games with different ids compare
+    private static Map<String, Map<String, Set<String>>> edges(BaconGame game, GraphView<Integer, List<String>> graph) {
+        Map<String, Map<String, Set<String>>> edges = new HashMap<>();
+        for (Integer u : graph.vertices()) {
+            Map<String, Set<String>> costars = new HashMap<>();
+            for (Integer v : graph.outNeighbors(u)) costars.put(game.name(v), new HashSet<>(graph.getLabel(u, v)));
+            edges.put(game.name(u), costars);
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The path tree from bfs must hold every vertex the source reaches, each pointing at a parent one step
+ * closer along a real edge with that edge's label, and must follow changes made to a map graph; the
+ * bidirectional shortest path must be a real path as long as the BFS distance.
+ *
+ * PS4
+ */
+class GraphLibraryTest {
+    @Test
+    void bfsTreeMatchesQueueSearch() {
+        Graph<Integer, String> g = randomGraph(400, 700, 3);
+        for (int source : new int[]{0, 1, 57, 399}) {
+            Map<Integer, Integer> want = distances(g, source);
+            Graph<Integer, String> tree = GraphLibrary.bfs(g, source);
+            assertTree(g, tree, source, want);
+            assertEquals(want.keySet().size() + GraphLibrary.missingVertices(g, tree).size(), g.numVertices());
+            double mean = want.values().stream().mapToInt(Integer::intValue).sum() / (double) (want.size() - 1);
+            assertEquals(mean, GraphLibrary.averageSeparation(tree, source), 1e-9);
+        }
+        assertNull(GraphLibrary.bfs(g, 1000));
+    }
+
+    @Test
+    void bfsFollowsChangesToTheGraph() {
+        Graph<Integer, String> g = randomGraph(300, 300, 8);
+        assertTree(g, GraphLibrary.bfs(g, 0), 0, distances(g, 0));
+        //join everything to the source's component through a new vertex, then cut some edges
+        g.insertVertex(300);
+        for (int v = 0; v < 300; v += 10) g.insertUndirected(300, v, "new " + v);
+        assertTree(g, GraphLibrary.bfs(g, 0), 0, distances(g, 0));
+        for (int v = 0; v < 300; v += 30) g.removeUndirected(300, v);
+        assertTree(g, GraphLibrary.bfs(g, 0), 0, distances(g, 0));
+    }
+
+    @Test
+    void shortestPathIsAsLongAsTheBfsDistance() {
+        Graph<Integer, String> undirected = randomGraph(500, 700, 5);
+        Graph<Integer, String> directed = new AdjacencyMapGraph<>();
+        Random random = new Random(9);
+        for (int v = 0; v < 300; v++) directed.insertVertex(v);
+        for (int i = 0; i < 900; i++) {
+            int u = random.nextInt(300), v = random.nextInt(300);
+            if (u != v) directed.insertDirected(u, v, u + "->" + v);
+        }
+        for (Graph<Integer, String> g : List.of(undirected, directed)) {
+            for (GraphView<Integer, String> view : List.of(g, new CSRGraph<>(g))) {
+                for (int from = 0; from < 300; from += 37) {
+                    Map<Integer, Integer> want = distances(g, from);
+                    for (int to = 0; to < 300; to += 13) {
+                        List<Integer> path = GraphLibrary.shortestPath(view, from, to);
+                        if (!want.containsKey(to)) {
+                            assertEquals(List.of(), path, from + " cannot reach " + to);
+                            continue;
+                        }
+                        assertEquals(want.get(to) + 1, path.size(), "from " + from + " to " + to);
+                        assertEquals(from, (int) path.get(0));
+                        assertEquals(to, (int) path.get(path.size() - 1));
+                        List<String> labels = GraphLibrary.pathLabels(view, path);
+                        for (int i = 0; i + 1 < path.size(); i++) {
+                            assertTrue(g.hasEdge(path.get(i), path.get(i + 1)));
+                            assertEquals(g.getLabel(path.get(i), path.get(i + 1)), labels.get(i));
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(List.of(7), GraphLibrary.shortestPath(undirected, 7, 7));
+        assertEquals(List.of(), GraphLibrary.shortestPath(undirected, 7, 1000));
+        assertEquals(List.of(), GraphLibrary.shortestPath(undirected, 1000, 7));
+    }
+
+    private static void assertTree(Graph<Integer, String> g, Graph<Integer, String> tree, int source, Map<Integer, Integer> want) {
+        assertEquals(want.size(), tree.numVertices());
+        for (Map.Entry<Integer, Integer> e : want.entrySet()) {
+            int v = e.getKey(), d = e.getValue();
+            List<Integer> path = GraphLibrary.getPath(tree, v);
+            assertEquals(d + 1, path.size(), "path from " + v);
+            assertEquals(source, (int) path.get(d));
+            for (int i = 0; i < d; i++) {
+                int child = path.get(i), parent = path.get(i + 1);
+                assertEquals(g.getLabel(parent, child), tree.getLabel(child, parent));
+                assertNotNull(tree.getLabel(child, parent));
+            }
+        }
+    }
+
+    // reference distances by a plain queue search
+    private static Map<Integer, Integer> distances(Graph<Integer, String> g, int source) {
+        Map<Integer, Integer> dist = new HashMap<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+        dist.put(source, 0);
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int u = queue.remove();
+            for (int v : g.outNeighbors(u)) {
+                if (!dist.containsKey(v)) {
+                    dist.put(v, dist.get(u) + 1);
+                    queue.add(v);
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static Graph<Integer, String> randomGraph(int n, int edges, long seed) {
+        Random random = new Random(seed);
+        Graph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < n; v++) g.insertVertex(v);
+        for (int i = 0; i < edges; i++) {
+            int u = random.nextInt(n), v = random.nextInt(n);
+            if (u != v) g.insertUndirected(u, v, u + "-" + v);
+        }
+        return g;
+    }
+}
@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * While disabled the metrics must record nothing but load phases; once enabled, each search must add
+ * the vertices it reached and the edges it scanned, and commands, phases and the watched cache must
+ * show up in the MBean views.
+ *
+ * PS4
+ */
+class GraphMetricsTest {
+    private final GraphMetrics metrics = GraphMetrics.get();
+
+    @AfterEach
+    void disable() {
+        metrics.setEnabled(false);
+        metrics.reset();
+        GraphMetrics.watch(null);
+    }
+
+    @Test
+    void disabledRecordsNothing() {
+        metrics.setEnabled(false);
+        metrics.reset();
+        assertEquals(0, GraphMetrics.start());
+        assertEquals(-1, GraphMetrics.allocated());
+        GraphLibrary.bfsResult(cycle(10), 0);
+        GraphMetrics.command("p", GraphMetrics.start(), GraphMetrics.allocated());
+        assertEquals(0, metrics.getBfsSearches());
+        assertEquals(0, metrics.getVerticesVisited());
+        assertEquals("", metrics.getCommandLatencies());
+        assertTrue(metrics.dump().contains("(disabled)"));
+
+        //loads are rare, so their phases are kept either way
+        GraphMetrics.phase("parse", 3000000);
+        assertTrue(metrics.getLoadPhases().contains("parse: 3 ms"), metrics.getLoadPhases());
+    }
+
+    @Test
+    void searchesAddVisitedAndScanned() {
+        metrics.reset();
+        metrics.setEnabled(true);
+        assertTrue(GraphMetrics.start() > 0);
+
+        //a 10-cycle plus an isolated vertex: a search reaches 10 vertices over 20 directed edges
+        AdjacencyMapGraph<Integer, String> g = cycle(10);
+        g.insertVertex(10);
+        GraphLibrary.bfsResult(g, 0);
+        assertEquals(1, metrics.getBfsSearches());
+        assertEquals(10, metrics.getVerticesVisited());
+        assertEquals(20, metrics.getEdgesScanned());
+        GraphLibrary.bfsResult(g, 10);
+        assertEquals(2, metrics.getBfsSearches());
+        assertEquals(11, metrics.getVerticesVisited());
+        assertEquals(20, metrics.getEdgesScanned());
+
+        //the two-sided path search counts what both sides reached
+        assertEquals(List.of(0, 1, 2), GraphLibrary.shortestPath(g, 0, 2));
+        assertEquals(3, metrics.getBfsSearches());
+        assertTrue(metrics.getVerticesVisited() > 11);
+        assertTrue(metrics.getBfsLatency().startsWith("count=3"), metrics.getBfsLatency());
+
+        metrics.reset();
+        assertEquals(0, metrics.getBfsSearches());
+        assertEquals(0, metrics.getEdgesScanned());
+    }
+
+    @Test
+    void commandsPhasesAndCache() {
+        metrics.reset();
+        metrics.setEnabled(true);
+        for (int i = 0; i < 3; i++) GraphMetrics.command("p", GraphMetrics.start(), GraphMetrics.allocated());
+        GraphMetrics.command("c", GraphMetrics.start(), -1);
+        String latencies = metrics.getCommandLatencies();
+        String[] lines = latencies.split("\n");
+        assertEquals(2, lines.length, latencies);
+        assertTrue(lines[0].startsWith("c: count=1"), lines[0]);
+        assertFalse(lines[0].contains("allocated="), "unknown allocation is not reported");
+        assertTrue(lines[1].startsWith("p: count=3"), lines[1]);
+
+        GraphMetrics.phase("build", 7000000);
+        GraphMetrics.phase("build", 5000000);
+        assertTrue(metrics.getLoadPhases().contains("build: 5 ms"), "the last run of a phase is kept");
+
+        assertEquals(0, metrics.getCacheHitRate());
+        BFSCache<Integer, String> cache = BFSCache.of(cycle(6), 4, Long.MAX_VALUE);
+        GraphMetrics.watch(cache);
+        cache.get(0);
+        cache.get(0);
+        cache.get(0);
+        cache.get(1);
+        assertEquals(0.5, metrics.getCacheHitRate(), 1e-9);
+        String dump = metrics.dump();
+        assertTrue(dump.contains("cache: "), dump);
+        assertTrue(dump.contains("command p: count=3"), dump);
+        assertTrue(dump.contains("load build: 5 ms"), dump);
+    }
+
+    private static AdjacencyMapGraph<Integer, String> cycle(int n) {
+        AdjacencyMapGraph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < n; v++) g.insertVertex(v);
+        for (int v = 0; v < n; v++) g.insertUndirected(v, (v + 1) % n, v + "-" + (v + 1) % n);
+        return g;
+    }
+}
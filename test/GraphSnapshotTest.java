@@ -0,0 +1,172 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A snapshot must open as the graph and index it was written from, served from the file, and must
+ * refuse a file that is truncated, corrupt or older than its sources, or a graph whose titles the
+ * index does not have.
+ *
+ * PS4
+ */
+class GraphSnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripGivesTheWrittenGraph() throws Exception {
+        SyntheticGraphs.write(dir, 2000, 1000, 5, 21);
+        CastIndex index = load();
+        CSRGraph<Integer, List<String>> g = new CoStarBuilder(index, 1).toCSRGraph();
+        Path file = dir.resolve("g.snapshot");
+        GraphSnapshot.write(g, index, GraphSnapshot.sources(sources()), file);
+        for (boolean verify : new boolean[]{false, true}) {
+            GraphSnapshot opened = GraphSnapshot.read(file, sources(), verify);
+            CSRGraph<Integer, List<String>> read = opened.graph();
+            assertTrue(read.symmetric(), "a symmetric graph is stored without its transpose");
+            assertEquals(g.numVertices(), read.numVertices());
+            assertEquals(g.numEdges(), read.numEdges());
+            assertEquals(g.numLabels(), read.numLabels());
+            for (int v = 0; v < g.numVertices(); v++) {
+                Integer name = g.vertex(v);
+                assertEquals(name, read.vertex(v));
+                assertEquals(v, read.vertexId(name));
+                assertEquals(iterate(g.outNeighbors(name)), iterate(read.outNeighbors(name)));
+                for (Integer w : read.outNeighbors(name)) {
+                    assertEquals(g.getLabel(name, w), read.getLabel(name, w));
+                    assertSame(read.getLabel(name, w), read.getLabel(w, name), "one list for both directions");
+                }
+            }
+            //names that are not vertices, e.g. of actors in no movie, have no id
+            for (int name = 0; name < index.actorNames().size(); name++) {
+                assertEquals(g.hasVertex(name), read.hasVertex(name), "name " + name);
+            }
+            CastIndex copy = opened.castIndex();
+            assertArrayEquals(index.castStart(), copy.castStart());
+            assertArrayEquals(index.cast(), copy.cast());
+            assertArrayEquals(index.filmStart(), copy.filmStart());
+            assertArrayEquals(index.films(), copy.films());
+            for (int a = 0; a < index.actorIdLimit(); a++) assertEquals(index.actorName(a), copy.actorName(a));
+            for (int m = 0; m < index.movieIdLimit(); m++) assertEquals(index.movieTitle(m), copy.movieTitle(m));
+        }
+    }
+
+    @Test
+    void directedGraphKeepsItsInEdges() throws Exception {
+        CastIndex index = small();
+        CSRGraph.Builder<Integer, List<String>> b = new CSRGraph.Builder<>();
+        //boxed, so these are vertices rather than the builder's dense ids
+        Integer same = index.actorNameId(1), other = index.actorNameId(3), third = index.actorNameId(4);
+        b.addDirected(same, other, List.of("M1"));
+        b.addDirected(third, other, List.of("M1", "M2"));
+        b.addDirected(other, third, List.of("M3"));
+        CSRGraph<Integer, List<String>> g = b.build();
+        Path file = dir.resolve("g.snapshot");
+        GraphSnapshot.write(g, index, GraphSnapshot.sources(sources()), file);
+        CSRGraph<Integer, List<String>> read = GraphSnapshot.read(file, sources(), true).graph();
+        assertFalse(read.symmetric());
+        assertEquals(List.of(same, third), iterate(read.inNeighbors(other)));
+        assertEquals(List.of(other), iterate(read.inNeighbors(third)));
+        assertEquals(0, read.inDegree(same));
+        assertEquals(List.of("M1", "M2"), read.getLabel(third, other));
+        assertNull(read.getLabel(other, same));
+    }
+
+    @Test
+    void titleMissingFromTheIndexIsNotWritten() throws Exception {
+        CastIndex index = small();
+        CSRGraph.Builder<Integer, List<String>> b = new CSRGraph.Builder<>();
+        b.addUndirected(index.actorNameId(1), index.actorNameId(3), List.of("M1", "Not a Movie"));
+        Path file = dir.resolve("g.snapshot");
+        IOException e = assertThrows(IOException.class, () -> GraphSnapshot.write(b.build(), index, GraphSnapshot.sources(sources()), file));
+        assertTrue(e.getMessage().contains("Not a Movie"), e.getMessage());
+        assertEquals(-1, index.movieTitles().find("Not a Movie"), "the index's pool is only read");
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void damagedFilesAreRefused() throws Exception {
+        SyntheticGraphs.write(dir, 300, 200, 4, 5);
+        CastIndex index = load();
+        Path file = dir.resolve("g.snapshot");
+        GraphSnapshot.write(new CoStarBuilder(index, 1).toCSRGraph(), index, GraphSnapshot.sources(sources()), file);
+        byte[] good = Files.readAllBytes(file);
+
+        //the header and metadata are always checked; a count is in the metadata
+        byte[] bad = good.clone();
+        bad[32 + 4 + 3 * 48 + 1] ^= 1;
+        Files.write(file, bad);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file, sources()));
+
+        Files.write(file, Arrays.copyOf(good, good.length - 4));
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file, sources()));
+        Files.write(file, Arrays.copyOf(good, 20));
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file, sources()));
+
+        //a flipped title id in the last label is only found by the full check
+        bad = good.clone();
+        bad[bad.length - 2] ^= 1;
+        Files.write(file, bad);
+        assertDoesNotThrow(() -> GraphSnapshot.read(file, sources(), false));
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file, sources(), true));
+
+        Files.write(file, good);
+        assertDoesNotThrow(() -> GraphSnapshot.read(file, sources(), true));
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            out.truncate(0);
+        }
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file, sources()));
+    }
+
+    @Test
+    void changedSourcesMakeTheSnapshotStale() throws Exception {
+        CastIndex index = small();
+        Path file = dir.resolve("g.snapshot");
+        GraphSnapshot.write(new CoStarBuilder(index, 1).toCSRGraph(), index, GraphSnapshot.sources(sources()), file);
+        Path movies = dir.resolve("movies.txt");
+
+        //touched but the same: the hash still matches
+        Files.setLastModifiedTime(movies, FileTime.fromMillis(Files.getLastModifiedTime(movies).toMillis() + 60000));
+        assertDoesNotThrow(() -> GraphSnapshot.read(file, sources()));
+
+        //same size, other contents
+        Files.write(movies, List.of("10|M1", "11|M2", "12|M4"));
+        Files.setLastModifiedTime(movies, FileTime.fromMillis(Files.getLastModifiedTime(movies).toMillis() + 120000));
+        IOException e = assertThrows(IOException.class, () -> GraphSnapshot.read(file, sources()));
+        assertTrue(e.getMessage().contains("changed"), e.getMessage());
+
+        Files.delete(movies);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file, sources()));
+    }
+
+    private List<Path> sources() {
+        return List.of(dir.resolve("actors.txt"), dir.resolve("movies.txt"), dir.resolve("movie-actors.txt"));
+    }
+
+    private CastIndex load() throws Exception {
+        return CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+    }
+
+    private CastIndex small() throws Exception {
+        Files.write(dir.resolve("actors.txt"), List.of("1|Same", "2|Same", "3|Other", "4|Third"));
+        Files.write(dir.resolve("movies.txt"), List.of("10|M1", "11|M2", "12|M3"));
+        Files.write(dir.resolve("movie-actors.txt"), List.of("10|1", "10|2", "10|3", "11|2", "11|3", "12|1", "12|4"));
+        return load();
+    }
+
+    private static <T> List<T> iterate(Iterable<T> it) {
+        List<T> list = new ArrayList<>();
+        for (T t : it) list.add(t);
+        return list;
+    }
+}
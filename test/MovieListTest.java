@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Packed movie lists must give back exactly the title ids they were made from, in order, however
+ * the ids jump about, and read like any other list of the titles.
+ *
+ * PS4
+ */
+class MovieListTest {
+    @Test
+    void oneTitleIsKeptInline() {
+        StringPool titles = new StringPool();
+        int id = titles.intern("Footloose (1984)");
+        MovieList one = MovieList.of(titles, new int[]{7, id, 9}, 1, 2);
+        assertEquals(List.of("Footloose (1984)"), one);
+        assertArrayEquals(new int[]{id}, one.titleIds());
+        assertInstanceOf(RandomAccess.class, one);
+        assertThrows(IndexOutOfBoundsException.class, () -> one.titleId(1));
+    }
+
+    @Test
+    void packedIdsRoundTrip() {
+        StringPool titles = new StringPool();
+        for (int i = 0; i < 1000; i++) titles.intern("Movie " + i);
+        Random random = new Random(1);
+        for (int trial = 0; trial < 200; trial++) {
+            int[] ids = new int[2 + random.nextInt(40)];
+            //sorted runs, reversals and far jumps, so deltas of every sign and width are packed
+            for (int i = 0; i < ids.length; i++) ids[i] = trial % 3 == 0 ? i * 3 : random.nextInt(1000);
+            MovieList list = MovieList.of(titles, ids);
+            assertFalse(list instanceof RandomAccess);
+            assertArrayEquals(ids, list.titleIds());
+            List<String> want = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(ids[i], list.titleId(i));
+                want.add("Movie " + ids[i]);
+            }
+            assertEquals(want, list);
+            assertEquals(want, new ArrayList<>(list));
+            assertEquals(want.hashCode(), list.hashCode());
+            assertThrows(IndexOutOfBoundsException.class, () -> list.get(ids.length));
+        }
+    }
+
+    @Test
+    void largeIdsAndGapsPack() {
+        StringPool titles = new StringPool();
+        int[] ids = {Integer.MAX_VALUE, 0, Integer.MAX_VALUE - 1, 5, 1 << 20, (1 << 20) - 1};
+        int[] copy = ids.clone();
+        MovieList list = MovieList.of(titles, ids);
+        Arrays.fill(ids, -1); //of() copies, so the caller may reuse its array
+        assertArrayEquals(copy, list.titleIds());
+        for (int i = 0; i < copy.length; i++) assertEquals(copy[i], list.titleId(i));
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Each source's counts from the bit-parallel search must be those of a BFS from it alone, across
+ * several passes of one instance, and the per-vertex distance sums must add up the same distances.
+ *
+ * PS4
+ */
+class MultiSourceBFSTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void countsMatchSingleSearches() throws Exception {
+        SyntheticGraphs.write(dir, 3000, 1500, 4, 12);
+        CastIndex index = CastIndex.load(dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString());
+        CSRGraph<Integer, List<String>> g = new CoStarBuilder(index, 1).toCSRGraph();
+        //more than two passes, with a repeated source and the isolated tail of the graph
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < 150; i++) sources.add(g.vertex(i * 19 % g.numVertices()));
+        sources.add(sources.get(3));
+        sources.add(g.vertex(g.numVertices() - 1));
+        MultiSourceBFS<Integer, List<String>> search = new MultiSourceBFS<>(g);
+        for (int run = 0; run < 2; run++) {
+            assertSameCounts(g, sources, search.search(sources));
+        }
+        assertSameCounts(g, sources, GraphLibrary.separationCounts(g, sources));
+        assertThrows(IllegalArgumentException.class, () -> search.search(List.of(-1)));
+    }
+
+    @Test
+    void directedCountsAndSums() {
+        Random random = new Random(3);
+        CSRGraph.Builder<Integer, String> b = new CSRGraph.Builder<>();
+        for (Integer v = 0; v < 500; v++) b.addVertex(v);
+        for (int i = 0; i < 1500; i++) {
+            Integer u = random.nextInt(500), v = random.nextInt(500);
+            b.addDirected(u, v, "e" + i);
+        }
+        CSRGraph<Integer, String> g = b.build();
+        int[] ids = new int[64];
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 7;
+            sources.add(g.vertex(ids[i]));
+        }
+        long[] sums = new long[g.numVertices()], squares = new long[g.numVertices()];
+        MultiSourceBFS.Counts counts = new MultiSourceBFS<>(g).search(ids, 0, ids.length, sums, squares);
+        assertSameCounts(g, sources, counts);
+        long[] wantSums = new long[g.numVertices()], wantSquares = new long[g.numVertices()];
+        BFSResult<Integer, String> bfs = new BFSResult<>(g);
+        for (int s : ids) {
+            int[] dist = bfs.search(s).distances();
+            for (int v = 0; v < dist.length; v++) {
+                if (dist[v] > 0) {
+                    wantSums[v] += dist[v];
+                    wantSquares[v] += (long) dist[v] * dist[v];
+                }
+            }
+        }
+        assertArrayEquals(wantSums, sums);
+        assertArrayEquals(wantSquares, squares);
+        assertThrows(IllegalArgumentException.class, () -> new MultiSourceBFS<>(g).search(new int[65], 0, 65));
+    }
+
+    private static <E> void assertSameCounts(CSRGraph<Integer, E> g, List<Integer> sources, MultiSourceBFS.Counts counts) {
+        assertEquals(sources.size(), counts.size());
+        BFSResult<Integer, E> bfs = new BFSResult<>(g);
+        for (int i = 0; i < sources.size(); i++) {
+            BFSResult<Integer, E> want = bfs.search(sources.get(i));
+            assertEquals(g.vertexId(sources.get(i)), counts.source(i));
+            assertEquals(want.numReached(), counts.numReached(i), "reached from " + sources.get(i));
+            assertEquals(want.eccentricity(), counts.eccentricity(i));
+            int[] histogram = counts.histogram(i);
+            long sum = 0;
+            for (int d = 0; d <= want.eccentricity(); d++) {
+                assertEquals(want.levelSize(d), histogram[d], "level " + d + " from " + sources.get(i));
+                sum += (long) d * want.levelSize(d);
+            }
+            assertEquals(sum, counts.distanceSum(i));
+            if (want.numReached() > 1) assertEquals(want.averageSeparation(), counts.averageSeparation(i), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The statistics counted per level must match the distances of a queue search and the average taken
+ * from the path tree, and a chain far deeper than the call stack must be measured without recursion.
+ *
+ * PS4
+ */
+class SeparationStatsTest {
+    @Test
+    void countsMatchQueueSearch() {
+        Random random = new Random(2);
+        Graph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < 400; v++) g.insertVertex(v);
+        for (int i = 0; i < 500; i++) {
+            int u = random.nextInt(400), v = random.nextInt(400);
+            if (u != v) g.insertUndirected(u, v, u + "-" + v);
+        }
+        for (int center = 0; center < 400; center += 23) {
+            Map<Integer, Integer> dist = new HashMap<>(Map.of(center, 0));
+            Deque<Integer> queue = new ArrayDeque<>(List.of(center));
+            while (!queue.isEmpty()) {
+                int u = queue.remove();
+                for (int w : g.outNeighbors(u)) {
+                    if (dist.putIfAbsent(w, dist.get(u) + 1) == null) queue.add(w);
+                }
+            }
+            int ecc = Collections.max(dist.values());
+            int[] histogram = new int[ecc + 1];
+            long total = 0;
+            for (int d : dist.values()) {
+                histogram[d]++;
+                total += d;
+            }
+            SeparationStats stats = GraphLibrary.separationStats(g, center);
+            assertArrayEquals(histogram, stats.histogram(), "from " + center);
+            assertEquals(dist.size(), stats.reachable());
+            assertEquals(ecc, stats.eccentricity());
+            assertEquals(total, stats.totalSeparation());
+            assertEquals(0, stats.count(ecc + 1));
+            assertEquals(0, stats.count(-1));
+            if (dist.size() > 1) {
+                assertEquals(total / (double) (dist.size() - 1), stats.mean(), 1e-9);
+                assertEquals(stats.mean(), GraphLibrary.averageSeparation(GraphLibrary.bfs(g, center), center), 1e-9);
+            } else {
+                assertTrue(Double.isNaN(stats.mean()));
+            }
+        }
+        assertNull(GraphLibrary.separationStats(g, 400));
+    }
+
+    @Test
+    void longChainNeedsNoRecursion() {
+        int n = 200000;
+        Graph<Integer, String> g = new AdjacencyMapGraph<>();
+        for (int v = 0; v < n; v++) g.insertVertex(v);
+        for (int v = 1; v < n; v++) g.insertUndirected(v - 1, v, "link");
+        SeparationStats stats = GraphLibrary.separationStats(g, 0);
+        assertEquals(n - 1, stats.eccentricity());
+        assertEquals(n / 2.0, stats.mean(), 1e-9);
+        assertEquals(n / 2.0, GraphLibrary.averageSeparation(GraphLibrary.bfs(g, 0), 0), 1e-9);
+    }
+
+    @Test
+    void histogramIsCopied() {
+        int[] histogram = {1, 3, 2};
+        SeparationStats stats = new SeparationStats(histogram);
+        histogram[1] = 100;
+        assertEquals(3, stats.count(1));
+        stats.histogram()[2] = 100;
+        assertEquals(2, stats.count(2));
+        assertEquals(6, stats.reachable());
+        assertEquals(7, stats.totalSeparation());
+        assertEquals(7 / 5.0, stats.mean(), 1e-12);
+    }
+}
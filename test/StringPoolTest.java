@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The pool must give each distinct string one dense id across growth of its arrays and table, find
+ * strings in pools read back from storage, and decode every published string while another thread
+ * interns.
+ *
+ * PS4
+ */
+class StringPoolTest {
+    @Test
+    void repeatedStringsKeepTheirIds() {
+        StringPool pool = new StringPool();
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) strings.add("Movie " + i + (i % 7 == 0 ? " (été)" : ""));
+        strings.add("");
+        for (int i = 0; i < strings.size(); i++) assertEquals(i, pool.intern(strings.get(i)));
+        assertEquals(strings.size(), pool.size());
+        int bytes = pool.byteSize();
+        for (int i = strings.size() - 1; i >= 0; i--) {
+            assertEquals(i, pool.intern(strings.get(i)), strings.get(i));
+            assertEquals(i, pool.find(strings.get(i)));
+            assertEquals(strings.get(i), pool.get(i));
+        }
+        assertEquals(strings.size(), pool.size());
+        assertEquals(bytes, pool.byteSize());
+        assertEquals(-1, pool.find("Movie 5000"));
+
+        //a slice of a larger buffer, as the loader passes them
+        byte[] line = "id|Movie 43|1999".getBytes(StandardCharsets.UTF_8);
+        assertEquals(43, pool.intern(line, 3, 8));
+        assertThrows(IndexOutOfBoundsException.class, () -> pool.get(strings.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> pool.get(-1));
+    }
+
+    @Test
+    void storedContentsAreFoundAndExtended() {
+        StringPool pool = new StringPool();
+        for (String s : List.of("Kevin Bacon", "Tom Hanks", "Meryl Streep")) pool.intern(s);
+        StringPool read = new StringPool(Arrays.copyOf(pool.bytes(), pool.byteSize()), pool.starts());
+        assertEquals(3, read.size());
+        assertEquals("Tom Hanks", read.get(1));
+        assertEquals(2, read.find("Meryl Streep"));
+        assertEquals(0, read.intern("Kevin Bacon"));
+        assertEquals(3, read.intern("Viola Davis"));
+        assertEquals("Viola Davis", read.get(3));
+        assertEquals(3, pool.size(), "the stored pool is not changed");
+    }
+
+    @Test
+    void readersDecodeWhileInterning() throws Exception {
+        StringPool pool = new StringPool();
+        int n = 20000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                int seen = 0;
+                while (seen < n) {
+                    int size = pool.size();
+                    for (int id = seen; id < size; id++) assertEquals("title " + id, pool.get(id));
+                    seen = size;
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < n; i++) pool.intern("title " + i);
+        reader.join();
+        if (failure.get() != null) throw new AssertionError("reader saw a partly written string", failure.get());
+    }
+}